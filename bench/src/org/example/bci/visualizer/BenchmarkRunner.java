@@ -0,0 +1,26 @@
+package org.example.bci.visualizer;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks, with the GC profiler, so the allocation rate is reported next to the time of every benchmark.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Main entry point.
+     * Takes the JMH command line options, e.g. a benchmark name pattern, or "-p channels=8" to pick parameters.
+     *
+     * @param args the JMH command line options.
+     * @throws Exception from JMH.
+     */
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.bci.visualizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks matching the chart patterns against the data labels, and building the data labels of a board.
+ * Both only depend on the number of channels, not on the number of samples.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ChannelMatchingBenchmark {
+
+    @Param({"8", "32", "128"})
+    public int channels;
+
+    private DataExtractor dataExtractor;
+    private List<String> labels;
+    private List<ChartDescriptor> chartDescriptors;
+    private ExcelExporter exporter;
+
+    /**
+     * Creates the synthetic board and its labels.
+     *
+     * @throws Exception from the BrainFlow API.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataExtractor = SyntheticData.dataExtractor(channels, 250, 1);
+        labels = Arrays.asList(dataExtractor.getDataLabels());
+        chartDescriptors = BCIVisualizer.createChartDescriptors();
+        exporter = new ExcelExporter();
+    }
+
+    /**
+     * Matches the column patterns of all charts against the data labels, through the shared channel index,
+     * so after the first invocation this measures the cached lookups.
+     *
+     * @param blackhole consumes the matching columns.
+     */
+    @Benchmark
+    public void findMatchingLabelColumns(Blackhole blackhole) {
+        for (ChartDescriptor cd : chartDescriptors) {
+            blackhole.consume(exporter.findMatchingLabelColumns(labels, cd.columnPatterns()));
+        }
+    }
+
+    /**
+     * Builds the data labels from the board descriptor and the label descriptions.
+     *
+     * @return the data labels.
+     */
+    @Benchmark
+    public String[] initializeDataLabels() {
+        dataExtractor.initializeDataLabels();
+        return dataExtractor.getDataLabels();
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.bci.visualizer;
+
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the Excel export: importing samples through the POI cell model, and generating a whole file with charts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ExcelExporterBenchmark {
+
+    @Param({"8", "32"})
+    public int channels;
+
+    @Param({"1000", "10000", "100000"})
+    public int samples;
+
+    private DataExtractor dataExtractor;
+    private List<ChartDescriptor> chartDescriptors;
+    private Path excelFile;
+
+    /**
+     * Creates the synthetic samples.
+     *
+     * @throws Exception from the BrainFlow API or creating the file.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataExtractor = SyntheticData.dataExtractor(channels, 250, samples);
+        chartDescriptors = BCIVisualizer.createChartDescriptors();
+        excelFile = Files.createTempFile("bench", ".xlsx");
+    }
+
+    /**
+     * Deletes the Excel file.
+     *
+     * @throws Exception from deleting the file.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(excelFile);
+    }
+
+    /**
+     * Imports all samples into a streaming workbook, through the POI cell model.
+     *
+     * @return the number of rows written.
+     * @throws Exception from closing the workbook.
+     */
+    @Benchmark
+    public int importData() throws Exception {
+        ExcelExporter exporter = new ExcelExporter();
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(ExcelExporter.ROW_ACCESS_WINDOW)) {
+            List<SXSSFSheet> sheets = new ArrayList<>();
+            for (int sheetIndex = 0; sheetIndex < exporter.getDataSheetCount(samples); sheetIndex++) {
+                sheets.add(wb.createSheet(exporter.getDataSheetTitle(sheetIndex)));
+            }
+            exporter.importData(sheets, dataExtractor);
+            int rows = sheets.get(0).getLastRowNum();
+            wb.dispose();
+            return rows;
+        }
+    }
+
+    /**
+     * Generates a whole Excel file, with the data sheets and the charts of the visualizer.
+     *
+     * @return the file size.
+     * @throws Exception from the Excel export.
+     */
+    @Benchmark
+    public long generateExcelFile() throws Exception {
+        new ExcelExporter().generateExcelFile(excelFile.toString(), dataExtractor, chartDescriptors);
+        return Files.size(excelFile);
+    }
+}
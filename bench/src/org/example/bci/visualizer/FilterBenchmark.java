@@ -0,0 +1,165 @@
+package org.example.bci.visualizer;
+
+import brainflow.BoardDescr;
+import brainflow.DetrendOperations;
+import brainflow.FilterTypes;
+import brainflow.NoiseTypes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the DataExtractor filter wrappers, on all EEG channels.
+ * The filters work in place, so every invocation first copies the samples into a work array;
+ * the {@link #copy()} benchmark measures that copy alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class FilterBenchmark {
+
+    private static final int SAMPLING_RATE = 250;
+    private static final int ORDER = 4;
+
+    @Param({"8", "32"})
+    public int channels;
+
+    @Param({"1000", "10000", "100000"})
+    public int samples;
+
+    private DataExtractor dataExtractor;
+    private double[][] data;
+    private double[][] work;
+    private int[] eegChannels;
+
+    /**
+     * Creates the synthetic samples, and the work array.
+     *
+     * @throws Exception from the BrainFlow API.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BoardDescr boardDescr = SyntheticData.boardDescr(channels, SAMPLING_RATE);
+        dataExtractor = new DataExtractor(-1, boardDescr, samples);
+        data = SyntheticData.data(boardDescr, samples);
+        work = new double[data.length][samples];
+        eegChannels = boardDescr.eeg_channels.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Copies the EEG channels into the work array, undoing the previous invocation.
+     *
+     * @return the work array.
+     */
+    @Benchmark
+    public double[][] copy() {
+        for (int channel : eegChannels) {
+            System.arraycopy(data[channel], 0, work[channel], 0, samples);
+        }
+        return work;
+    }
+
+    /**
+     * Low pass filters all EEG channels.
+     *
+     * @return the work array.
+     * @throws Exception from the BrainFlow API.
+     */
+    @Benchmark
+    public double[][] filterLowPass() throws Exception {
+        for (int channel : eegChannels) {
+            System.arraycopy(data[channel], 0, work[channel], 0, samples);
+            dataExtractor.filterLowPass(work[channel], SAMPLING_RATE, 45, ORDER, FilterTypes.BUTTERWORTH, 0);
+        }
+        return work;
+    }
+
+    /**
+     * High pass filters all EEG channels.
+     *
+     * @return the work array.
+     * @throws Exception from the BrainFlow API.
+     */
+    @Benchmark
+    public double[][] filterHighPass() throws Exception {
+        for (int channel : eegChannels) {
+            System.arraycopy(data[channel], 0, work[channel], 0, samples);
+            dataExtractor.filterHighPass(work[channel], SAMPLING_RATE, 1, ORDER, FilterTypes.BUTTERWORTH, 0);
+        }
+        return work;
+    }
+
+    /**
+     * Band pass filters all EEG channels.
+     *
+     * @return the work array.
+     * @throws Exception from the BrainFlow API.
+     */
+    @Benchmark
+    public double[][] filterBandPass() throws Exception {
+        for (int channel : eegChannels) {
+            System.arraycopy(data[channel], 0, work[channel], 0, samples);
+            dataExtractor.filterBandPass(work[channel], SAMPLING_RATE, 1, 45, ORDER, FilterTypes.BUTTERWORTH, 0);
+        }
+        return work;
+    }
+
+    /**
+     * Band stop filters all EEG channels, around the line frequency.
+     *
+     * @return the work array.
+     * @throws Exception from the BrainFlow API.
+     */
+    @Benchmark
+    public double[][] filterBandStop() throws Exception {
+        for (int channel : eegChannels) {
+            System.arraycopy(data[channel], 0, work[channel], 0, samples);
+            dataExtractor.filterBandStop(work[channel], SAMPLING_RATE, 49, 51, ORDER, FilterTypes.BUTTERWORTH, 0);
+        }
+        return work;
+    }
+
+    /**
+     * Removes the environmental noise from all EEG channels.
+     *
+     * @return the work array.
+     * @throws Exception from the BrainFlow API.
+     */
+    @Benchmark
+    public double[][] filterRemoveEnvironmentalNoise() throws Exception {
+        for (int channel : eegChannels) {
+            System.arraycopy(data[channel], 0, work[channel], 0, samples);
+            dataExtractor.filterRemoveEnvironmentalNoise(work[channel], SAMPLING_RATE, NoiseTypes.FIFTY);
+        }
+        return work;
+    }
+
+    /**
+     * Removes the linear trend from all EEG channels.
+     *
+     * @return the work array.
+     * @throws Exception from the BrainFlow API.
+     */
+    @Benchmark
+    public double[][] filterDetrend() throws Exception {
+        for (int channel : eegChannels) {
+            System.arraycopy(data[channel], 0, work[channel], 0, samples);
+            dataExtractor.filterDetrend(work[channel], DetrendOperations.LINEAR);
+        }
+        return work;
+    }
+}
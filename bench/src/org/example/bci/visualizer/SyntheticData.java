@@ -0,0 +1,101 @@
+package org.example.bci.visualizer;
+
+import brainflow.BoardDescr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Synthetic board descriptors and samples, held in memory, so the benchmarks run without a board device.
+ */
+public final class SyntheticData {
+
+    // 10-20 system channel names, repeated with a number suffix for larger montages.
+    private static final String[] EEG_NAMES = {"Fp1", "Fp2", "F3", "F4", "F7", "F8", "Fz", "C3", "C4", "Cz",
+            "T7", "T8", "P3", "P4", "P7", "P8", "Pz", "O1", "O2", "Oz"};
+
+    /**
+     * No instances.
+     */
+    private SyntheticData() {
+    }
+
+    /**
+     * Returns a board descriptor with a package channel, EEG channels, and timestamp, marker and battery channels.
+     *
+     * @param eegChannels  the number of EEG channels.
+     * @param samplingRate in Hz.
+     * @return the board descriptor.
+     */
+    public static BoardDescr boardDescr(int eegChannels, int samplingRate) {
+        BoardDescr boardDescr = new BoardDescr();
+        boardDescr.name = "Synthetic " + eegChannels;
+        boardDescr.sampling_rate = samplingRate;
+        boardDescr.package_num_channel = 0;
+        boardDescr.eeg_channels = IntStream.rangeClosed(1, eegChannels).boxed().toList();
+        boardDescr.eeg_names = String.join(",", IntStream.range(0, eegChannels)
+                .mapToObj(i -> EEG_NAMES[i % EEG_NAMES.length] + (i < EEG_NAMES.length ? "" : "-" + (i / EEG_NAMES.length + 1)))
+                .toList());
+        boardDescr.timestamp_channel = eegChannels + 1;
+        boardDescr.marker_channel = eegChannels + 2;
+        boardDescr.battery_channel = eegChannels + 3;
+        boardDescr.num_rows = eegChannels + 4;
+        boardDescr.eog_channels = List.of();
+        boardDescr.exg_channels = new ArrayList<>(boardDescr.eeg_channels);
+        boardDescr.emg_channels = List.of();
+        boardDescr.ppg_channels = List.of();
+        boardDescr.eda_channels = List.of();
+        boardDescr.accel_channels = List.of();
+        boardDescr.gyro_channels = List.of();
+        boardDescr.temperature_channels = List.of();
+        boardDescr.resistance_channels = List.of();
+        boardDescr.rotation_channels = List.of();
+        boardDescr.other_channels = List.of();
+        return boardDescr;
+    }
+
+    /**
+     * Returns samples for a board descriptor: alpha and line noise sines with white noise on the EEG channels,
+     * and package numbers and timestamps, from a fixed seed.
+     *
+     * @param boardDescr the board descriptor.
+     * @param samples    the number of samples.
+     * @return samples as [channel][sample].
+     */
+    public static double[][] data(BoardDescr boardDescr, int samples) {
+        Random random = new Random(42);
+        double[][] data = new double[boardDescr.num_rows][samples];
+        double rate = boardDescr.sampling_rate;
+        for (int i = 0; i < samples; i++) {
+            data[boardDescr.package_num_channel][i] = i % 256;
+            data[boardDescr.timestamp_channel][i] = 1.7e9 + i / rate;
+            data[boardDescr.battery_channel][i] = 95;
+        }
+        for (int channel : boardDescr.eeg_channels) {
+            double phase = random.nextDouble() * 2 * Math.PI;
+            for (int i = 0; i < samples; i++) {
+                double t = i / rate;
+                data[channel][i] = 20 * Math.sin(2 * Math.PI * 10 * t + phase) + 5 * Math.sin(2 * Math.PI * 50 * t) + random.nextGaussian() * 3;
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Returns a data extractor holding synthetic samples, as loaded from a recording.
+     *
+     * @param eegChannels  the number of EEG channels.
+     * @param samplingRate in Hz.
+     * @param samples      the number of samples.
+     * @return the data extractor.
+     * @throws Exception from the BrainFlow API.
+     */
+    public static DataExtractor dataExtractor(int eegChannels, int samplingRate, int samples) throws Exception {
+        BoardDescr boardDescr = boardDescr(eegChannels, samplingRate);
+        DataExtractor dataExtractor = new DataExtractor(-1, boardDescr, samples);
+        dataExtractor.load(data(boardDescr, samples));
+        return dataExtractor;
+    }
+}
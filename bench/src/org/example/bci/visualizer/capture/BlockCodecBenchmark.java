@@ -0,0 +1,84 @@
+package org.example.bci.visualizer.capture;
+
+import brainflow.BoardDescr;
+import org.example.bci.visualizer.SyntheticData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks encoding and decoding one channel of a capture file block, for the kinds of channels of a session.
+ * A block holds {@link CaptureWriter#BLOCK_SAMPLES} doubles, so the decode speed in bytes per second is
+ * the block size divided by the time per decode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BlockCodecBenchmark {
+
+    @Param({"eeg", "eegFloat", "timestamp", "package"})
+    public String channel;
+
+    private final BlockCodec codec = new BlockCodec();
+    private double[] values;
+    private double[] decoded;
+    private byte[] encoded;
+    private int encodedLength;
+
+    /**
+     * Creates the synthetic samples of the channel, and encodes them once for the decode benchmark.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        BoardDescr boardDescr = SyntheticData.boardDescr(8, 250);
+        double[][] data = SyntheticData.data(boardDescr, CaptureWriter.BLOCK_SAMPLES);
+        values = switch (channel) {
+            case "timestamp" -> data[boardDescr.timestamp_channel];
+            case "package" -> data[boardDescr.package_num_channel];
+            default -> data[boardDescr.eeg_channels.get(0)];
+        };
+        if (channel.equals("eegFloat")) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = (float) values[i];
+            }
+        }
+        decoded = new double[values.length];
+        encoded = new byte[BlockCodec.maxEncodedBytes(values.length)];
+        encodedLength = codec.encode(values, 0, values.length, encoded, 0);
+    }
+
+    /**
+     * Encodes the block.
+     *
+     * @return the encoded length.
+     */
+    @Benchmark
+    public int encode() {
+        return codec.encode(values, 0, values.length, encoded, 0);
+    }
+
+    /**
+     * Decodes the block.
+     *
+     * @return the decoded samples.
+     */
+    @Benchmark
+    public double[] decode() {
+        BlockCodec.decode(encoded, 0, encodedLength, decoded, 0, decoded.length);
+        return decoded;
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.bci.visualizer.dsp;
+
+import brainflow.BoardDescr;
+import org.example.bci.visualizer.SyntheticData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks averaging the epochs of a recording into ERPs, with a marker every 1.2 seconds, alternating between
+ * two conditions, so the number of trials grows with the samples.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class EpochAveragerBenchmark {
+
+    private static final int SAMPLING_RATE = 250;
+    private static final int EVENT_SAMPLES = 300;
+
+    @Param({"8", "32"})
+    public int channels;
+
+    @Param({"100000", "1000000"})
+    public int samples;
+
+    private BoardDescr boardDescr;
+    private double[][] data;
+
+    /**
+     * Creates the synthetic samples, with the markers.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        boardDescr = SyntheticData.boardDescr(channels, SAMPLING_RATE);
+        data = SyntheticData.data(boardDescr, samples);
+        for (int i = EVENT_SAMPLES; i < samples; i += EVENT_SAMPLES) {
+            data[boardDescr.marker_channel][i] = i / EVENT_SAMPLES % 2 + 1;
+        }
+    }
+
+    /**
+     * Averages the recording as one chunk, as after a one-shot extract.
+     *
+     * @return the ERPs.
+     */
+    @Benchmark
+    public List<EpochAverager.Erp> average() {
+        EpochAverager averager = EpochAverager.forBoard(boardDescr);
+        averager.accept(data);
+        return averager.getErps();
+    }
+
+    /**
+     * Builds the event index of the marker row.
+     *
+     * @return the event index.
+     */
+    @Benchmark
+    public EventIndex index() {
+        return EventIndex.of(data[boardDescr.marker_channel]);
+    }
+}
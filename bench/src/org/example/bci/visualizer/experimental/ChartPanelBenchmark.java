@@ -0,0 +1,135 @@
+package org.example.bci.visualizer.experimental;
+
+import brainflow.BoardDescr;
+import org.example.bci.visualizer.SampleRingBuffer;
+import org.example.bci.visualizer.SyntheticData;
+import org.example.bci.visualizer.capture.CaptureHeader;
+import org.example.bci.visualizer.capture.CaptureReader;
+import org.example.bci.visualizer.capture.CaptureWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks painting the BCIViewer chart panel into an offscreen image, from a full display buffer of synthetic samples.
+ * The viewer is a window, so this benchmark needs a display, e.g. a virtual frame buffer on a headless machine.
+ * <p>
+ * A fresh frame writes one drain tick of samples first, so the cached frame is rendered again, as while streaming;
+ * a cached frame only copies the cached image.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ChartPanelBenchmark {
+
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1000;
+    // Samples written per fresh frame, one 100 ms drain tick at 250 Hz.
+    private static final int TICK_SAMPLES = 25;
+
+    @Param({"1", "16", "64"})
+    public int channels;
+
+    // The display buffer holds a minute of samples, so this sets the sampling rate.
+    @Param({"15000", "60000"})
+    public int samples;
+
+    @Param({"false", "true"})
+    public boolean stripChart;
+
+    private Path captureFile;
+    private CaptureReader captureReader;
+    private BCIViewer viewer;
+    private JPanel chartPanel;
+    private SampleRingBuffer sampleBuffer;
+    private double[][] tick;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    /**
+     * Opens the viewer on an empty capture of a synthetic board, and fills its display buffer.
+     *
+     * @throws Exception from writing the capture or opening the viewer.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        int samplingRate = samples / 60;
+        BoardDescr boardDescr = SyntheticData.boardDescr(channels, samplingRate);
+        String[] dataLabels = new String[boardDescr.num_rows];
+        Arrays.setAll(dataLabels, row -> "Channel " + row);
+
+        captureFile = Files.createTempFile("bench", ".bcicap");
+        new CaptureWriter(captureFile, new CaptureHeader(-1, samplingRate, boardDescr.num_rows, CaptureWriter.BLOCK_SAMPLES, 0, boardDescr, dataLabels)).close();
+        captureReader = new CaptureReader(captureFile);
+
+        SwingUtilities.invokeAndWait(() -> viewer = new BCIViewer(captureReader, 0));
+        viewer.setStripChart(stripChart);
+        chartPanel = viewer.getChartPanel();
+        chartPanel.setSize(WIDTH, HEIGHT);
+
+        sampleBuffer = viewer.getSampleBuffer();
+        sampleBuffer.write(SyntheticData.data(boardDescr, sampleBuffer.getCapacity()));
+        tick = SyntheticData.data(boardDescr, TICK_SAMPLES);
+
+        image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+    }
+
+    /**
+     * Closes the viewer, and deletes the capture file.
+     *
+     * @throws Exception from closing the viewer or deleting the file.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        graphics.dispose();
+        SwingUtilities.invokeAndWait(viewer::dispose);
+        captureReader.close();
+        Files.deleteIfExists(captureFile);
+    }
+
+    /**
+     * Paints a frame after new samples arrived, rendering it again.
+     *
+     * @return the image painted into.
+     */
+    @Benchmark
+    public BufferedImage paintFreshFrame() {
+        sampleBuffer.write(tick);
+        ((BCIViewer.ChartPanel) chartPanel).paintComponent(graphics);
+        return image;
+    }
+
+    /**
+     * Paints a frame without new samples, copying the cached frame.
+     *
+     * @return the image painted into.
+     */
+    @Benchmark
+    public BufferedImage paintCachedFrame() {
+        ((BCIViewer.ChartPanel) chartPanel).paintComponent(graphics);
+        return image;
+    }
+}
@@ -1,14 +1,30 @@
 package org.example.bci.visualizer;
 
+import brainflow.BoardDescr;
 import brainflow.BoardIds;
+import brainflow.BoardShim;
 import brainflow.BrainFlowInputParams;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.poi.xddf.usermodel.chart.MarkerStyle;
+import org.example.bci.visualizer.capture.CaptureHeader;
+import org.example.bci.visualizer.capture.CaptureReader;
+import org.example.bci.visualizer.capture.CaptureWriter;
+import org.example.bci.visualizer.dsp.BandPowerTracker;
+import org.example.bci.visualizer.dsp.BiquadCascade;
+import org.example.bci.visualizer.dsp.EpochAverager;
+import org.example.bci.visualizer.dsp.StreamingFilter;
+import org.example.bci.visualizer.dsp.VitalsTracker;
+import org.example.bci.visualizer.metrics.Metrics;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * Visualizes a BCI data extract into an Excel file.
@@ -21,6 +37,10 @@ public class BCIVisualizer {
 
     private static DataExtractor dataExtractor;
     private static List<ChartDescriptor> chartDescriptors;
+    private static BandPowerTracker bandPowerTracker;
+    private static VitalsTracker vitalsTracker;
+    private static EpochAverager epochAverager;
+    private static ExportPipeline exportPipeline;
 
     /**
      * Main entry point.
@@ -34,37 +54,279 @@ public class BCIVisualizer {
 
         // Parse the command line parameters.
         BrainFlowInputParams params = new BrainFlowInputParams();
-        int boardId = ParamParser.parseParams(args, params);
-
-        // Get the data from the device.
-        extractData(boardId, params);
-        // Configure the charts.
-        configureCharts();
-        // Export the Excel file.
-        exportExcelFile();
+        SessionParams sessionParams = new SessionParams();
+        int boardId = ParamParser.parseParams(args, params, sessionParams);
+
+        Metrics.startSummary(sessionParams.getMetricsMillis());
+        try {
+            // Configure the charts, before the session, so it can be exported while acquiring.
+            configureCharts();
+            try {
+                // Get the data from the device, or from several devices at once.
+                if (sessionParams.getBoardIds().length > 1) {
+                    extractMultiBoardData(args, sessionParams);
+                } else {
+                    extractData(boardId, params, sessionParams);
+                }
+            } finally {
+                // Finish the Excel file exported while acquiring, if any.
+                if (exportPipeline != null) {
+                    exportPipeline.close();
+                }
+            }
+            // Export the Excel file, after the session.
+            if (exportPipeline == null) {
+                exportExcelFile();
+            }
+        } finally {
+            Metrics.stopSummary();
+            Metrics.logSummary();
+        }
+    }
+
+    /**
+     * Extracts the data from the device, either as a one-shot extract or a continuous session,
+     * or replays a recorded session.
+     *
+     * @throws Exception from the BrainFlow API.
+     */
+    private static void extractData(int boardId, BrainFlowInputParams params, SessionParams sessionParams) throws Exception {
+        if (sessionParams.getReplayFile() != null) {
+            replayData(boardId, sessionParams);
+            return;
+        }
+
+        int sampleCount = sessionParams.getSampleCount() > 0 ? sessionParams.getSampleCount() : DataExtractor.SAMPLE_COUNT;
+        dataExtractor = new DataExtractor(boardId, params, DataExtractor.BUFFER_SIZE, DataExtractor.WAIT_MILLIS, sampleCount);
+        configureDataExtractor(dataExtractor, sessionParams);
+        CaptureWriter captureWriter = sessionParams.getCaptureFile() == null ? null : new CaptureWriter(Path.of(sessionParams.getCaptureFile()), dataExtractor, sessionParams.isCompressCapture());
+        createTrackers(dataExtractor);
+        try {
+            if (sessionParams.getSessionMillis() > 0) {
+                // Capture and analyse every drained chunk, not only the samples kept for the export.
+                if (captureWriter != null) {
+                    dataExtractor.addChunkListener(captureWriter);
+                }
+                addTrackers(dataExtractor);
+                addExportPipeline(dataExtractor, sessionParams);
+                dataExtractor.extractContinuous(sessionParams.getSessionMillis());
+            } else {
+                dataExtractor.extractData();
+                if (captureWriter != null) {
+                    captureWriter.write(dataExtractor.getData());
+                }
+                bandPowerTracker.accept(dataExtractor.getData());
+                if (vitalsTracker != null) {
+                    vitalsTracker.accept(dataExtractor.getData());
+                }
+                if (epochAverager != null) {
+                    epochAverager.accept(dataExtractor.getData());
+                }
+            }
+        } finally {
+            if (captureWriter != null) {
+                captureWriter.close();
+            }
+        }
     }
 
     /**
-     * Extracts the data from the device.
+     * Extracts a continuous session from several boards at once, merged into one data extract.
+     * Every board gets the BrainFlow params from the command line, overridden by the params prefixed with its number,
+     * e.g. "--b2-serial-port", and the session runs for the default wait time, when no session length is given.
      *
+     * @param args          command line arguments, parsed again for the params of each board.
+     * @param sessionParams the session settings.
      * @throws Exception from the BrainFlow API.
      */
-    private static void extractData(int boardId, BrainFlowInputParams params) throws Exception {
-        dataExtractor = new DataExtractor(boardId, params, DataExtractor.BUFFER_SIZE, DataExtractor.WAIT_MILLIS, DataExtractor.SAMPLE_COUNT);
-        dataExtractor.extractData();
+    private static void extractMultiBoardData(String[] args, SessionParams sessionParams) throws Exception {
+        List<SessionCoordinator.Board> boards = new ArrayList<>();
+        int[] boardIds = sessionParams.getBoardIds();
+        for (int i = 0; i < boardIds.length; i++) {
+            BrainFlowInputParams params = new BrainFlowInputParams();
+            ParamParser.parseParams(ParamParser.boardArgs(args, i + 1), params, new SessionParams());
+            boards.add(new SessionCoordinator.Board(boardIds[i], params));
+        }
+
+        int sampleCount = sessionParams.getSampleCount() > 0 ? sessionParams.getSampleCount() : DataExtractor.SAMPLE_COUNT;
+        SessionCoordinator coordinator = new SessionCoordinator(boards, sampleCount);
+        dataExtractor = coordinator.getDataExtractor();
+        configureDataExtractor(dataExtractor, sessionParams);
+        createTrackers(dataExtractor);
+        addTrackers(dataExtractor);
+
+        try (CaptureWriter captureWriter = sessionParams.getCaptureFile() == null ? null : new CaptureWriter(Path.of(sessionParams.getCaptureFile()), dataExtractor, sessionParams.isCompressCapture())) {
+            if (captureWriter != null) {
+                dataExtractor.addChunkListener(captureWriter);
+            }
+            addExportPipeline(dataExtractor, sessionParams);
+            coordinator.run(sessionParams.getSessionMillis() > 0 ? sessionParams.getSessionMillis() : DataExtractor.WAIT_MILLIS);
+        }
+    }
+
+    /**
+     * Replays a recorded session, or a time range of a capture file, keeping the default sample count for the export, or all samples with --replay-all.
+     *
+     * @param boardId       the board id, used for BrainFlow files, which do not hold a board descriptor.
+     * @param sessionParams the session settings.
+     * @throws Exception from the BrainFlow API or from reading the recording.
+     */
+    private static void replayData(int boardId, SessionParams sessionParams) throws Exception {
+        String replayFile = sessionParams.getReplayFile();
+        double speed = sessionParams.getReplaySpeed();
+
+        if (replayFile.endsWith(".csv")) {
+            if (sessionParams.hasReplayRange()) {
+                logger.warn("BrainFlow files are replayed in full, the replay range only applies to capture files.");
+            }
+            BoardDescr boardDescr = BoardShim.get_board_descr(BoardDescr.class, boardId);
+            Replayer replayer = Replayer.fromBrainFlowFile(replayFile, boardDescr.sampling_rate, boardDescr.timestamp_channel);
+            dataExtractor = new DataExtractor(boardId, boardDescr, getReplaySampleCount(replayer.getSource(), sessionParams));
+            configureDataExtractor(dataExtractor, sessionParams);
+            createTrackers(dataExtractor);
+            addTrackers(dataExtractor);
+            addExportPipeline(dataExtractor, sessionParams);
+            dataExtractor.replay(replayer, speed);
+        } else {
+            try (CaptureReader reader = new CaptureReader(Path.of(replayFile))) {
+                CaptureHeader header = reader.getHeader();
+                // A replay range is located through the time index, so only its samples are read.
+                Replayer replayer = sessionParams.hasReplayRange()
+                        ? reader.replayer(sessionParams.getReplayFrom(), sessionParams.getReplayTo() > 0 ? sessionParams.getReplayTo() : Double.POSITIVE_INFINITY)
+                        : reader.replayer();
+                dataExtractor = new DataExtractor(header.boardId(), header.boardDescr(), getReplaySampleCount(replayer.getSource(), sessionParams));
+                // Keep the recorded labels, e.g. the board prefixes of a multi-board session.
+                dataExtractor.setDataLabels(header.dataLabels());
+                configureDataExtractor(dataExtractor, sessionParams);
+                createTrackers(dataExtractor);
+                addTrackers(dataExtractor);
+                addExportPipeline(dataExtractor, sessionParams);
+                dataExtractor.replay(replayer, speed);
+            }
+        }
+    }
+
+    /**
+     * Dumps the board configuration to the console, and sets the sampled dump of the acquired samples,
+     * the projection to the used channels, the storage precision and the streaming filter of the signal channels.
+     * Must be called before the trackers and chunk listeners are created, as the projection changes the channel rows.
+     *
+     * @param dataExtractor the data extractor.
+     * @param sessionParams the session settings.
+     */
+    private static void configureDataExtractor(DataExtractor dataExtractor, SessionParams sessionParams) {
+        dataExtractor.dumpDescriptor(dataExtractor.getBoardDescr());
+        dataExtractor.setDumpEvery(sessionParams.getDumpEvery());
+        if (sessionParams.isProjection()) {
+            dataExtractor.setProjection(getProjectionRows(dataExtractor));
+        }
+        dataExtractor.setPrecision(sessionParams.getPrecision());
+        if (sessionParams.getStreamFilter() != null) {
+            BiquadCascade cascade = BiquadCascade.parse(dataExtractor.getSamplingRate(), sessionParams.getStreamFilter());
+            dataExtractor.addChunkFilter(new StreamingFilter(cascade, dataExtractor.getSignalChannels(), sessionParams.isStreamFilterSettle()));
+        }
+    }
+
+    /**
+     * Returns the rows used by the charts and the analysis: the charted channels, the signal and PPG channels,
+     * and the timestamp and marker channels.
+     *
+     * @param dataExtractor the data extractor.
+     * @return the used rows.
+     */
+    private static int[] getProjectionRows(DataExtractor dataExtractor) {
+        BoardDescr boardDescr = dataExtractor.getBoardDescr();
+        ChannelIndex channelIndex = ChannelIndex.of(dataExtractor.getDataLabels());
+        IntStream charted = chartDescriptors.stream().flatMapToInt(cd -> IntStream.of(channelIndex.select(cd)));
+        IntStream ppg = boardDescr.ppg_channels == null ? IntStream.empty() : boardDescr.ppg_channels.stream().mapToInt(Integer::intValue);
+        return Stream.of(charted, ppg, IntStream.of(dataExtractor.getSignalChannels()), IntStream.of(boardDescr.timestamp_channel, boardDescr.marker_channel))
+                .flatMapToInt(rows -> rows)
+                .filter(row -> row >= 0 && row < boardDescr.num_rows)
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+    /**
+     * Creates the band power tracker for the EEG channels, the vitals tracker for the PPG channels, if any,
+     * and the epoch averager for the events of the marker channel, if any.
+     *
+     * @param dataExtractor the data extractor.
+     */
+    private static void createTrackers(DataExtractor dataExtractor) {
+        bandPowerTracker = BandPowerTracker.forBoard(dataExtractor.getBoardDescr());
+        vitalsTracker = VitalsTracker.forBoard(dataExtractor.getBoardDescr());
+        epochAverager = EpochAverager.forBoard(dataExtractor.getBoardDescr());
+    }
+
+    /**
+     * Adds the trackers as chunk listeners, to analyse every chunk of a session.
+     *
+     * @param dataExtractor the data extractor.
+     */
+    private static void addTrackers(DataExtractor dataExtractor) {
+        dataExtractor.addChunkListener(bandPowerTracker);
+        if (vitalsTracker != null) {
+            dataExtractor.addChunkListener(vitalsTracker);
+        }
+        if (epochAverager != null) {
+            dataExtractor.addChunkListener(epochAverager);
+        }
+    }
+
+    /**
+     * Adds an export pipeline as chunk listener, to export every chunk of a session while acquiring,
+     * if the session settings ask for it.
+     *
+     * @param dataExtractor the data extractor.
+     * @param sessionParams the session settings.
+     * @throws IOException from creating the Excel file.
+     */
+    private static void addExportPipeline(DataExtractor dataExtractor, SessionParams sessionParams) throws IOException {
+        if (sessionParams.isStreamExport()) {
+            exportPipeline = new ExportPipeline(getExcelFileName(), createExporter(), dataExtractor, chartDescriptors);
+            dataExtractor.addChunkListener(exportPipeline);
+        }
+    }
+
+    /**
+     * Returns the number of samples to keep from a recorded session.
+     *
+     * @param source        the recorded session.
+     * @param sessionParams the session settings.
+     * @return the sample count setting, all the samples of the session when asked for,
+     * or else the default sample count, at most the samples of the session.
+     */
+    private static int getReplaySampleCount(SampleSource source, SessionParams sessionParams) {
+        if (sessionParams.getSampleCount() > 0) {
+            return sessionParams.getSampleCount();
+        }
+        // The sample buffer is allocated up front, so only size it to a long recording when asked for.
+        long sampleCount = sessionParams.isReplayAll() ? source.getSampleCount() : Math.min(source.getSampleCount(), DataExtractor.SAMPLE_COUNT);
+        return (int) Math.max(1, Math.min(sampleCount, Integer.MAX_VALUE - 8));
     }
 
     /**
      * Configures the Excel charts to be created.
      */
     private static void configureCharts() {
+        chartDescriptors = createChartDescriptors();
+    }
+
+    /**
+     * Returns the Excel charts to be created, also used by the {@link BatchConverter}.
+     *
+     * @return the chart descriptors.
+     */
+    static List<ChartDescriptor> createChartDescriptors() {
 
         String[] titles = {"Frontal", "Central", "Occipital", "Gyro"};
-        chartDescriptors = List.of(
-                new ChartDescriptor(titles[0], List.of("(?i)^F.*$"), false, titles[0], SAMPLE_TITLE, VALUE_TITLE, MarkerStyle.DOT),
-                new ChartDescriptor(titles[1], List.of("(?i)^C.*$"), false, titles[1], SAMPLE_TITLE, VALUE_TITLE, MarkerStyle.DOT),
-                new ChartDescriptor(titles[2], List.of("(?i)^O.*$", "(?i)^PO.*$", "(?i)^Pz.*$"), false, titles[2], SAMPLE_TITLE, VALUE_TITLE, MarkerStyle.DOT),
-                new ChartDescriptor(titles[3], List.of("(?i)^Gyro.*$"), false, titles[3], SAMPLE_TITLE, VALUE_TITLE, MarkerStyle.DOT));
+        // Labels of a multi-board session are prefixed per board, e.g. "B2 Fp1", so the charts hold every board.
+        return List.of(
+                new ChartDescriptor(titles[0], List.of("(?i)^(B\\d+ )?F.*$"), false, titles[0], SAMPLE_TITLE, VALUE_TITLE, MarkerStyle.DOT),
+                new ChartDescriptor(titles[1], List.of("(?i)^(B\\d+ )?C.*$"), false, titles[1], SAMPLE_TITLE, VALUE_TITLE, MarkerStyle.DOT),
+                new ChartDescriptor(titles[2], List.of("(?i)^(B\\d+ )?O.*$", "(?i)^(B\\d+ )?PO.*$", "(?i)^(B\\d+ )?Pz.*$"), false, titles[2], SAMPLE_TITLE, VALUE_TITLE, MarkerStyle.DOT),
+                new ChartDescriptor(titles[3], List.of("(?i)^(B\\d+ )?Gyro.*$"), false, titles[3], SAMPLE_TITLE, VALUE_TITLE, MarkerStyle.DOT));
     }
 
     /**
@@ -73,9 +335,29 @@ public class BCIVisualizer {
      * @throws Exception from the Excel export.
      */
     private static void exportExcelFile() throws Exception {
-        String fileName = "BrainFlow-" + BoardIds.from_code(dataExtractor.getBoardId()) + "-" + new SimpleDateFormat("yyyyMMddHHmm'.xlsx'").format(new Date());
+        createExporter().generateExcelFile(getExcelFileName(), dataExtractor, chartDescriptors);
+    }
+
+    /**
+     * Returns the Excel file name, from the board and the current time.
+     *
+     * @return the file name.
+     */
+    private static String getExcelFileName() {
+        return "BrainFlow-" + BoardIds.from_code(dataExtractor.getBoardId()) + "-" + new SimpleDateFormat("yyyyMMddHHmm'.xlsx'").format(new Date());
+    }
+
+    /**
+     * Creates the Excel exporter, with the trackers.
+     *
+     * @return the exporter.
+     */
+    private static ExcelExporter createExporter() {
         ExcelExporter exporter = new ExcelExporter();
-        exporter.generateExcelFile(fileName, dataExtractor, chartDescriptors);
+        exporter.setBandPowerTracker(bandPowerTracker);
+        exporter.setVitalsTracker(vitalsTracker);
+        exporter.setEpochAverager(epochAverager);
+        return exporter;
     }
 
 }
@@ -0,0 +1,248 @@
+package org.example.bci.visualizer;
+
+import brainflow.BoardDescr;
+import brainflow.BoardShim;
+import brainflow.BrainFlowError;
+import brainflow.BrainFlowInputParams;
+import brainflow.DataFilter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.bci.visualizer.dsp.BandPowerTracker;
+import org.example.bci.visualizer.dsp.VitalsTracker;
+import org.example.bci.visualizer.metrics.Metrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Converts a directory of recordings, written by {@link DataFilter#write_file(double[][], String, String)},
+ * into Excel files, headless and without a board device.
+ * <p>
+ * Files are converted on a fixed pool of workers. Memory is capped by a budget, shared by the running conversions,
+ * which each reserve a share of it from their file size before reading, so a few large recordings wait for each
+ * other instead of running out of memory. Progress and throughput are logged after every file.
+ */
+public class BatchConverter {
+    private static final Logger log = LogManager.getLogger(BatchConverter.class);
+
+    // The file name extension of the recordings.
+    static final String RECORDING_EXTENSION = ".csv";
+
+    // Part of the max heap the running conversions may reserve.
+    static final double MEMORY_SHARE = 0.5;
+
+    // Memory to reserve per byte of a recording, for the samples and the workbook being written.
+    static final int MEMORY_PER_FILE_BYTE = 2;
+
+    private final int boardId;
+    private final BoardDescr boardDescr;
+    private final List<ChartDescriptor> chartDescriptors;
+    private final int workers;
+    // The memory budget, in KiB.
+    private final int memoryBudget;
+    private final Semaphore memory;
+
+    private final AtomicInteger converted = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong convertedSamples = new AtomicLong();
+    private long startNanos;
+    private int fileCount;
+
+    /**
+     * Constructor.
+     *
+     * @param boardId          the board id the recordings were made with.
+     * @param chartDescriptors the charts to create in every file.
+     * @param workers          the number of files converted at once.
+     * @throws BrainFlowError from the BrainFlow API.
+     */
+    public BatchConverter(int boardId, List<ChartDescriptor> chartDescriptors, int workers) throws BrainFlowError {
+        if (workers < 1) {
+            throw new IllegalArgumentException("At least one worker is needed, was " + workers);
+        }
+        this.boardId = boardId;
+        this.boardDescr = BoardShim.get_board_descr(BoardDescr.class, boardId);
+        this.chartDescriptors = chartDescriptors;
+        this.workers = workers;
+        this.memoryBudget = (int) Math.min(Integer.MAX_VALUE, (long) (Runtime.getRuntime().maxMemory() * MEMORY_SHARE) >> 10);
+        this.memory = new Semaphore(memoryBudget, true);
+    }
+
+    /**
+     * Main entry point.
+     * Takes --board-id, --input-dir, --output-dir (default the input dir) and --workers (default the number of processors).
+     *
+     * @param args to the main program entry point.
+     * @throws Exception from listing the input directory.
+     */
+    public static void main(String[] args) throws Exception {
+        int boardId = ParamParser.parseParams(args, new BrainFlowInputParams());
+        Path inputDir = null;
+        Path outputDir = null;
+        int workers = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i + 1 < args.length; ++i) {
+            String argValue = args[i + 1];
+            switch (args[i]) {
+                case "--input-dir" -> inputDir = Path.of(argValue);
+                case "--output-dir" -> outputDir = Path.of(argValue);
+                case "--workers" -> workers = Integer.parseInt(argValue);
+            }
+        }
+        if (inputDir == null) {
+            throw new IllegalArgumentException("Missing --input-dir");
+        }
+
+        BatchConverter converter = new BatchConverter(boardId, BCIVisualizer.createChartDescriptors(), workers);
+        int failures = converter.convertDirectory(inputDir, outputDir == null ? inputDir : outputDir);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Converts all recordings in a directory, each into an Excel file of the same name.
+     *
+     * @param inputDir  the directory of the recordings.
+     * @param outputDir the directory to write the Excel files to.
+     * @return the number of recordings that failed to convert.
+     * @throws IOException from listing the input directory.
+     * @throws InterruptedException if interrupted while waiting for the workers.
+     */
+    public int convertDirectory(Path inputDir, Path outputDir) throws IOException, InterruptedException {
+        List<Path> recordings;
+        try (Stream<Path> files = Files.list(inputDir)) {
+            recordings = files.filter(file -> file.getFileName().toString().endsWith(RECORDING_EXTENSION)).sorted().toList();
+        }
+        Files.createDirectories(outputDir);
+
+        fileCount = recordings.size();
+        startNanos = System.nanoTime();
+        log.info("Converting {} recordings from {} on {} workers, with a {} MiB memory budget.", fileCount, inputDir, workers, memoryBudget >> 10);
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Path recording : recordings) {
+                Path excelFile = outputDir.resolve(getBaseName(recording) + ".xlsx");
+                futures.add(executor.submit(() -> convertAndReport(recording, excelFile)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // Failures are reported by the task itself.
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        double seconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+        log.info("Converted {} of {} recordings in {}s, {} failed, {} samples/s.", converted.get(), fileCount,
+                "%.1f".formatted(seconds), failed.get(), "%.0f".formatted(convertedSamples.get() / seconds));
+        Metrics.logSummary();
+        return failed.get();
+    }
+
+    /**
+     * Converts one recording, within the memory budget, and reports the progress.
+     *
+     * @param recording the recording.
+     * @param excelFile the Excel file to write.
+     */
+    private void convertAndReport(Path recording, Path excelFile) {
+        try {
+            int reserved = getMemoryReservation(Files.size(recording));
+            memory.acquire(reserved);
+            try {
+                int samples = convert(recording, excelFile);
+                convertedSamples.addAndGet(samples);
+                converted.incrementAndGet();
+            } finally {
+                memory.release(reserved);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed.incrementAndGet();
+            return;
+        } catch (Exception e) {
+            log.error("Could not convert {}", recording, e);
+            failed.incrementAndGet();
+        }
+
+        int done = converted.get() + failed.get();
+        double seconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+        log.info("{}/{} recordings done ({} failed), {} files/s, {} samples/s, last {}.", done, fileCount, failed.get(),
+                "%.2f".formatted(done / seconds), "%.0f".formatted(convertedSamples.get() / seconds), recording.getFileName());
+    }
+
+    /**
+     * Converts one recording into an Excel file, with the charts, band powers and vitals of an extract.
+     *
+     * @param recording the recording.
+     * @param excelFile the Excel file to write.
+     * @return the number of samples converted.
+     * @throws Exception from reading the recording or the Excel export.
+     */
+    public int convert(Path recording, Path excelFile) throws Exception {
+        double[][] data = DataFilter.read_file(recording.toString());
+        int sampleCount = data.length == 0 ? 0 : data[0].length;
+
+        DataExtractor dataExtractor = new DataExtractor(boardId, boardDescr, Math.max(1, sampleCount));
+        dataExtractor.load(data);
+
+        ExcelExporter exporter = new ExcelExporter();
+        BandPowerTracker bandPowerTracker = BandPowerTracker.forBoard(boardDescr);
+        bandPowerTracker.accept(data);
+        exporter.setBandPowerTracker(bandPowerTracker);
+        VitalsTracker vitalsTracker = VitalsTracker.forBoard(boardDescr);
+        if (vitalsTracker != null) {
+            vitalsTracker.accept(data);
+            exporter.setVitalsTracker(vitalsTracker);
+        }
+        exporter.generateExcelFile(excelFile.toString(), dataExtractor, chartDescriptors);
+        return sampleCount;
+    }
+
+    /**
+     * Returns the memory to reserve for converting a recording, capped at the whole budget.
+     *
+     * @param fileSize the recording file size, in bytes.
+     * @return the reservation, in KiB.
+     */
+    private int getMemoryReservation(long fileSize) {
+        return (int) Math.max(1, Math.min(memoryBudget, fileSize * MEMORY_PER_FILE_BYTE >> 10));
+    }
+
+    /**
+     * Returns the file name of a recording, without the extension.
+     *
+     * @param recording the recording.
+     * @return the base name.
+     */
+    private static String getBaseName(Path recording) {
+        String fileName = recording.getFileName().toString();
+        return fileName.substring(0, fileName.length() - RECORDING_EXTENSION.length());
+    }
+
+    /**
+     * Returns the number of files converted at once.
+     *
+     * @return number of workers.
+     */
+    public int getWorkers() {
+        return workers;
+    }
+}
@@ -0,0 +1,176 @@
+package org.example.bci.visualizer;
+
+import brainflow.BoardDescr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Builds board descriptors for sessions whose rows are not the rows of one board, e.g. several boards merged into one session,
+ * or a projection keeping only some rows of a board.
+ */
+public final class BoardDescriptors {
+
+    /**
+     * No instances.
+     */
+    private BoardDescriptors() {
+    }
+
+    /**
+     * Returns a descriptor of several boards merged into one session, with the rows of each board following
+     * the rows of the boards before it.
+     * The package, timestamp, marker and battery channels are those of the first board, as a descriptor only holds one of each.
+     *
+     * @param boardDescrs the board descriptors, in row order.
+     * @return the merged descriptor.
+     */
+    public static BoardDescr merge(List<BoardDescr> boardDescrs) {
+        if (boardDescrs.isEmpty()) {
+            throw new IllegalArgumentException("At least one board descriptor is needed.");
+        }
+
+        BoardDescr first = boardDescrs.get(0);
+        BoardDescr merged = remap(first, row -> row, first.num_rows);
+        merged.name = boardDescrs.stream().map(boardDescr -> boardDescr.name).collect(Collectors.joining(" + "));
+        merged.eeg_names = boardDescrs.stream()
+                .map(boardDescr -> boardDescr.eeg_names)
+                .filter(names -> names != null && !names.isEmpty())
+                .collect(Collectors.joining(","));
+
+        int rowOffset = first.num_rows;
+        for (BoardDescr boardDescr : boardDescrs.subList(1, boardDescrs.size())) {
+            BoardDescr offset = offset(boardDescr, rowOffset);
+            merged.eeg_channels = concat(merged.eeg_channels, offset.eeg_channels);
+            merged.eog_channels = concat(merged.eog_channels, offset.eog_channels);
+            merged.exg_channels = concat(merged.exg_channels, offset.exg_channels);
+            merged.emg_channels = concat(merged.emg_channels, offset.emg_channels);
+            merged.ppg_channels = concat(merged.ppg_channels, offset.ppg_channels);
+            merged.eda_channels = concat(merged.eda_channels, offset.eda_channels);
+            merged.accel_channels = concat(merged.accel_channels, offset.accel_channels);
+            merged.gyro_channels = concat(merged.gyro_channels, offset.gyro_channels);
+            merged.temperature_channels = concat(merged.temperature_channels, offset.temperature_channels);
+            merged.resistance_channels = concat(merged.resistance_channels, offset.resistance_channels);
+            merged.rotation_channels = concat(merged.rotation_channels, offset.rotation_channels);
+            merged.other_channels = concat(merged.other_channels, offset.other_channels);
+            rowOffset += boardDescr.num_rows;
+        }
+        merged.num_rows = rowOffset;
+        return merged;
+    }
+
+    /**
+     * Returns a copy of a descriptor, with all channel (row) indices moved by an offset.
+     *
+     * @param boardDescr the board descriptor.
+     * @param rowOffset  the offset to add to every channel index.
+     * @return the moved descriptor.
+     */
+    public static BoardDescr offset(BoardDescr boardDescr, int rowOffset) {
+        return remap(boardDescr, row -> row + rowOffset, boardDescr.num_rows + rowOffset);
+    }
+
+    /**
+     * Returns a descriptor of a projection of a board, keeping only some of its rows, in their original order.
+     * Channels that are not kept are dropped from the channel lists, and the package, timestamp, marker and battery
+     * channels are -1 when not kept.
+     *
+     * @param boardDescr the board descriptor.
+     * @param rows       the rows to keep, distinct and in ascending order.
+     * @return the projected descriptor.
+     */
+    public static BoardDescr project(BoardDescr boardDescr, int[] rows) {
+        int[] rowMap = new int[boardDescr.num_rows];
+        Arrays.fill(rowMap, -1);
+        for (int i = 0; i < rows.length; i++) {
+            rowMap[rows[i]] = i;
+        }
+
+        BoardDescr projected = remap(boardDescr, row -> row < 0 || row >= rowMap.length ? -1 : rowMap[row], rows.length);
+        if (boardDescr.eeg_names != null && boardDescr.eeg_channels != null) {
+            // The EEG names follow the EEG channels, so keep the names of the kept channels.
+            String[] eegNames = boardDescr.eeg_names.split(",");
+            List<String> keptNames = new ArrayList<>();
+            for (int i = 0; i < boardDescr.eeg_channels.size() && i < eegNames.length; i++) {
+                if (rowMap[boardDescr.eeg_channels.get(i)] >= 0) {
+                    keptNames.add(eegNames[i]);
+                }
+            }
+            projected.eeg_names = String.join(",", keptNames);
+        }
+        return projected;
+    }
+
+    /**
+     * Returns a copy of a descriptor, with every channel (row) index mapped to a new index.
+     *
+     * @param boardDescr the board descriptor.
+     * @param rowMap     maps an old row index to the new one.
+     * @param numRows    the number of rows of the new descriptor.
+     * @return the mapped descriptor.
+     */
+    static BoardDescr remap(BoardDescr boardDescr, IntUnaryOperator rowMap, int numRows) {
+        BoardDescr mapped = new BoardDescr();
+        mapped.name = boardDescr.name;
+        mapped.eeg_names = boardDescr.eeg_names;
+        mapped.sampling_rate = boardDescr.sampling_rate;
+        mapped.num_rows = numRows;
+        mapped.package_num_channel = rowMap.applyAsInt(boardDescr.package_num_channel);
+        mapped.timestamp_channel = rowMap.applyAsInt(boardDescr.timestamp_channel);
+        mapped.marker_channel = rowMap.applyAsInt(boardDescr.marker_channel);
+        mapped.battery_channel = rowMap.applyAsInt(boardDescr.battery_channel);
+        mapped.eeg_channels = remap(boardDescr.eeg_channels, rowMap);
+        mapped.eog_channels = remap(boardDescr.eog_channels, rowMap);
+        mapped.exg_channels = remap(boardDescr.exg_channels, rowMap);
+        mapped.emg_channels = remap(boardDescr.emg_channels, rowMap);
+        mapped.ppg_channels = remap(boardDescr.ppg_channels, rowMap);
+        mapped.eda_channels = remap(boardDescr.eda_channels, rowMap);
+        mapped.accel_channels = remap(boardDescr.accel_channels, rowMap);
+        mapped.gyro_channels = remap(boardDescr.gyro_channels, rowMap);
+        mapped.temperature_channels = remap(boardDescr.temperature_channels, rowMap);
+        mapped.resistance_channels = remap(boardDescr.resistance_channels, rowMap);
+        mapped.rotation_channels = remap(boardDescr.rotation_channels, rowMap);
+        mapped.other_channels = remap(boardDescr.other_channels, rowMap);
+        return mapped;
+    }
+
+    /**
+     * Returns a list of channel indices, mapped to new indices. Channels mapped to a negative index are dropped.
+     *
+     * @param channels the channel indices, or null.
+     * @param rowMap   maps an old row index to the new one.
+     * @return the mapped channel indices, or null.
+     */
+    private static List<Integer> remap(List<Integer> channels, IntUnaryOperator rowMap) {
+        if (channels == null) {
+            return null;
+        }
+        List<Integer> mapped = new ArrayList<>(channels.size());
+        for (int channel : channels) {
+            int row = rowMap.applyAsInt(channel);
+            if (row >= 0) {
+                mapped.add(row);
+            }
+        }
+        return mapped;
+    }
+
+    /**
+     * Returns two lists of channel indices, one after the other.
+     *
+     * @param first  the first channel indices, or null.
+     * @param second the second channel indices, or null.
+     * @return the joined channel indices, or null when both are null.
+     */
+    private static List<Integer> concat(List<Integer> first, List<Integer> second) {
+        if (first == null || second == null) {
+            return first == null ? second : first;
+        }
+        List<Integer> joined = new ArrayList<>(first);
+        joined.addAll(second);
+        return joined;
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.bci.visualizer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Selects channels (rows) by matching their labels against patterns, e.g. the column patterns of a {@link ChartDescriptor}.
+ * <p>
+ * Patterns are compiled once, and shared by all indexes. An index is built once per set of labels, i.e. per board
+ * descriptor, and every selection is resolved once and kept, so asking again for the same patterns is a lookup.
+ * Selections are primitive channel indices. Indexes are thread safe.
+ */
+public final class ChannelIndex {
+
+    private static final Map<String, Pattern> PATTERNS = new ConcurrentHashMap<>();
+    private static final Map<List<String>, ChannelIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private final String[] labels;
+    private final Map<List<String>, int[]> selections = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param labels the label of each channel, null for an unlabeled channel.
+     */
+    private ChannelIndex(String[] labels) {
+        this.labels = labels;
+    }
+
+    /**
+     * Returns the index of a set of labels, building it on first use.
+     *
+     * @param labels the label of each channel, e.g. the data labels of a {@link DataExtractor}.
+     * @return the shared index.
+     */
+    public static ChannelIndex of(String[] labels) {
+        return of(Arrays.asList(labels));
+    }
+
+    /**
+     * Returns the index of a set of labels, building it on first use.
+     *
+     * @param labels the label of each channel.
+     * @return the shared index.
+     */
+    public static ChannelIndex of(List<String> labels) {
+        ChannelIndex index = INDEXES.get(labels);
+        if (index != null) {
+            return index;
+        }
+        String[] copy = labels.toArray(String[]::new);
+        return INDEXES.computeIfAbsent(Arrays.asList(copy), key -> new ChannelIndex(copy));
+    }
+
+    /**
+     * Returns a compiled pattern, compiling it on first use.
+     *
+     * @param pattern the regular expression.
+     * @return the shared compiled pattern.
+     */
+    static Pattern compile(String pattern) {
+        return PATTERNS.computeIfAbsent(pattern, Pattern::compile);
+    }
+
+    /**
+     * Returns the channels whose whole label matches a pattern, pattern by pattern, in channel order per pattern.
+     * A channel matched by more than one pattern is selected once per pattern.
+     *
+     * @param patterns the regular expressions to match.
+     * @return the channel (row) indices, a copy the caller may change.
+     */
+    public int[] select(List<String> patterns) {
+        return selections.computeIfAbsent(List.copyOf(patterns), this::resolve).clone();
+    }
+
+    /**
+     * Returns the channels of a chart.
+     *
+     * @param chartDescriptor the chart descriptor.
+     * @return the channel (row) indices, a copy the caller may change.
+     */
+    public int[] select(ChartDescriptor chartDescriptor) {
+        return select(chartDescriptor.columnPatterns());
+    }
+
+    /**
+     * Resolves a selection, matching every label against the patterns.
+     *
+     * @param patterns the regular expressions to match.
+     * @return the channel (row) indices.
+     */
+    private int[] resolve(List<String> patterns) {
+        int[] selected = new int[labels.length * patterns.size()];
+        int count = 0;
+        for (String pattern : patterns) {
+            Pattern compiled = compile(pattern);
+            for (int channel = 0; channel < labels.length; channel++) {
+                if (labels[channel] != null && compiled.matcher(labels[channel]).matches()) {
+                    selected[count++] = channel;
+                }
+            }
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    /**
+     * Returns the label of a channel.
+     *
+     * @param channel the channel (row) index.
+     * @return the label, or null for an unlabeled channel.
+     */
+    public String getLabel(int channel) {
+        return labels[channel];
+    }
+
+    /**
+     * Returns the number of channels.
+     *
+     * @return channel count.
+     */
+    public int size() {
+        return labels.length;
+    }
+}
@@ -0,0 +1,255 @@
+package org.example.bci.visualizer;
+
+import brainflow.AggOperations;
+import brainflow.BrainFlowError;
+
+/**
+ * Reduces chart series to a point budget, so large exports stay quick to open in Excel.
+ * <p>
+ * All series of a chart share the same category (x) positions: one per bucket of samples,
+ * so the decimated series still line up in time, within half a bucket.
+ */
+public class ChartDecimator {
+
+    /**
+     * Decimation modes.
+     */
+    public enum Mode {
+        /**
+         * Largest-Triangle-Three-Buckets, keeps the one point per bucket that best preserves the shape.
+         */
+        LTTB,
+        /**
+         * Keeps the minimum and the maximum of each bucket, in the order they occurred, preserving the envelope.
+         */
+        MIN_MAX,
+        /**
+         * Keeps the mean of each bucket, through {@link DataExtractor#downsample(double[], int, AggOperations)}.
+         */
+        MEAN
+    }
+
+    /**
+     * Decimated series of a chart.
+     *
+     * @param positions the category positions (1 based sample numbers), shared by all series.
+     * @param series    the decimated values, per series.
+     */
+    public record Decimation(double[] positions, double[][] series) {
+    }
+
+    /**
+     * Decimates a number of channels to a point budget.
+     *
+     * @param channels      the channel windows, all of the same length.
+     * @param maxPoints     the point budget per series, at least 4.
+     * @param mode          the decimation mode.
+     * @param dataExtractor the data extractor, used for the mean mode.
+     * @return the decimated series.
+     * @throws BrainFlowError from the BrainFlow API.
+     */
+    public Decimation decimate(SampleRingBuffer.Window[] channels, int maxPoints, Mode mode, DataExtractor dataExtractor) throws BrainFlowError {
+        int sampleCount = channels.length == 0 ? 0 : channels[0].length();
+        maxPoints = Math.max(4, maxPoints);
+
+        double[][] series = new double[channels.length][];
+        return switch (mode) {
+            case LTTB -> {
+                for (int i = 0; i < channels.length; i++) {
+                    series[i] = lttb(channels[i], maxPoints);
+                }
+                yield new Decimation(lttbPositions(sampleCount, maxPoints), series);
+            }
+            case MIN_MAX -> {
+                int buckets = maxPoints / 2;
+                for (int i = 0; i < channels.length; i++) {
+                    series[i] = minMax(channels[i], buckets);
+                }
+                yield new Decimation(minMaxPositions(sampleCount, buckets), series);
+            }
+            case MEAN -> {
+                int period = (sampleCount + maxPoints - 1) / maxPoints;
+                double[] copy = new double[sampleCount];
+                for (int i = 0; i < channels.length; i++) {
+                    channels[i].copyTo(copy, 0);
+                    series[i] = dataExtractor.downsample(copy, period, AggOperations.MEAN);
+                }
+                yield new Decimation(meanPositions(series.length == 0 ? 0 : series[0].length, period), series);
+            }
+        };
+    }
+
+    /**
+     * Returns the first sample index of an LTTB bucket.
+     * The first and last sample are buckets of their own, the samples in between are split into equal buckets.
+     *
+     * @param bucket      the bucket index, among the middle buckets.
+     * @param sampleCount the number of samples.
+     * @param maxPoints   the number of points.
+     * @return the first sample index.
+     */
+    private static int lttbBucketStart(int bucket, int sampleCount, int maxPoints) {
+        double every = (double) (sampleCount - 2) / (maxPoints - 2);
+        return (int) Math.floor(bucket * every) + 1;
+    }
+
+    /**
+     * Decimates a channel with Largest-Triangle-Three-Buckets.
+     *
+     * @param channel   the channel window.
+     * @param maxPoints the number of points.
+     * @return the decimated values.
+     */
+    private double[] lttb(SampleRingBuffer.Window channel, int maxPoints) {
+        int sampleCount = channel.length();
+        if (sampleCount <= maxPoints) {
+            double[] values = new double[sampleCount];
+            channel.copyTo(values, 0);
+            return values;
+        }
+
+        double[] values = new double[maxPoints];
+        values[0] = channel.get(0);
+        int a = 0;
+
+        for (int bucket = 0; bucket < maxPoints - 2; bucket++) {
+            // Average of the next bucket, the third corner of the triangle.
+            int nextStart = lttbBucketStart(bucket + 1, sampleCount, maxPoints);
+            int nextEnd = Math.min(lttbBucketStart(bucket + 2, sampleCount, maxPoints), sampleCount);
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = nextStart; j < nextEnd; j++) {
+                avgX += j;
+                avgY += channel.get(j);
+            }
+            int nextLength = Math.max(1, nextEnd - nextStart);
+            avgX /= nextLength;
+            avgY /= nextLength;
+
+            // The point of this bucket, forming the largest triangle with the previous point and the average.
+            double ay = channel.get(a);
+            double maxArea = -1;
+            int maxIndex = a;
+            int end = lttbBucketStart(bucket + 1, sampleCount, maxPoints);
+            for (int j = lttbBucketStart(bucket, sampleCount, maxPoints); j < end; j++) {
+                double area = Math.abs((a - avgX) * (channel.get(j) - ay) - (a - j) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = j;
+                }
+            }
+            values[bucket + 1] = channel.get(maxIndex);
+            a = maxIndex;
+        }
+
+        values[maxPoints - 1] = channel.get(sampleCount - 1);
+        return values;
+    }
+
+    /**
+     * Returns the LTTB category positions, the centre of each bucket.
+     *
+     * @param sampleCount the number of samples.
+     * @param maxPoints   the number of points.
+     * @return the positions.
+     */
+    private double[] lttbPositions(int sampleCount, int maxPoints) {
+        if (sampleCount <= maxPoints) {
+            return identityPositions(sampleCount);
+        }
+        double[] positions = new double[maxPoints];
+        positions[0] = 1;
+        for (int bucket = 0; bucket < maxPoints - 2; bucket++) {
+            int start = lttbBucketStart(bucket, sampleCount, maxPoints);
+            int end = lttbBucketStart(bucket + 1, sampleCount, maxPoints);
+            positions[bucket + 1] = Math.round((start + end - 1) / 2.0) + 1;
+        }
+        positions[maxPoints - 1] = sampleCount;
+        return positions;
+    }
+
+    /**
+     * Decimates a channel to the minimum and maximum of each bucket.
+     *
+     * @param channel the channel window.
+     * @param buckets the number of buckets.
+     * @return the decimated values, two per bucket.
+     */
+    private double[] minMax(SampleRingBuffer.Window channel, int buckets) {
+        int sampleCount = channel.length();
+        if (sampleCount <= buckets * 2) {
+            double[] values = new double[sampleCount];
+            channel.copyTo(values, 0);
+            return values;
+        }
+
+        double[] values = new double[buckets * 2];
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            int start = (int) ((long) bucket * sampleCount / buckets);
+            int end = (int) ((long) (bucket + 1) * sampleCount / buckets);
+            int minIndex = start;
+            int maxIndex = start;
+            for (int j = start + 1; j < end; j++) {
+                double value = channel.get(j);
+                if (value < channel.get(minIndex)) {
+                    minIndex = j;
+                } else if (value > channel.get(maxIndex)) {
+                    maxIndex = j;
+                }
+            }
+            values[bucket * 2] = channel.get(Math.min(minIndex, maxIndex));
+            values[bucket * 2 + 1] = channel.get(Math.max(minIndex, maxIndex));
+        }
+        return values;
+    }
+
+    /**
+     * Returns the min/max category positions, the start and the centre of each bucket.
+     *
+     * @param sampleCount the number of samples.
+     * @param buckets     the number of buckets.
+     * @return the positions.
+     */
+    private double[] minMaxPositions(int sampleCount, int buckets) {
+        if (sampleCount <= buckets * 2) {
+            return identityPositions(sampleCount);
+        }
+        double[] positions = new double[buckets * 2];
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            long start = (long) bucket * sampleCount / buckets;
+            long end = (long) (bucket + 1) * sampleCount / buckets;
+            positions[bucket * 2] = start + 1;
+            positions[bucket * 2 + 1] = (start + end) / 2 + 1;
+        }
+        return positions;
+    }
+
+    /**
+     * Returns the mean category positions, the centre of each bucket.
+     *
+     * @param points the number of points.
+     * @param period the number of samples per bucket.
+     * @return the positions.
+     */
+    private double[] meanPositions(int points, int period) {
+        double[] positions = new double[points];
+        for (int i = 0; i < points; i++) {
+            positions[i] = (long) i * period + (period + 1) / 2;
+        }
+        return positions;
+    }
+
+    /**
+     * Returns the positions of undecimated samples.
+     *
+     * @param sampleCount the number of samples.
+     * @return the positions.
+     */
+    private double[] identityPositions(int sampleCount) {
+        double[] positions = new double[sampleCount];
+        for (int i = 0; i < sampleCount; i++) {
+            positions[i] = i + 1;
+        }
+        return positions;
+    }
+}
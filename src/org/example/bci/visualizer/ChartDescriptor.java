@@ -8,7 +8,13 @@ import java.util.List;
  * Describes a chart to be created.
  */
 public record ChartDescriptor(String sheetTitle, List<String> columnPatterns, boolean chartType3D, String chartTitle,
-                              String xAxisTitle, String yAxisTitle, MarkerStyle markerStyle) {
+                              String xAxisTitle, String yAxisTitle, MarkerStyle markerStyle, int maxPoints,
+                              ChartDecimator.Mode decimation) {
+
+    /**
+     * Default point budget per chart series.
+     */
+    public static final int DEFAULT_MAX_POINTS = 2000;
 
     /**
      * Constructor.
@@ -20,7 +26,25 @@ public record ChartDescriptor(String sheetTitle, List<String> columnPatterns, bo
      * @param xAxisTitle     the title of the x axis.
      * @param yAxisTitle     the title of the y axis.
      * @param markerStyle    the marker style.
+     * @param maxPoints      the point budget per series, zero or less to chart every sample.
+     * @param decimation     the decimation mode, used when there are more samples than the point budget.
      */
     public ChartDescriptor {
     }
+
+    /**
+     * Constructor, with the default point budget and LTTB decimation.
+     *
+     * @param sheetTitle     the title of the sheet.
+     * @param columnPatterns the column patterns to include in the chart.
+     * @param chartType3D    whether the chart is 3D.
+     * @param chartTitle     the title of the chart.
+     * @param xAxisTitle     the title of the x axis.
+     * @param yAxisTitle     the title of the y axis.
+     * @param markerStyle    the marker style.
+     */
+    public ChartDescriptor(String sheetTitle, List<String> columnPatterns, boolean chartType3D, String chartTitle,
+                           String xAxisTitle, String yAxisTitle, MarkerStyle markerStyle) {
+        this(sheetTitle, columnPatterns, chartType3D, chartTitle, xAxisTitle, yAxisTitle, markerStyle, DEFAULT_MAX_POINTS, ChartDecimator.Mode.LTTB);
+    }
 }
@@ -3,11 +3,18 @@ package org.example.bci.visualizer;
 import brainflow.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.example.bci.visualizer.metrics.BoardMetrics;
+import org.example.bci.visualizer.metrics.Metrics;
 import org.example.bci.visualizer.properties.PropertyLoader;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Extracts data from a BCI device.
@@ -18,12 +25,19 @@ public class DataExtractor {
     final static int BUFFER_SIZE = 1000;
     final static int SAMPLE_COUNT = BUFFER_SIZE;
     final static long WAIT_MILLIS = 5000;
+    // Drain the board buffer at least this many times per buffer fill, so it never overflows.
+    final static int DRAINS_PER_BUFFER = 4;
+    final static long MIN_DRAIN_MILLIS = 10;
     private static final Logger log = LogManager.getLogger(DataExtractor.class);
 
     private Map<String, String> dataDescriptions;
     private String[] dataLabels = null;
     private double[][] data = null;
     private BoardDescr boardDescr;
+    private BoardDescr sourceBoardDescr;
+    // The source rows kept, in ascending order, or null to keep all rows.
+    private int[] projection;
+    private SampleRingBuffer.Precision precision = SampleRingBuffer.Precision.DOUBLE;
     private BrainFlowInputParams params;
     private int boardId;
 
@@ -33,6 +47,13 @@ public class DataExtractor {
     private int samplingRate;
     private double oxygenLevel;
     private double heartRate;
+    private int dumpEvery;
+    private int dumpNext;
+
+    private SampleRingBuffer sampleBuffer;
+    private final List<Consumer<double[][]>> chunkFilters = new CopyOnWriteArrayList<>();
+    private final List<Consumer<double[][]>> chunkListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean continuous = false;
 
     /**
      * Constructor for a given board device, params, buffer size, wait time and sample count.
@@ -53,7 +74,25 @@ public class DataExtractor {
         setBoardId(boardId);
         setSamplingRate(BoardShim.get_sampling_rate(boardId));
         setBoardDescr(BoardShim.get_board_descr(BoardDescr.class, boardId));
-        dumpDescriptor(boardDescr);
+        initializeDataLabels();
+    }
+
+    /**
+     * Constructor for a known board descriptor, without a board device, e.g. to replay a recorded session.
+     *
+     * @param boardId     the board id.
+     * @param boardDescr  the board descriptor.
+     * @param sampleCount number of samples to keep.
+     */
+    public DataExtractor(int boardId, BoardDescr boardDescr, int sampleCount) {
+
+        setBufferSize(BUFFER_SIZE);
+        setWaitMillis(0);
+        setSampleCount(sampleCount);
+        setParams(new BrainFlowInputParams());
+        setBoardId(boardId);
+        setSamplingRate(boardDescr.sampling_rate);
+        setBoardDescr(boardDescr);
         initializeDataLabels();
     }
 
@@ -132,7 +171,7 @@ public class DataExtractor {
     /**
      * Initializes the data labels.
      */
-    private void initializeDataLabels() {
+    void initializeDataLabels() {
         dataDescriptions = PropertyLoader.get("data-labels.properties");
         dataLabels = new String[boardDescr.num_rows];
 
@@ -166,18 +205,36 @@ public class DataExtractor {
         createDataLabels(boardDescr.eog_channels, "EOG");
         createDataLabels(boardDescr.emg_channels, "EMG");
 
-        dataLabels[boardDescr.package_num_channel] = "Package";
-        dataLabels[boardDescr.timestamp_channel] = "Timestamp";
-        dataLabels[boardDescr.marker_channel] = "Marker";
-        dataLabels[boardDescr.battery_channel] = "Battery";
+        // A projected descriptor, e.g. of a recorded projection, may not hold all of these.
+        createDataLabel(boardDescr.package_num_channel, "Package");
+        createDataLabel(boardDescr.timestamp_channel, "Timestamp");
+        createDataLabel(boardDescr.marker_channel, "Marker");
+        createDataLabel(boardDescr.battery_channel, "Battery");
+    }
+
+    /**
+     * Creates the data label of a channel, if the board has the channel.
+     *
+     * @param channel the channel (row), or -1 if the board does not have it.
+     * @param label   the label.
+     */
+    private void createDataLabel(int channel, String label) {
+        if (channel >= 0 && channel < dataLabels.length) {
+            dataLabels[channel] = label;
+        }
     }
 
     /**
      * Returns the data.
+     * Data held as floats, see {@link #setPrecision(SampleRingBuffer.Precision)}, is widened to doubles on the first call.
      *
      * @return data.
      */
     public double[][] getData() {
+        if (data == null && sampleBuffer != null && sampleBuffer.getPrecision() == SampleRingBuffer.Precision.FLOAT) {
+            data = sampleBuffer.snapshot();
+            sampleBuffer = SampleRingBuffer.wrap(data);
+        }
         return data;
     }
 
@@ -199,6 +256,15 @@ public class DataExtractor {
         return dataLabels;
     }
 
+    /**
+     * Sets the data labels, e.g. prefixed per board when several boards are merged into one session.
+     *
+     * @param dataLabels one label per channel (row).
+     */
+    public void setDataLabels(String[] dataLabels) {
+        this.dataLabels = dataLabels;
+    }
+
     /**
      * Returns the board descriptors.
      *
@@ -217,6 +283,90 @@ public class DataExtractor {
         this.boardDescr = boardDescr;
     }
 
+    /**
+     * Returns the board descriptors of the acquired rows, which differ from {@link #getBoardDescr()} when projected.
+     *
+     * @return source board descriptors.
+     */
+    public BoardDescr getSourceBoardDescr() {
+        return sourceBoardDescr != null ? sourceBoardDescr : boardDescr;
+    }
+
+    /**
+     * Keeps only some rows of every acquired sample, e.g. the channels used by the charts and the analysis,
+     * so the other rows take no memory, and are not passed on to the chunk filters and listeners.
+     * Must be set before the chunk filters and listeners are created, as the board descriptors and data labels are
+     * projected too, so row indices are projected rows from then on.
+     *
+     * @param rows the source rows to keep.
+     * @throws IllegalStateException if already projected.
+     */
+    public void setProjection(int[] rows) {
+        if (projection != null) {
+            throw new IllegalStateException("Already projected to rows " + Arrays.toString(projection));
+        }
+        int[] sorted = Arrays.stream(rows).distinct().sorted().toArray();
+        if (sorted.length == 0 || sorted[0] < 0 || sorted[sorted.length - 1] >= boardDescr.num_rows) {
+            throw new IllegalArgumentException("Rows " + Arrays.toString(rows) + " are not within the " + boardDescr.num_rows + " rows of " + boardDescr.name);
+        }
+
+        String[] projectedLabels = new String[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            projectedLabels[i] = dataLabels[sorted[i]];
+        }
+        sourceBoardDescr = boardDescr;
+        projection = sorted;
+        setBoardDescr(BoardDescriptors.project(sourceBoardDescr, sorted));
+        setDataLabels(projectedLabels);
+        log.info("Keeping {} of {} rows: {}", sorted.length, sourceBoardDescr.num_rows, Arrays.toString(sorted));
+    }
+
+    /**
+     * Returns the source rows kept of every acquired sample.
+     *
+     * @return the kept rows, in ascending order, or null if all rows are kept.
+     */
+    public int[] getProjection() {
+        return projection == null ? null : projection.clone();
+    }
+
+    /**
+     * Returns a projection of a chunk, sharing the kept rows with it.
+     *
+     * @param chunk samples as [source channel][sample].
+     * @return samples as [channel][sample].
+     */
+    private double[][] project(double[][] chunk) {
+        if (projection == null) {
+            return chunk;
+        }
+        double[][] projected = new double[projection.length][];
+        for (int i = 0; i < projection.length; i++) {
+            projected[i] = chunk[projection[i]];
+        }
+        return projected;
+    }
+
+    /**
+     * Returns the storage precision of the samples held by continuous extracts and replays.
+     *
+     * @return the precision.
+     */
+    public SampleRingBuffer.Precision getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Sets the storage precision of the samples held by continuous extracts and replays, e.g. floats to halve
+     * their memory. The timestamp channel is always held as doubles, and held floats are widened to doubles,
+     * when the data is asked for.
+     *
+     * @param precision the precision.
+     */
+    public void setPrecision(SampleRingBuffer.Precision precision) {
+        this.precision = precision;
+    }
+
     /**
      * Returns the params.
      *
@@ -271,6 +421,7 @@ public class DataExtractor {
      */
     public void extractData() throws Exception {
         BoardShim.enable_board_logger();
+        long start = System.nanoTime();
 
         BoardShim board_shim = new BoardShim(boardId, getParams());
         board_shim.prepare_session();
@@ -280,34 +431,303 @@ public class DataExtractor {
         Thread.sleep(getWaitMillis());
         board_shim.stop_stream();
 
-        System.out.println(board_shim.get_board_data_count());
-        int num_rows = BoardShim.get_num_rows(boardId);
-        data = board_shim.get_current_board_data(getSampleCount());
+        BoardMetrics boardMetrics = getBoardMetrics();
+        boardMetrics.recordBufferFill(board_shim.get_board_data_count(), getBufferSize());
+        double[][] boardData = board_shim.get_current_board_data(getSampleCount());
+        boardMetrics.recordChunk(boardData, getSourceBoardDescr().package_num_channel);
+        data = project(boardData);
+        filterChunk(data);
+        sampleBuffer = SampleRingBuffer.wrap(data);
+        dumpSamples(data);
 
-        for (int i = 0; i < num_rows; ++i) {
-            System.out.println(Arrays.toString(data[i]));
+        board_shim.release_session();
+        Metrics.stage(Metrics.ACQUIRE).record(System.nanoTime() - start);
+
+        extractPPGValues();
+    }
+
+    /**
+     * Loads a recorded extract, e.g. read by {@link DataFilter#read_file(String)}, as the data, without a board device.
+     * The data is used as is, without copying.
+     *
+     * @param data samples as [channel][sample], with as many rows as the source board descriptor.
+     * @throws BrainFlowError from the BrainFlow API.
+     */
+    public void load(double[][] data) throws BrainFlowError {
+        BoardDescr source = getSourceBoardDescr();
+        if (data.length != source.num_rows) {
+            throw new IllegalArgumentException("Expected " + source.num_rows + " rows for " + source.name + ", was " + data.length);
         }
+        this.data = project(data);
+        sampleBuffer = SampleRingBuffer.wrap(this.data);
+        extractPPGValues();
+    }
 
-        board_shim.release_session();
+    /**
+     * Extracts data continuously, draining the board buffer on a fixed schedule, until the session time has passed
+     * or {@link #stopContinuous()} is called.
+     * The most recent samples, up to the sample count, are kept in the sample buffer and every drained chunk is
+     * passed on to the chunk listeners, so memory stays flat for sessions of any length.
+     *
+     * @param sessionMillis session length in millis, zero or less to run until stopped.
+     * @throws Exception from the BrainFlow API.
+     */
+    public void extractContinuous(long sessionMillis) throws Exception {
+        BoardShim.enable_board_logger();
+        long start = System.nanoTime();
+
+        BoardShim board_shim = new BoardShim(boardId, getParams());
+        board_shim.prepare_session();
+
+        long drainNanos = TimeUnit.MILLISECONDS.toNanos(getDrainMillis());
+        long deadline = sessionMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sessionMillis) : Long.MAX_VALUE;
+
+        beginSession();
+        try {
+            board_shim.start_stream(getBufferSize());
+            BoardShim.log_message(LogLevels.LEVEL_INFO, "Draining data every %sms...".formatted(getDrainMillis()));
+
+            long nextDrain = System.nanoTime();
+            while (continuous && System.nanoTime() < deadline) {
+                nextDrain += drainNanos;
+                drain(board_shim);
+                TimeUnit.NANOSECONDS.sleep(Math.min(nextDrain, deadline) - System.nanoTime());
+            }
+
+            board_shim.stop_stream();
+            // Pick up whatever arrived after the last scheduled drain.
+            drain(board_shim);
+        } finally {
+            continuous = false;
+            board_shim.release_session();
+            Metrics.stage(Metrics.ACQUIRE).record(System.nanoTime() - start);
+        }
+
+        endSession();
+    }
+
+    /**
+     * Replays a recorded session, through the same sample buffer and chunk listeners as a continuous extract,
+     * until the recording ends or {@link #stopContinuous()} is called.
+     *
+     * @param replayer the replayer of the recorded session.
+     * @param speed    the replay speed, 1 for real time, zero or less for as fast as possible.
+     * @throws Exception from reading the recording.
+     */
+    public void replay(Replayer replayer, double speed) throws Exception {
+        acquire((sink, running) -> replayer.replay(sink, speed, running));
+    }
+
+    /**
+     * Acquires a session from a feed, e.g. several boards merged into one session, through the same sample buffer
+     * and chunk listeners as a continuous extract, until the feed ends or {@link #stopContinuous()} is called.
+     *
+     * @param feed the feed of the session chunks, with as many rows as the source board descriptor.
+     * @throws Exception from the feed.
+     */
+    public void acquire(SessionFeed feed) throws Exception {
+        long start = System.nanoTime();
+        beginSession();
+        try {
+            feed.feed(this::acceptChunk, this::isContinuous);
+        } finally {
+            continuous = false;
+            Metrics.stage(Metrics.ACQUIRE).record(System.nanoTime() - start);
+        }
+
+        endSession();
+    }
+
+    /**
+     * Begins a session, with an empty sample buffer.
+     */
+    private void beginSession() {
+        sampleBuffer = new SampleRingBuffer(boardDescr.num_rows, getSampleCount(), precision, boardDescr.timestamp_channel);
+        continuous = true;
+    }
+
+    /**
+     * Accepts a chunk of samples, projected, through the chunk filters, into the sample buffer and on to the chunk listeners.
+     * Must only be called from the single thread feeding the session.
+     *
+     * @param sourceChunk samples as [source channel][sample].
+     */
+    private void acceptChunk(double[][] sourceChunk) {
+        double[][] chunk = project(sourceChunk);
+        filterChunk(chunk);
+        dumpSamples(chunk);
+        sampleBuffer.write(chunk);
+        for (Consumer<double[][]> listener : chunkListeners) {
+            listener.accept(chunk);
+        }
+    }
+
+    /**
+     * Passes a chunk of samples through the chunk filters, in place.
+     *
+     * @param chunk samples as [channel][sample].
+     */
+    private void filterChunk(double[][] chunk) {
+        if (!chunkFilters.isEmpty()) {
+            long start = System.nanoTime();
+            for (Consumer<double[][]> filter : chunkFilters) {
+                filter.accept(chunk);
+            }
+            Metrics.stage(Metrics.FILTER).record(System.nanoTime() - start);
+        }
+    }
 
+    /**
+     * Ends a session, making the held samples available as the data.
+     *
+     * @throws BrainFlowError from the BrainFlow API.
+     */
+    private void endSession() throws BrainFlowError {
+        if (sampleBuffer.getPrecision() == SampleRingBuffer.Precision.DOUBLE) {
+            // Compact the buffer, so the data and the buffer share the same columns.
+            data = sampleBuffer.snapshot();
+            sampleBuffer = SampleRingBuffer.wrap(data);
+        } else {
+            // Keep the floats, until the data is asked for.
+            data = null;
+        }
         extractPPGValues();
     }
 
+    /**
+     * Stops a running continuous extract or replay, after its next chunk.
+     */
+    public void stopContinuous() {
+        continuous = false;
+    }
+
+    /**
+     * Returns whether a continuous extract or replay is running.
+     *
+     * @return true if running.
+     */
+    public boolean isContinuous() {
+        return continuous;
+    }
+
+    /**
+     * Drains all samples currently in the board buffer.
+     *
+     * @param board_shim the board to drain.
+     * @throws BrainFlowError from the BrainFlow API.
+     */
+    private void drain(BoardShim board_shim) throws BrainFlowError {
+        BoardMetrics boardMetrics = getBoardMetrics();
+        int count = board_shim.get_board_data_count();
+        boardMetrics.recordBufferFill(count, getBufferSize());
+        if (count == 0) {
+            return;
+        }
+
+        double[][] chunk = board_shim.get_board_data();
+        if (chunk[0].length >= getBufferSize()) {
+            log.warn("Board buffer was full when drained, samples might have been dropped. Try a larger buffer size.");
+        }
+        boardMetrics.recordChunk(chunk, getSourceBoardDescr().package_num_channel);
+
+        acceptChunk(chunk);
+    }
+
+    /**
+     * Returns the drain interval, derived from the buffer size and sampling rate.
+     *
+     * @return drain interval in millis.
+     */
+    public long getDrainMillis() {
+        return Math.max(MIN_DRAIN_MILLIS, getBufferSize() * 1000L / Math.max(1, getSamplingRate()) / DRAINS_PER_BUFFER);
+    }
+
+    /**
+     * Adds a filter, changing every chunk in place before it is held in the sample buffer, and the data of a
+     * one-shot extract as a single chunk, e.g. a
+     * {@link org.example.bci.visualizer.dsp.StreamingFilter}. Filters are called in the order they were added,
+     * on the draining thread.
+     *
+     * @param filter the chunk filter, receiving samples as [channel][sample].
+     */
+    public void addChunkFilter(Consumer<double[][]> filter) {
+        chunkFilters.add(filter);
+    }
+
+    /**
+     * Removes a chunk filter.
+     *
+     * @param filter the chunk filter.
+     */
+    public void removeChunkFilter(Consumer<double[][]> filter) {
+        chunkFilters.remove(filter);
+    }
+
+    /**
+     * Adds a listener, receiving every chunk drained during a continuous extract.
+     * Listeners are called on the draining thread, so they should hand off any slow work.
+     *
+     * @param listener the chunk listener, receiving samples as [channel][sample].
+     */
+    public void addChunkListener(Consumer<double[][]> listener) {
+        chunkListeners.add(listener);
+    }
+
+    /**
+     * Removes a chunk listener.
+     *
+     * @param listener the chunk listener.
+     */
+    public void removeChunkListener(Consumer<double[][]> listener) {
+        chunkListeners.remove(listener);
+    }
+
+    /**
+     * Returns the sample buffer.
+     * While a continuous extract runs, it holds the most recent samples, and can be read from any thread.
+     * After an extract, it wraps the same columns as {@link #getData()}, or holds the floats the data is widened from.
+     *
+     * @return the sample buffer, or null before any extract.
+     */
+    public SampleRingBuffer getSampleBuffer() {
+        return sampleBuffer;
+    }
+
     /**
      * Extracts different PPG values.
      *
      * @throws BrainFlowError from the BrainFlow API.
      */
     private void extractPPGValues() throws BrainFlowError {
-        int[] ppgChannels = BoardShim.get_ppg_channels(boardId);
-        double[] ppgIr = data[ppgChannels[1]];
-        double[] ppgRed = data[ppgChannels[0]];
+        List<Integer> ppgChannels = boardDescr.ppg_channels;
+        if (ppgChannels == null || ppgChannels.size() < 2) {
+            return;
+        }
+        double[] ppgIr = getChannel(ppgChannels.get(1));
+        double[] ppgRed = getChannel(ppgChannels.get(0));
 
         extractOxygenLevel(ppgIr, ppgRed, samplingRate);
-        extractHeartRate(ppgIr, ppgRed, samplingRate, BUFFER_SIZE);
+        // The FFT size must be a power of two, and fit in the data.
+        extractHeartRate(ppgIr, ppgRed, samplingRate, Integer.highestOneBit(Math.max(1, ppgIr.length)));
+
+        log.info("Oxygen level: {}", getOxygenLevel());
+        log.info("Heart rate: {}", getHeartRate());
+    }
 
-        System.out.println("Oxygen level: " + getOxygenLevel());
-        System.out.println("Heart rate: " + getHeartRate());
+    /**
+     * Returns the held samples of a channel, without widening all held floats.
+     *
+     * @param channel the channel (row).
+     * @return the samples, shared with the data, if held as doubles.
+     */
+    private double[] getChannel(int channel) {
+        if (data != null) {
+            return data[channel];
+        }
+        SampleRingBuffer.Window window = sampleBuffer.latest(channel, sampleBuffer.getCapacity());
+        double[] samples = new double[window.length()];
+        window.copyTo(samples, 0);
+        return samples;
     }
 
     /**
@@ -322,8 +742,8 @@ public class DataExtractor {
         try {
             oxygenLevel = DataFilter.get_oxygen_level(ppgIr, ppgRed, samplingRate);
         } catch (BrainFlowError e) {
-            if (BUFFER_SIZE < 1024) {
-                log.error("Buffer size is less than 1024, oxygen level might be inaccurate. Try setting buffer size to 1024.");
+            if (ppgIr.length < 1024) {
+                log.error("Less than 1024 PPG samples, oxygen level might be inaccurate. Try extracting at least 1024 samples.");
             } else {
                 log.error("e: ", e);
             }
@@ -344,8 +764,8 @@ public class DataExtractor {
         try {
             heartRate = DataFilter.get_heart_rate(ppgIr, ppgRed, samplingRate, fftSize);
         } catch (BrainFlowError e) {
-            if (BUFFER_SIZE < 1024) {
-                log.error("Buffer size is less than 1024, heart rate might be inaccurate. Try setting buffer size to 1024.");
+            if (fftSize < 1024) {
+                log.error("FFT size is less than 1024, heart rate might be inaccurate. Try extracting at least 1024 samples.");
             } else {
                 log.error("e: ", e);
             }
@@ -427,6 +847,31 @@ public class DataExtractor {
         DataFilter.remove_environmental_noise(dataChannel, samplingRate, noiseType);
     }
 
+    /**
+     * Detrend signal filter.
+     *
+     * @param dataChannel data channel to filter.
+     * @param operation   the detrend operation.
+     * @throws BrainFlowError from the BrainFlow API.
+     */
+    public void filterDetrend(double[] dataChannel, DetrendOperations operation) throws BrainFlowError {
+        DataFilter.detrend(dataChannel, operation);
+    }
+
+    /**
+     * Returns the EEG and EXG channels, without duplicates, in channel order.
+     *
+     * @return channel (row) indices.
+     */
+    public int[] getSignalChannels() {
+        return Stream.of(boardDescr.eeg_channels, boardDescr.exg_channels)
+                .filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .mapToInt(Integer::intValue)
+                .distinct()
+                .sorted()
+                .toArray();
+    }
 
     /**
      * Downsamples data for a given period and operation.
@@ -468,35 +913,88 @@ public class DataExtractor {
     }
 
     /**
-     * Dumps board descriptors.
+     * Logs the board descriptors, at info level.
      *
      * @param boardDescr the board descriptors.
      */
     public void dumpDescriptor(BoardDescr boardDescr) {
 
-        System.out.println("Name: " + boardDescr.name);
-        System.out.println("Sampling rate: " + boardDescr.sampling_rate);
-        System.out.println("Num rows: " + boardDescr.num_rows);
-        System.out.println("EEG names: " + boardDescr.eeg_names);
-
-        System.out.println("EEG channels: " + dumpChannels(boardDescr.eeg_channels));
-        System.out.println("ACCEL channels: " + dumpChannels(boardDescr.accel_channels));
-        System.out.println("EDA channels: " + dumpChannels(boardDescr.eda_channels));
-        System.out.println("EOG channels: " + dumpChannels(boardDescr.eog_channels));
-        System.out.println("EMG channels: " + dumpChannels(boardDescr.emg_channels));
-        System.out.println("EXG channels: " + dumpChannels(boardDescr.exg_channels));
-        System.out.println("Gyro channels: " + dumpChannels(boardDescr.gyro_channels));
-        System.out.println("PGG channels: " + dumpChannels(boardDescr.ppg_channels));
-        System.out.println("Temperature channels: " + dumpChannels(boardDescr.temperature_channels));
-        System.out.println("Resistance channels: " + dumpChannels(boardDescr.resistance_channels));
-        System.out.println("Rotation channels: " + dumpChannels(boardDescr.rotation_channels));
-        System.out.println("Other channels: " + dumpChannels(boardDescr.other_channels));
-
-        System.out.println("Battery channel: " + boardDescr.battery_channel);
-        System.out.println("Marker channel: " + boardDescr.marker_channel);
-        System.out.println("Timestamp channel: " + boardDescr.timestamp_channel);
-        System.out.println("Package num channel: " + boardDescr.package_num_channel);
+        String nl = System.lineSeparator();
+        String dump = "Board descriptor:" + nl +
+                "Name: " + boardDescr.name + nl +
+                "Sampling rate: " + boardDescr.sampling_rate + nl +
+                "Num rows: " + boardDescr.num_rows + nl +
+                "EEG names: " + boardDescr.eeg_names + nl +
+                "EEG channels: " + dumpChannels(boardDescr.eeg_channels) + nl +
+                "ACCEL channels: " + dumpChannels(boardDescr.accel_channels) + nl +
+                "EDA channels: " + dumpChannels(boardDescr.eda_channels) + nl +
+                "EOG channels: " + dumpChannels(boardDescr.eog_channels) + nl +
+                "EMG channels: " + dumpChannels(boardDescr.emg_channels) + nl +
+                "EXG channels: " + dumpChannels(boardDescr.exg_channels) + nl +
+                "Gyro channels: " + dumpChannels(boardDescr.gyro_channels) + nl +
+                "PGG channels: " + dumpChannels(boardDescr.ppg_channels) + nl +
+                "Temperature channels: " + dumpChannels(boardDescr.temperature_channels) + nl +
+                "Resistance channels: " + dumpChannels(boardDescr.resistance_channels) + nl +
+                "Rotation channels: " + dumpChannels(boardDescr.rotation_channels) + nl +
+                "Other channels: " + dumpChannels(boardDescr.other_channels) + nl +
+                "Battery channel: " + boardDescr.battery_channel + nl +
+                "Marker channel: " + boardDescr.marker_channel + nl +
+                "Timestamp channel: " + boardDescr.timestamp_channel + nl +
+                "Package num channel: " + boardDescr.package_num_channel;
+        log.info(dump);
+    }
+
+    /**
+     * Dumps every n-th sample to the console, one line per sample, if the sample dump is enabled.
+     * Must only be called from the single thread feeding the data.
+     *
+     * @param chunk samples as [channel][sample].
+     */
+    private void dumpSamples(double[][] chunk) {
+        int every = dumpEvery;
+        if (every <= 0 || chunk.length == 0) {
+            return;
+        }
+        StringBuilder dump = new StringBuilder();
+        double[] sample = new double[chunk.length];
+        int column = Math.min(dumpNext, every - 1);
+        for (; column < chunk[0].length; column += every) {
+            for (int row = 0; row < chunk.length; row++) {
+                sample[row] = chunk[row][column];
+            }
+            dump.append(Arrays.toString(sample)).append(System.lineSeparator());
+        }
+        // Carry the interval over to the next chunk.
+        dumpNext = column - chunk[0].length;
+        System.out.print(dump);
+    }
+
+    /**
+     * Returns the sample dump interval.
+     *
+     * @return every how many samples one is dumped to the console, zero or less for no dump.
+     */
+    public int getDumpEvery() {
+        return dumpEvery;
+    }
 
+    /**
+     * Sets the sample dump interval. The dump is off by default, as printing every sample slows down acquisition.
+     *
+     * @param dumpEvery every how many samples one is dumped to the console, e.g. 250 for one per second at 250 Hz,
+     *                  zero or less for no dump.
+     */
+    public void setDumpEvery(int dumpEvery) {
+        this.dumpEvery = dumpEvery;
+    }
+
+    /**
+     * Returns the acquisition metrics of the board, shared by all extractors of the same board.
+     *
+     * @return the board metrics.
+     */
+    public BoardMetrics getBoardMetrics() {
+        return Metrics.board(boardDescr.name);
     }
 
     /**
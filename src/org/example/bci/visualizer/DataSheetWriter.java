@@ -0,0 +1,342 @@
+package org.example.bci.visualizer;
+
+import org.apache.poi.ss.util.CellReference;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the worksheet XML of a data sheet straight to a stream, without creating any POI rows or cells.
+ * <p>
+ * Numbers are formatted into a reusable byte buffer, as fixed point numbers with the fewest decimals that parse back
+ * to the same double, so writing a cell allocates nothing, and no precision is lost.
+ * Usage: {@link #start(String[])}, then {@link #startRow(long)}, {@link #writeCell(double)}... {@link #endRow()}
+ * for each sample, and finally {@link #finish()}.
+ */
+public class DataSheetWriter {
+
+    // Values from this on, or needing more digits than a double holds exactly, fall back to Double.toString.
+    private static final double MAX_FIXED = 1e12;
+    private static final double MAX_EXACT = 1L << 53;
+    private static final long[] POWERS_OF_TEN = new long[18];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final byte[] SHEET_START = ("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SHEET_END = "</sheetData></worksheet>".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ROW_START = "<row r=\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ROW_END = "</row>".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] CELL_START = "<c r=\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] VALUE_START = "\"><v>".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] VALUE_END = "</v></c>".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] INLINE_START = "\" t=\"inlineStr\"><is><t>".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] INLINE_END = "</t></is></c>".getBytes(StandardCharsets.UTF_8);
+
+    private final OutputStream out;
+    private final byte[][] columnNames;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final byte[] digits = new byte[20];
+    private int position = 0;
+    private long rowNumber = 0;
+    private int columnIndex = 0;
+
+    /**
+     * Constructor for a given stream and number of columns.
+     *
+     * @param out         the stream to write the worksheet XML to, which is not closed.
+     * @param columnCount the number of columns, including the period column.
+     */
+    public DataSheetWriter(OutputStream out, int columnCount) {
+        this.out = out;
+        this.columnNames = new byte[columnCount][];
+        for (int i = 0; i < columnCount; i++) {
+            columnNames[i] = CellReference.convertNumToColString(i).getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * Starts the sheet, with a header row.
+     *
+     * @param dataLabels the data labels to use as headers, after the "Period" header.
+     * @throws IOException from the stream.
+     */
+    public void start(String[] dataLabels) throws IOException {
+        write(SHEET_START);
+        rowNumber = 1;
+        columnIndex = 0;
+        writeRowStart();
+        writeTextCell("Period");
+        for (String label : dataLabels) {
+            writeTextCell(label == null ? "" : label);
+        }
+        write(ROW_END);
+    }
+
+    /**
+     * Starts a new data row, with its period cell.
+     *
+     * @param period the period (sample number).
+     * @throws IOException from the stream.
+     */
+    public void startRow(long period) throws IOException {
+        rowNumber++;
+        columnIndex = 0;
+        writeRowStart();
+        writeCell(period);
+    }
+
+    /**
+     * Writes the next cell of the current row. NaN and infinite values are left as empty cells.
+     *
+     * @param value the cell value.
+     * @throws IOException from the stream.
+     */
+    public void writeCell(double value) throws IOException {
+        if (Double.isFinite(value)) {
+            writeCellStart();
+            write(VALUE_START);
+            writeNumber(value);
+            write(VALUE_END);
+        }
+        columnIndex++;
+    }
+
+    /**
+     * Ends the current row.
+     *
+     * @throws IOException from the stream.
+     */
+    public void endRow() throws IOException {
+        write(ROW_END);
+    }
+
+    /**
+     * Ends the sheet and flushes the buffer to the stream.
+     *
+     * @throws IOException from the stream.
+     */
+    public void finish() throws IOException {
+        write(SHEET_END);
+        flush();
+    }
+
+    /**
+     * Returns the number of rows written, including the header row.
+     *
+     * @return number of rows.
+     */
+    public long getRowCount() {
+        return rowNumber;
+    }
+
+    /**
+     * Writes the start of a row tag.
+     *
+     * @throws IOException from the stream.
+     */
+    private void writeRowStart() throws IOException {
+        write(ROW_START);
+        writeLong(rowNumber);
+        writeByte('"');
+        writeByte('>');
+    }
+
+    /**
+     * Writes the start of a cell tag, up to and including its reference.
+     *
+     * @throws IOException from the stream.
+     */
+    private void writeCellStart() throws IOException {
+        write(CELL_START);
+        write(columnNames[columnIndex]);
+        writeLong(rowNumber);
+    }
+
+    /**
+     * Writes the next cell of the current row, as an inline string.
+     *
+     * @param text the cell text.
+     * @throws IOException from the stream.
+     */
+    private void writeTextCell(String text) throws IOException {
+        writeCellStart();
+        write(INLINE_START);
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (char c : text.toCharArray()) {
+            switch (c) {
+                case '<' -> escaped.append("&lt;");
+                case '>' -> escaped.append("&gt;");
+                case '&' -> escaped.append("&amp;");
+                default -> escaped.append(c);
+            }
+        }
+        write(escaped.toString().getBytes(StandardCharsets.UTF_8));
+        write(INLINE_END);
+        columnIndex++;
+    }
+
+    /**
+     * Writes a number, as an integer when it has no decimals, as a fixed point number with the fewest decimals that
+     * parse back to the same double otherwise, or with Double.toString when that takes more digits than a long holds.
+     *
+     * @param value the finite value.
+     * @throws IOException from the stream.
+     */
+    private void writeNumber(double value) throws IOException {
+        double abs = Math.abs(value);
+        int decimals = abs < MAX_FIXED && value == Math.rint(value) ? 0 : decimals(abs);
+        if (decimals == 0) {
+            writeLong((long) value);
+        } else if (decimals > 0) {
+            long scale = POWERS_OF_TEN[decimals];
+            long scaled = Math.round(abs * scale);
+            if (value < 0) {
+                writeByte('-');
+            }
+            writeLong(scaled / scale);
+
+            long fraction = scaled % scale;
+            if (fraction != 0) {
+                while (fraction % 10 == 0) {
+                    fraction /= 10;
+                    decimals--;
+                }
+                writeByte('.');
+                writePadded(fraction, decimals);
+            }
+        } else {
+            // Only for very large or small values, so the allocation does not matter.
+            write(Double.toString(value).getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * Returns the fewest decimals of a fixed point number that parses back to a value, with a binary search,
+     * as a value that round trips with some decimals also does with more.
+     *
+     * @param abs the absolute, finite value, not an integer.
+     * @return the decimals, or -1 if the digits would not fit a double exactly.
+     */
+    private static int decimals(double abs) {
+        if (!(abs < MAX_FIXED)) {
+            return -1;
+        }
+        int high = (int) Math.min(POWERS_OF_TEN.length - 1, Math.floor(Math.log10(MAX_EXACT / abs)));
+        while (high > 0 && !(abs * POWERS_OF_TEN[high] < MAX_EXACT)) {
+            high--;
+        }
+        if (high < 1 || !roundTrips(abs, high)) {
+            return -1;
+        }
+        int low = 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (roundTrips(abs, middle)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Returns whether a value, rounded to some decimals, parses back to the same double.
+     * The scaled digits and the scale are exact doubles, so their quotient is the double the digits parse to.
+     *
+     * @param abs      the absolute value.
+     * @param decimals the number of decimals.
+     * @return true if the rounded value is the same double.
+     */
+    private static boolean roundTrips(double abs, int decimals) {
+        long scale = POWERS_OF_TEN[decimals];
+        return Math.round(abs * scale) / (double) scale == abs;
+    }
+
+    /**
+     * Writes a long in decimal.
+     *
+     * @param value the value.
+     * @throws IOException from the stream.
+     */
+    private void writeLong(long value) throws IOException {
+        if (value < 0) {
+            writeByte('-');
+            value = -value;
+        }
+        writePadded(value, 1);
+    }
+
+    /**
+     * Writes a non-negative long in decimal, left padded with zeros.
+     *
+     * @param value the value.
+     * @param width the minimum number of digits.
+     * @throws IOException from the stream.
+     */
+    private void writePadded(long value, int width) throws IOException {
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (count < width) {
+            digits[count++] = '0';
+        }
+        if (position + count > buffer.length) {
+            flush();
+        }
+        while (count > 0) {
+            buffer[position++] = digits[--count];
+        }
+    }
+
+    /**
+     * Writes a single byte.
+     *
+     * @param b the byte.
+     * @throws IOException from the stream.
+     */
+    private void writeByte(int b) throws IOException {
+        if (position == buffer.length) {
+            flush();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    /**
+     * Writes bytes.
+     *
+     * @param bytes the bytes.
+     * @throws IOException from the stream.
+     */
+    private void write(byte[] bytes) throws IOException {
+        if (position + bytes.length > buffer.length) {
+            flush();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /**
+     * Flushes the buffer to the stream.
+     *
+     * @throws IOException from the stream.
+     */
+    private void flush() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+}
@@ -1,22 +1,108 @@
 package org.example.bci.visualizer;
 
+import brainflow.BrainFlowError;
+import org.example.bci.visualizer.dsp.BandPowerTracker;
+import org.example.bci.visualizer.dsp.EpochAverager;
+import org.example.bci.visualizer.dsp.VitalsTracker;
+import org.example.bci.visualizer.metrics.Metrics;
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.ss.util.CellReference;
 import org.apache.poi.xddf.usermodel.chart.*;
+import org.apache.poi.xssf.streaming.SXSSFRow;
 import org.apache.poi.xssf.streaming.SXSSFSheet;
-import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.*;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Enumeration;
 import java.util.List;
 import java.util.stream.IntStream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 /**
  * Export data and charts to an Excel file.
  */
 public final class ExcelExporter {
+
+    static final String DATA_SHEET_TITLE = "Data";
+    static final String CHART_DATA_SHEET_TITLE = "Chart Data";
+    static final String BAND_POWERS_SHEET_TITLE = "Band Powers";
+    static final String VITALS_SHEET_TITLE = "Vitals";
+    static final String ERP_SHEET_TITLE = "ERP";
+    // Rows kept in memory while streaming with SXSSF, older rows are flushed to disk.
+    static final int ROW_ACCESS_WINDOW = 100;
+    // Every data sheet starts with a header row.
+    static final int SAMPLES_PER_SHEET = SpreadsheetVersion.EXCEL2007.getMaxRows() - 1;
+    // Height of a chart, in rows, when stacking charts.
+    static final int CHART_ROWS = 50;
+
+    private BandPowerTracker bandPowerTracker = null;
+    private VitalsTracker vitalsTracker = null;
+    private EpochAverager epochAverager = null;
+
+    /**
+     * Returns the epoch averager.
+     *
+     * @return the epoch averager, or null for no ERP sheet.
+     */
+    public EpochAverager getEpochAverager() {
+        return epochAverager;
+    }
+
+    /**
+     * Sets the epoch averager, whose event related potentials are exported to an ERP sheet.
+     *
+     * @param epochAverager the epoch averager, or null for no ERP sheet.
+     */
+    public void setEpochAverager(EpochAverager epochAverager) {
+        this.epochAverager = epochAverager;
+    }
+
+    /**
+     * Returns the vitals tracker.
+     *
+     * @return the vitals tracker, or null for no vitals sheet.
+     */
+    public VitalsTracker getVitalsTracker() {
+        return vitalsTracker;
+    }
+
+    /**
+     * Sets the vitals tracker, whose updates are exported to a vitals sheet.
+     *
+     * @param vitalsTracker the vitals tracker, or null for no vitals sheet.
+     */
+    public void setVitalsTracker(VitalsTracker vitalsTracker) {
+        this.vitalsTracker = vitalsTracker;
+    }
+
+    /**
+     * Returns the band power tracker.
+     *
+     * @return the band power tracker, or null for no band powers sheet.
+     */
+    public BandPowerTracker getBandPowerTracker() {
+        return bandPowerTracker;
+    }
+
+    /**
+     * Sets the band power tracker, whose updates are exported to a band powers sheet.
+     *
+     * @param bandPowerTracker the band power tracker, or null for no band powers sheet.
+     */
+    public void setBandPowerTracker(BandPowerTracker bandPowerTracker) {
+        this.bandPowerTracker = bandPowerTracker;
+    }
+
     /**
      * Creates a line chart.
      *
@@ -31,7 +117,7 @@ public final class ExcelExporter {
      * @param columns      the columns to include in the chart.
      * @param chartType    the type of chart.
      */
-    public void createLineChart(XSSFSheet dataSheet, XSSFSheet chartSheet, String chartTitle, String catAxisTitle, String yAxisTitle, XSSFCell[] headers, CellRangeAddress dataRange, XSSFClientAnchor anchor, List<Integer> columns, ChartTypes chartType, MarkerStyle markerStyle) {
+    public void createLineChart(XSSFSheet dataSheet, XSSFSheet chartSheet, String chartTitle, String catAxisTitle, String yAxisTitle, XSSFCell[] headers, CellRangeAddress dataRange, XSSFClientAnchor anchor, int[] columns, ChartTypes chartType, MarkerStyle markerStyle) {
 
         XSSFDrawing drawing = chartSheet.createDrawingPatriarch();
 
@@ -76,36 +162,121 @@ public final class ExcelExporter {
     }
 
     /**
-     * Imports the data into an Excel sheet.
+     * Imports the data into one or more Excel sheets, row by row, filling each sheet up to the sheet row limit.
+     * This goes through the POI cell model, see {@link #exportData(ZipOutputStream, List, DataExtractor)} for the faster path.
      *
-     * @param sheet         the sheet to import the data into.
+     * @param sheets        the sheets to import the data into, at least {@link #getDataSheetCount(int)} of them.
      * @param dataExtractor the data extractor to get the data from.
      */
-    public void importData(SXSSFSheet sheet, DataExtractor dataExtractor) {
+    public void importData(List<SXSSFSheet> sheets, DataExtractor dataExtractor) {
+
+        SampleRingBuffer sampleBuffer = dataExtractor.getSampleBuffer();
+        int sampleCount = sampleBuffer.size();
+        long firstSample = sampleBuffer.getWritten() - sampleCount;
 
-        int sampleCount = dataExtractor.getSampleCount();
+        for (int sheetIndex = 0; sheetIndex < sheets.size(); sheetIndex++) {
+            int offset = sheetIndex * SAMPLES_PER_SHEET;
+            int count = Math.min(SAMPLES_PER_SHEET, sampleCount - offset);
+            if (count > 0) {
+                importData(sheets.get(sheetIndex), sampleBuffer, firstSample + offset, count, offset);
+            }
+        }
+    }
 
-        // Set to enable more than only 100 rows.
-        sheet.setRandomAccessWindowSize(sampleCount);
+    /**
+     * Imports a range of samples into an Excel sheet, one full row at a time.
+     * Only the last {@link #ROW_ACCESS_WINDOW} rows are held in memory, older rows are flushed to disk.
+     *
+     * @param sheet        the sheet to import the data into.
+     * @param sampleBuffer the sample buffer to get the data from.
+     * @param firstSample  the sequence number of the first sample in the buffer.
+     * @param sampleCount  the number of samples to import.
+     * @param periodOffset the period of the first sample, minus one.
+     */
+    public void importData(SXSSFSheet sheet, SampleRingBuffer sampleBuffer, long firstSample, int sampleCount, int periodOffset) {
+
+        // Read each channel in place.
+        SampleRingBuffer.Window[] channels = new SampleRingBuffer.Window[sampleBuffer.getChannelCount()];
+        for (int channelIndex = 0; channelIndex < channels.length; channelIndex++) {
+            channels[channelIndex] = sampleBuffer.window(channelIndex, firstSample, sampleCount);
+        }
 
-        // Create all data rows.
         for (int sampleIndex = 0; sampleIndex < sampleCount; sampleIndex++) {
-            sheet.createRow(sampleIndex + 1).createCell(0).setCellValue(sampleIndex + 1);
+            SXSSFRow row = sheet.createRow(sampleIndex + 1);
+            row.createCell(0).setCellValue(periodOffset + sampleIndex + 1);
+            for (int channelIndex = 0; channelIndex < channels.length; channelIndex++) {
+                row.createCell(channelIndex + 1).setCellValue(channels[channelIndex].get(sampleIndex));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of data sheets needed for a number of samples.
+     *
+     * @param sampleCount the number of samples.
+     * @return the number of data sheets, at least one.
+     */
+    public int getDataSheetCount(int sampleCount) {
+        return Math.max(1, (sampleCount + SAMPLES_PER_SHEET - 1) / SAMPLES_PER_SHEET);
+    }
+
+    /**
+     * Returns the data sheet title.
+     *
+     * @param sheetIndex the index of the data sheet.
+     * @return the title, "Data" for the first sheet, followed by "Data 2", "Data 3" etc.
+     */
+    public String getDataSheetTitle(int sheetIndex) {
+        return sheetIndex == 0 ? DATA_SHEET_TITLE : DATA_SHEET_TITLE + " " + (sheetIndex + 1);
+    }
+
+    /**
+     * Writes the data into one or more data sheets, row by row, filling each sheet up to the sheet row limit.
+     * The worksheet XML is written straight to the zip file, bypassing the POI cell model.
+     *
+     * @param zip           the zip file to write the sheet entries to.
+     * @param sheetEntries  the zip entry names of the data sheets, at least {@link #getDataSheetCount(int)} of them.
+     * @param dataExtractor the data extractor to get the data from.
+     * @throws IOException from writing the zip file.
+     */
+    public void exportData(ZipOutputStream zip, List<String> sheetEntries, DataExtractor dataExtractor) throws IOException {
+
+        SampleRingBuffer sampleBuffer = dataExtractor.getSampleBuffer();
+        String[] dataLabels = dataExtractor.getDataLabels();
+        int sampleCount = sampleBuffer.size();
+        long firstSample = sampleBuffer.getWritten() - sampleCount;
+
+        // Read each channel in place.
+        SampleRingBuffer.Window[] channels = new SampleRingBuffer.Window[sampleBuffer.getChannelCount()];
+        for (int channelIndex = 0; channelIndex < channels.length; channelIndex++) {
+            channels[channelIndex] = sampleBuffer.window(channelIndex, firstSample, sampleCount);
         }
 
-        int cellIndex = 0;
-        for (double[] dataRow : dataExtractor.getData()) {
-            // Populate data rows and cells.
-            int rowIndex = 0;
-            for (double value : dataRow) {
-                sheet.getRow(rowIndex++ + 1).createCell(cellIndex + 1).setCellValue(value);
+        zip.setLevel(Deflater.BEST_SPEED);
+        for (int sheetIndex = 0; sheetIndex < sheetEntries.size(); sheetIndex++) {
+            int offset = sheetIndex * SAMPLES_PER_SHEET;
+            int count = Math.max(0, Math.min(SAMPLES_PER_SHEET, sampleCount - offset));
+
+            zip.putNextEntry(new ZipEntry(sheetEntries.get(sheetIndex)));
+            DataSheetWriter writer = new DataSheetWriter(zip, channels.length + 1);
+            writer.start(dataLabels);
+            for (int sampleIndex = offset; sampleIndex < offset + count; sampleIndex++) {
+                writer.startRow(sampleIndex + 1);
+                for (SampleRingBuffer.Window channel : channels) {
+                    writer.writeCell(channel.get(sampleIndex));
+                }
+                writer.endRow();
             }
-            cellIndex++;
+            writer.finish();
+            zip.closeEntry();
         }
+        zip.setLevel(Deflater.DEFAULT_COMPRESSION);
     }
 
     /**
      * Generates the Excel file with charts.
+     * The workbook is first written without data, as a template, and then copied into the file, with the data sheets
+     * written by {@link #exportData(ZipOutputStream, List, DataExtractor)}.
      *
      * @param fileName         the name of the file to create.
      * @param dataExtractor    the data extractor to get the data from.
@@ -114,28 +285,267 @@ public final class ExcelExporter {
      */
     public void generateExcelFile(String fileName, DataExtractor dataExtractor, List<ChartDescriptor> chartDescriptors) throws Exception {
 
-        XSSFWorkbook wb = new XSSFWorkbook();
-        XSSFSheet dataSheet = wb.createSheet("Data");
+        long start = System.nanoTime();
+        try {
+            int sampleCount = dataExtractor.getSampleBuffer().size();
+            List<String> sheetEntries = new ArrayList<>();
+            XSSFWorkbook wb = createWorkbook(sampleCount, dataExtractor.getDataLabels(), chartDescriptors,
+                    (cd, columns) -> decimate(cd, columns, dataExtractor), sheetEntries);
 
-        // Create first header row.
-        String[] dataLabels = dataExtractor.getDataLabels();
-        XSSFCell[] headers = createHeaders(dataSheet, dataLabels);
+            try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+                copyTemplate(wb, sheetEntries, zip);
+                exportData(zip, sheetEntries, dataExtractor);
+            }
+        } finally {
+            Metrics.stage(Metrics.EXPORT).record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Supplies the decimated series of a chart.
+     */
+    @FunctionalInterface
+    interface DecimationSource {
+
+        /**
+         * Returns the decimated series of a chart.
+         *
+         * @param chartDescriptor the chart descriptor.
+         * @param columns         the columns (channels) of the chart.
+         * @return the decimated series, one per column.
+         * @throws BrainFlowError from the BrainFlow API.
+         */
+        ChartDecimator.Decimation decimate(ChartDescriptor chartDescriptor, int[] columns) throws BrainFlowError;
+    }
+
+    /**
+     * Creates the workbook without data: the data sheets with only their header rows, the charts referring to them,
+     * or to decimated series, and the band powers, vitals and ERP sheets.
+     *
+     * @param sampleCount      the number of samples of the data sheets.
+     * @param dataLabels       the data labels.
+     * @param chartDescriptors the chart descriptors to create the charts.
+     * @param decimations      supplies the decimated series, of the charts with more samples than their point budget.
+     * @param sheetEntries     receives the zip entry names of the data sheets.
+     * @return the workbook.
+     * @throws BrainFlowError from the BrainFlow API.
+     */
+    XSSFWorkbook createWorkbook(int sampleCount, String[] dataLabels, List<ChartDescriptor> chartDescriptors, DecimationSource decimations, List<String> sheetEntries) throws BrainFlowError {
 
-        SXSSFWorkbook sWb = new SXSSFWorkbook(wb);
-        SXSSFSheet sSheet = sWb.getSheetAt(0);
-        importData(sSheet, dataExtractor);
+        // Create the data sheets, each with its own header row, which the charts refer to.
+        XSSFWorkbook wb = new XSSFWorkbook();
+        List<XSSFSheet> dataSheets = new ArrayList<>();
+        List<XSSFCell[]> headers = new ArrayList<>();
+        for (int sheetIndex = 0; sheetIndex < getDataSheetCount(sampleCount); sheetIndex++) {
+            XSSFSheet dataSheet = wb.createSheet(getDataSheetTitle(sheetIndex));
+            dataSheets.add(dataSheet);
+            headers.add(createHeaders(dataSheet, dataLabels));
+        }
+
+        ChannelIndex channelIndex = ChannelIndex.of(dataLabels);
 
-        List<String> labels = Arrays.stream(dataLabels).toList();
+        XSSFSheet chartDataSheet = null;
+        int chartDataColumn = 0;
 
         for (ChartDescriptor cd : chartDescriptors) {
             XSSFSheet chartSheet = wb.createSheet(cd.sheetTitle());
-            createChart(dataSheet, chartSheet, cd.chartTitle(), cd.xAxisTitle(), cd.yAxisTitle(), headers, findMatchingLabelColumns(labels, cd.columnPatterns()), dataExtractor.getSampleCount(), cd.chartType3D(), cd.markerStyle());
+            int[] columns = channelIndex.select(cd);
+
+            if (cd.maxPoints() > 0 && sampleCount > cd.maxPoints()) {
+                // Chart a decimated copy of the series, kept on a hidden sheet.
+                if (chartDataSheet == null) {
+                    chartDataSheet = wb.createSheet(CHART_DATA_SHEET_TITLE);
+                    wb.setSheetHidden(wb.getSheetIndex(chartDataSheet), true);
+                }
+                chartDataColumn = createDecimatedChart(chartDataSheet, chartDataColumn, chartSheet, cd, columns, dataLabels, decimations.decimate(cd, columns));
+            } else {
+                createChart(dataSheets, chartSheet, cd.chartTitle(), cd.xAxisTitle(), cd.yAxisTitle(), headers, columns, sampleCount, cd.chartType3D(), cd.markerStyle());
+            }
+        }
+
+        if (bandPowerTracker != null && !bandPowerTracker.getUpdates().isEmpty()) {
+            createBandPowersSheet(wb.createSheet(BAND_POWERS_SHEET_TITLE), bandPowerTracker, dataLabels);
+        }
+        if (vitalsTracker != null && !vitalsTracker.getUpdates().isEmpty()) {
+            createVitalsSheet(wb.createSheet(VITALS_SHEET_TITLE), vitalsTracker);
+        }
+        if (epochAverager != null) {
+            List<EpochAverager.Erp> erps = epochAverager.getErps();
+            if (!erps.isEmpty()) {
+                createErpSheet(wb.createSheet(ERP_SHEET_TITLE), epochAverager, erps, dataLabels);
+            }
         }
 
-        FileOutputStream fileOut = new FileOutputStream(fileName);
-        sWb.write(fileOut);
-        fileOut.close();
-        sWb.dispose();
+        for (XSSFSheet dataSheet : dataSheets) {
+            sheetEntries.add(dataSheet.getPackagePart().getPartName().getName().substring(1));
+        }
+        return wb;
+    }
+
+    /**
+     * Writes a workbook to a temporary template file, and copies all its entries into a zip file, except for the
+     * data sheets, which are written separately. The workbook is closed.
+     *
+     * @param wb           the workbook.
+     * @param sheetEntries the zip entry names of the data sheets.
+     * @param zip          the zip file to copy the entries to.
+     * @throws IOException from writing the files.
+     */
+    void copyTemplate(XSSFWorkbook wb, List<String> sheetEntries, ZipOutputStream zip) throws IOException {
+        File template = File.createTempFile("bci-template", ".xlsx");
+        try {
+            try (FileOutputStream templateOut = new FileOutputStream(template)) {
+                wb.write(templateOut);
+            }
+            wb.close();
+
+            try (ZipFile templateZip = new ZipFile(template)) {
+                Enumeration<? extends ZipEntry> entries = templateZip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (!sheetEntries.contains(entry.getName())) {
+                        zip.putNextEntry(new ZipEntry(entry.getName()));
+                        try (InputStream in = templateZip.getInputStream(entry)) {
+                            in.transferTo(zip);
+                        }
+                        zip.closeEntry();
+                    }
+                }
+            }
+        } finally {
+            Files.deleteIfExists(template.toPath());
+        }
+    }
+
+    /**
+     * Creates the band powers sheet, with a row per update, and a column per channel and band.
+     *
+     * @param sheet            the sheet to create the rows in.
+     * @param bandPowerTracker the band power tracker to get the updates from.
+     * @param dataLabels       the data labels, to name the channels.
+     */
+    public void createBandPowersSheet(XSSFSheet sheet, BandPowerTracker bandPowerTracker, String[] dataLabels) {
+        int[] channels = bandPowerTracker.getChannels();
+        BandPowerTracker.Band[] bands = BandPowerTracker.getBands();
+
+        XSSFRow headerRow = sheet.createRow(0);
+        headerRow.createCell(0).setCellValue("Sample");
+        headerRow.createCell(1).setCellValue("Timestamp");
+        for (int c = 0; c < channels.length; c++) {
+            for (int b = 0; b < bands.length; b++) {
+                headerRow.createCell(2 + c * bands.length + b).setCellValue(dataLabels[channels[c]] + " " + bands[b].getTitle());
+            }
+        }
+
+        List<BandPowerTracker.BandPowers> updates = bandPowerTracker.getUpdates();
+        for (int u = 0; u < updates.size(); u++) {
+            BandPowerTracker.BandPowers update = updates.get(u);
+            XSSFRow row = sheet.createRow(u + 1);
+            row.createCell(0).setCellValue(update.sample());
+            if (Double.isFinite(update.timestamp())) {
+                row.createCell(1).setCellValue(update.timestamp());
+            }
+            for (int c = 0; c < channels.length; c++) {
+                for (int b = 0; b < bands.length; b++) {
+                    row.createCell(2 + c * bands.length + b).setCellValue(update.powers()[c][b]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the vitals sheet, with a row per update.
+     *
+     * @param sheet         the sheet to create the rows in.
+     * @param vitalsTracker the vitals tracker to get the updates from.
+     */
+    public void createVitalsSheet(XSSFSheet sheet, VitalsTracker vitalsTracker) {
+        XSSFRow headerRow = sheet.createRow(0);
+        headerRow.createCell(0).setCellValue("Sample");
+        headerRow.createCell(1).setCellValue("Timestamp");
+        headerRow.createCell(2).setCellValue("Heart Rate");
+        headerRow.createCell(3).setCellValue("Oxygen Level");
+
+        List<VitalsTracker.Vitals> updates = vitalsTracker.getUpdates();
+        for (int u = 0; u < updates.size(); u++) {
+            VitalsTracker.Vitals update = updates.get(u);
+            XSSFRow row = sheet.createRow(u + 1);
+            row.createCell(0).setCellValue(update.sample());
+            double[] values = {update.timestamp(), update.heartRate(), update.oxygenLevel()};
+            for (int i = 0; i < values.length; i++) {
+                // Leave values that could not be calculated empty.
+                if (Double.isFinite(values[i])) {
+                    row.createCell(i + 1).setCellValue(values[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the ERP sheet, with a row per epoch sample, a mean and a standard error column per condition and channel,
+     * and a chart of the channel means per condition, right of the columns.
+     *
+     * @param sheet         the sheet to create the rows and charts in.
+     * @param epochAverager the epoch averager, for the epoch and channels.
+     * @param erps          the event related potentials of the conditions.
+     * @param dataLabels    the data labels, to name the channels.
+     */
+    public void createErpSheet(XSSFSheet sheet, EpochAverager epochAverager, List<EpochAverager.Erp> erps, String[] dataLabels) {
+        int[] channels = epochAverager.getChannels();
+        int epochLength = epochAverager.getPreSamples() + epochAverager.getPostSamples();
+        int conditionColumns = channels.length * 2;
+
+        XSSFRow headerRow = sheet.createRow(0);
+        headerRow.createCell(0).setCellValue("Offset (ms)");
+        XSSFCell[] headers = new XSSFCell[erps.size() * conditionColumns];
+        for (int e = 0; e < erps.size(); e++) {
+            String condition = getMarkerTitle(erps.get(e).marker());
+            for (int c = 0; c < channels.length; c++) {
+                int column = e * conditionColumns + c;
+                headers[column] = headerRow.createCell(column + 1);
+                headers[column].setCellValue(condition + " " + dataLabels[channels[c]]);
+                headers[column + channels.length] = headerRow.createCell(column + channels.length + 1);
+                headers[column + channels.length].setCellValue(condition + " " + dataLabels[channels[c]] + " SE");
+            }
+        }
+
+        for (int i = 0; i < epochLength; i++) {
+            XSSFRow row = sheet.createRow(i + 1);
+            row.createCell(0).setCellValue((i - epochAverager.getPreSamples()) * 1000.0 / epochAverager.getSamplingRate());
+            for (int e = 0; e < erps.size(); e++) {
+                EpochAverager.Erp erp = erps.get(e);
+                for (int c = 0; c < channels.length; c++) {
+                    int column = e * conditionColumns + c + 1;
+                    row.createCell(column).setCellValue(erp.mean()[c][i]);
+                    // Leave the standard error of a single trial empty.
+                    if (Double.isFinite(erp.standardError()[c][i])) {
+                        row.createCell(column + channels.length).setCellValue(erp.standardError()[c][i]);
+                    }
+                }
+            }
+        }
+
+        CellRangeAddress dataRange = new CellRangeAddress(1, epochLength, 0, headers.length);
+        int chartColumn = headers.length + 2;
+        for (int e = 0; e < erps.size(); e++) {
+            EpochAverager.Erp erp = erps.get(e);
+            int firstColumn = e * conditionColumns;
+            int anchorRow = 1 + e * CHART_ROWS;
+            createLineChart(sheet, sheet, "ERP " + getMarkerTitle(erp.marker()) + " (" + erp.trials() + " trials)", "Offset (ms)", "Amplitude", headers, dataRange,
+                    new XSSFClientAnchor(0, 0, 0, 0, chartColumn, anchorRow, chartColumn + 32, anchorRow + CHART_ROWS - 1),
+                    IntStream.range(firstColumn, firstColumn + channels.length).toArray(), ChartTypes.LINE, MarkerStyle.NONE
+            );
+        }
+    }
+
+    /**
+     * Returns the title of a marker value, without decimals for whole numbers.
+     *
+     * @param marker the marker value.
+     * @return the title.
+     */
+    private static String getMarkerTitle(double marker) {
+        return "Marker " + (marker == Math.rint(marker) && Math.abs(marker) < 1e15 ? String.valueOf((long) marker) : String.valueOf(marker));
     }
 
     /**
@@ -163,27 +573,137 @@ public final class ExcelExporter {
     }
 
     /**
-     * Finds columns with matching header prefixes.
+     * Finds columns with matching header patterns, through the shared {@link ChannelIndex} of the labels.
      *
      * @param labels   the list of labels to search.
-     * @param prefixes the list of prefixes to match.
-     * @return the list of matching column indices.
+     * @param patterns the list of patterns to match.
+     * @return the matching column indices.
+     */
+    public int[] findMatchingLabelColumns(List<String> labels, List<String> patterns) {
+        return ChannelIndex.of(labels).select(patterns);
+    }
+
+    /**
+     * Creates a chart of decimated series.
+     * The decimated series are written to a block of columns on the chart data sheet, starting with the category positions,
+     * and the chart refers to that block, leaving the data sheets untouched.
+     *
+     * @param chartDataSheet the sheet to write the decimated series to.
+     * @param firstColumn    the first free column on the chart data sheet.
+     * @param chartSheet     the sheet where to create the chart.
+     * @param cd             the chart descriptor.
+     * @param columns        the columns to include in the chart.
+     * @param dataExtractor  the data extractor to get the data from.
+     * @return the next free column on the chart data sheet.
+     * @throws BrainFlowError from the BrainFlow API.
+     */
+    public int createDecimatedChart(XSSFSheet chartDataSheet, int firstColumn, XSSFSheet chartSheet, ChartDescriptor cd, int[] columns, DataExtractor dataExtractor) throws BrainFlowError {
+        return createDecimatedChart(chartDataSheet, firstColumn, chartSheet, cd, columns, dataExtractor.getDataLabels(), decimate(cd, columns, dataExtractor));
+    }
+
+    /**
+     * Decimates the series of a chart, from the samples held by a data extractor.
+     *
+     * @param cd            the chart descriptor.
+     * @param columns       the columns to include in the chart.
+     * @param dataExtractor the data extractor to get the data from.
+     * @return the decimated series.
+     * @throws BrainFlowError from the BrainFlow API.
      */
-    public List<Integer> findMatchingLabelColumns(List<String> labels, List<String> prefixes) {
+    private ChartDecimator.Decimation decimate(ChartDescriptor cd, int[] columns, DataExtractor dataExtractor) throws BrainFlowError {
+        SampleRingBuffer sampleBuffer = dataExtractor.getSampleBuffer();
+        int sampleCount = sampleBuffer.size();
+        long firstSample = sampleBuffer.getWritten() - sampleCount;
+
+        SampleRingBuffer.Window[] channels = new SampleRingBuffer.Window[columns.length];
+        for (int i = 0; i < channels.length; i++) {
+            channels[i] = sampleBuffer.window(columns[i], firstSample, sampleCount);
+        }
+        return new ChartDecimator().decimate(channels, cd.maxPoints(), cd.decimation(), dataExtractor);
+    }
+
+    /**
+     * Creates a chart of decimated series, see {@link #createDecimatedChart(XSSFSheet, int, XSSFSheet, ChartDescriptor, int[], DataExtractor)}.
+     *
+     * @param chartDataSheet the sheet to write the decimated series to.
+     * @param firstColumn    the first free column on the chart data sheet.
+     * @param chartSheet     the sheet where to create the chart.
+     * @param cd             the chart descriptor.
+     * @param columns        the columns to include in the chart.
+     * @param dataLabels     the data labels, to name the series.
+     * @param decimation     the decimated series, one per column.
+     * @return the next free column on the chart data sheet.
+     */
+    public int createDecimatedChart(XSSFSheet chartDataSheet, int firstColumn, XSSFSheet chartSheet, ChartDescriptor cd, int[] columns, String[] dataLabels, ChartDecimator.Decimation decimation) {
+        int points = decimation.positions().length;
+
+        // Header row, with the category title first.
+        XSSFRow headerRow = getOrCreateRow(chartDataSheet, 0);
+        headerRow.createCell(firstColumn).setCellValue(cd.xAxisTitle());
+        XSSFCell[] headers = new XSSFCell[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            headers[i] = headerRow.createCell(firstColumn + i + 1);
+            headers[i].setCellValue(dataLabels[columns[i]]);
+        }
 
-        List<Integer> result = new ArrayList<>();
-        for (String prefix : prefixes) {
-            int[] indices = IntStream.range(0, labels.size())
-                    .filter(i -> labels.get(i).matches(prefix))
-                    .boxed()
-                    .mapToInt(Integer::intValue)
-                    .toArray();
-            for (int value : indices) {
-                result.add(value);
+        for (int point = 0; point < points; point++) {
+            XSSFRow row = getOrCreateRow(chartDataSheet, point + 1);
+            row.createCell(firstColumn).setCellValue(decimation.positions()[point]);
+            for (int i = 0; i < columns.length; i++) {
+                row.createCell(firstColumn + i + 1).setCellValue(decimation.series()[i][point]);
             }
         }
 
-        return result;
+        createLineChart(chartDataSheet, chartSheet, cd.chartTitle(), cd.xAxisTitle(), cd.yAxisTitle(), headers,
+                new CellRangeAddress(1, points, firstColumn, firstColumn + 1),
+                new XSSFClientAnchor(0, 0, 0, 0, 3, 1, 35, 50), IntStream.range(0, columns.length).toArray(), cd.chartType3D() ? ChartTypes.LINE3D : ChartTypes.LINE, cd.markerStyle()
+        );
+
+        return firstColumn + columns.length + 1;
+    }
+
+    /**
+     * Returns an existing row, or creates it.
+     *
+     * @param sheet    the sheet.
+     * @param rowIndex the row index.
+     * @return the row.
+     */
+    private XSSFRow getOrCreateRow(XSSFSheet sheet, int rowIndex) {
+        XSSFRow row = sheet.getRow(rowIndex);
+        return row == null ? sheet.createRow(rowIndex) : row;
+    }
+
+    /**
+     * Creates a chart per data sheet, stacked below each other, each covering the samples of its data sheet.
+     *
+     * @param dataSheets   the sheets where the data is located.
+     * @param chartSheet   the sheet where to create the charts.
+     * @param chartTitle   the title of the chart.
+     * @param catAxisTitle the category axis title.
+     * @param yAxisTitle   the value axis title.
+     * @param headers      the header cells, per data sheet.
+     * @param columns      the columns to include in the chart.
+     * @param numSamples   the number of samples in the data, across all data sheets.
+     * @param chartType3D  whether to create a 3D chart.
+     */
+    public void createChart(List<XSSFSheet> dataSheets, XSSFSheet chartSheet, String chartTitle, String catAxisTitle, String yAxisTitle, List<XSSFCell[]> headers, int[] columns, int numSamples, boolean chartType3D, MarkerStyle markerStyle) {
+
+        if (dataSheets.size() == 1) {
+            createChart(dataSheets.get(0), chartSheet, chartTitle, catAxisTitle, yAxisTitle, headers.get(0), columns, numSamples, chartType3D, markerStyle);
+            return;
+        }
+
+        for (int sheetIndex = 0; sheetIndex < dataSheets.size(); sheetIndex++) {
+            int firstSample = sheetIndex * SAMPLES_PER_SHEET + 1;
+            int sheetSamples = Math.min(SAMPLES_PER_SHEET, numSamples - firstSample + 1);
+            int anchorRow = 1 + sheetIndex * CHART_ROWS;
+
+            createLineChart(dataSheets.get(sheetIndex), chartSheet, chartTitle + " (" + firstSample + "-" + (firstSample + sheetSamples - 1) + ")", catAxisTitle, yAxisTitle, headers.get(sheetIndex),
+                    new CellRangeAddress(1, sheetSamples, 0, 2),
+                    new XSSFClientAnchor(0, 0, 0, 0, 3, anchorRow, 35, anchorRow + CHART_ROWS - 1), columns, chartType3D ? ChartTypes.LINE3D : ChartTypes.LINE, markerStyle
+            );
+        }
     }
 
     /**
@@ -199,7 +719,7 @@ public final class ExcelExporter {
      * @param numSamples   the number of samples in the data.
      * @param chartType3D  whether to create a 3D chart.
      */
-    public void createChart(XSSFSheet dataSheet, XSSFSheet chartSheet, String chartTitle, String catAxisTitle, String yAxisTitle, XSSFCell[] headers, List<Integer> columns, int numSamples, boolean chartType3D, MarkerStyle markerStyle) {
+    public void createChart(XSSFSheet dataSheet, XSSFSheet chartSheet, String chartTitle, String catAxisTitle, String yAxisTitle, XSSFCell[] headers, int[] columns, int numSamples, boolean chartType3D, MarkerStyle markerStyle) {
 
         // Create line chart.
         createLineChart(dataSheet, chartSheet, chartTitle, catAxisTitle, yAxisTitle, headers,
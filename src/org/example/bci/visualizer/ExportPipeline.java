@@ -0,0 +1,236 @@
+package org.example.bci.visualizer;
+
+import brainflow.BrainFlowError;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.example.bci.visualizer.metrics.Metrics;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exports a session to an Excel file while it is being acquired, so only the charts remain to be written when it ends.
+ * <p>
+ * Added as a chunk listener to a {@link DataExtractor}, every chunk is queued to an export worker, which writes
+ * the rows straight into the data sheets of the Excel file, and reduces the chart series with a
+ * {@link StreamingDecimator} per chart. The queue is bounded, so a slow export holds up the acquisition,
+ * rather than filling the memory. Chunks are queued as they are, so they must not be changed afterwards.
+ * <p>
+ * Every sample of the session is exported, not only the samples kept by the data extractor.
+ * Closing the pipeline creates the workbook, with the charts, and copies it into the file,
+ * as {@link ExcelExporter#generateExcelFile(String, DataExtractor, List)} does.
+ */
+public class ExportPipeline implements AutoCloseable, Consumer<double[][]> {
+    private static final Logger log = LogManager.getLogger(ExportPipeline.class);
+
+    // Chunks queued before the acquisition waits for the export, e.g. 16 seconds of drains at the default drain interval.
+    static final int QUEUE_CHUNKS = 64;
+    private static final double[][] END = new double[0][];
+
+    private final String fileName;
+    private final ExcelExporter exporter;
+    private final DataExtractor dataExtractor;
+    private final List<ChartDescriptor> chartDescriptors;
+    private final List<StreamingDecimator> decimators = new ArrayList<>();
+    private final BlockingQueue<double[][]> queue = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+    private final ZipOutputStream zip;
+    private final List<String> sheetEntries = new ArrayList<>();
+    private final Thread worker;
+    private volatile Exception failure;
+    private boolean closed = false;
+
+    // Owned by the export worker.
+    private DataSheetWriter writer;
+    private int sheetSamples = 0;
+    private long sampleCount = 0;
+
+    /**
+     * Constructor, creating the Excel file and starting the export worker.
+     *
+     * @param fileName         the name of the file to create.
+     * @param exporter         the exporter, with the trackers whose sheets are added when closing.
+     * @param dataExtractor    the data extractor of the session, providing the data labels.
+     * @param chartDescriptors the chart descriptors to create the charts.
+     * @throws IOException from creating the file.
+     */
+    public ExportPipeline(String fileName, ExcelExporter exporter, DataExtractor dataExtractor, List<ChartDescriptor> chartDescriptors) throws IOException {
+        this.fileName = fileName;
+        this.exporter = exporter;
+        this.dataExtractor = dataExtractor;
+        this.chartDescriptors = List.copyOf(chartDescriptors);
+
+        ChannelIndex channelIndex = ChannelIndex.of(dataExtractor.getDataLabels());
+        for (ChartDescriptor cd : this.chartDescriptors) {
+            decimators.add(new StreamingDecimator(channelIndex.select(cd), cd.maxPoints(), cd.decimation()));
+        }
+
+        zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+        zip.setLevel(Deflater.BEST_SPEED);
+        worker = Thread.ofPlatform().name("export").start(this::export);
+    }
+
+    /**
+     * Queues a chunk for the export, waiting while the queue is full.
+     *
+     * @param chunk samples as [channel][sample].
+     * @throws IllegalStateException if the export failed, or the wait was interrupted.
+     */
+    @Override
+    public void accept(double[][] chunk) {
+        if (failure != null) {
+            throw new IllegalStateException("Export to " + fileName + " failed.", failure);
+        }
+        try {
+            queue.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing a chunk for export.", e);
+        }
+    }
+
+    /**
+     * Exports the queued chunks, until the end of the session.
+     * After a failure, chunks are still taken, and dropped, so the acquisition never waits for a failed export.
+     */
+    private void export() {
+        try {
+            double[][] chunk;
+            while ((chunk = queue.take()) != END) {
+                if (failure == null) {
+                    try {
+                        write(chunk);
+                    } catch (IOException | RuntimeException e) {
+                        log.error("Export to {} failed.", fileName, e);
+                        failure = e;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = e;
+        }
+    }
+
+    /**
+     * Writes the rows of a chunk to the data sheets, starting a new data sheet when one is full,
+     * and adds the chunk to the chart series.
+     *
+     * @param chunk samples as [channel][sample].
+     * @throws IOException from writing the file.
+     */
+    private void write(double[][] chunk) throws IOException {
+        int length = chunk.length == 0 ? 0 : chunk[0].length;
+        for (int sample = 0; sample < length; sample++) {
+            if (writer == null || sheetSamples == ExcelExporter.SAMPLES_PER_SHEET) {
+                startSheet();
+            }
+            writer.startRow(++sampleCount);
+            for (double[] channel : chunk) {
+                writer.writeCell(channel[sample]);
+            }
+            writer.endRow();
+            sheetSamples++;
+        }
+        for (StreamingDecimator decimator : decimators) {
+            decimator.accept(chunk);
+        }
+    }
+
+    /**
+     * Finishes the current data sheet, if any, and starts the next one.
+     * The data sheets are the first sheets of the workbook, so their entries are named in order.
+     *
+     * @throws IOException from writing the file.
+     */
+    private void startSheet() throws IOException {
+        finishSheet();
+        String entry = "xl/worksheets/sheet" + (sheetEntries.size() + 1) + ".xml";
+        sheetEntries.add(entry);
+        zip.putNextEntry(new ZipEntry(entry));
+        writer = new DataSheetWriter(zip, dataExtractor.getDataLabels().length + 1);
+        writer.start(dataExtractor.getDataLabels());
+        sheetSamples = 0;
+    }
+
+    /**
+     * Finishes the current data sheet, if any.
+     *
+     * @throws IOException from writing the file.
+     */
+    private void finishSheet() throws IOException {
+        if (writer != null) {
+            writer.finish();
+            zip.closeEntry();
+            writer = null;
+        }
+    }
+
+    /**
+     * Returns the number of samples exported so far.
+     *
+     * @return sample count.
+     */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Waits for the queued chunks to be exported, then writes the charts and the other sheets, and closes the file.
+     *
+     * @throws IOException    from writing the file, or if the export failed.
+     * @throws BrainFlowError from decimating the chart series.
+     */
+    @Override
+    public void close() throws IOException, BrainFlowError {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        long start = System.nanoTime();
+        try (zip) {
+            try {
+                queue.put(END);
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while finishing the export to " + fileName);
+            }
+            if (failure != null) {
+                throw new IOException("Export to " + fileName + " failed.", failure);
+            }
+            if (writer == null) {
+                // An empty session still gets a data sheet, with its header row.
+                startSheet();
+            }
+            finishSheet();
+            zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+
+            if (sampleCount > Integer.MAX_VALUE) {
+                throw new IOException("Too many samples to chart: " + sampleCount);
+            }
+            List<String> templateEntries = new ArrayList<>();
+            XSSFWorkbook wb = exporter.createWorkbook((int) sampleCount, dataExtractor.getDataLabels(), chartDescriptors,
+                    (cd, columns) -> decimators.get(chartDescriptors.indexOf(cd)).decimate(dataExtractor), templateEntries);
+            if (!templateEntries.equals(sheetEntries)) {
+                wb.close();
+                throw new IllegalStateException("Data sheet entries " + templateEntries + " differ from the exported " + sheetEntries);
+            }
+            exporter.copyTemplate(wb, sheetEntries, zip);
+        } finally {
+            Metrics.stage(Metrics.EXPORT).record(System.nanoTime() - start);
+        }
+        log.info("Exported {} samples to {}, {}ms after the session ended.", sampleCount, fileName, (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.bci.visualizer;
+
+import brainflow.BrainFlowError;
+import org.example.bci.visualizer.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * A declarative chain of filter steps, applied to every signal channel of a {@link DataExtractor}, in parallel.
+ * <p>
+ * Each channel is filtered by its own task, running all steps on that channel only,
+ * so the tasks share no mutable state.
+ *
+ * <pre>{@code
+ * new FilterChain(List.of(FilterStep.notch(50), FilterStep.bandPass(1, 45), FilterStep.detrend())).apply(dataExtractor);
+ * }</pre>
+ *
+ * @param steps the filter steps, in the order they are applied.
+ */
+public record FilterChain(List<FilterStep> steps) {
+
+    /**
+     * Constructor.
+     *
+     * @param steps the filter steps, in the order they are applied.
+     */
+    public FilterChain {
+        steps = List.copyOf(steps);
+    }
+
+    /**
+     * Applies the chain, in place, to the EEG and EXG channels of the data, on the common fork-join pool.
+     *
+     * @param dataExtractor the data extractor holding the data.
+     * @throws BrainFlowError from the BrainFlow API.
+     */
+    public void apply(DataExtractor dataExtractor) throws BrainFlowError {
+        apply(dataExtractor, dataExtractor.getSignalChannels(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Applies the chain, in place, to the channels whose data labels match any of the patterns, on the common fork-join pool.
+     *
+     * @param dataExtractor the data extractor holding the data.
+     * @param patterns      the label patterns, as for the column patterns of a chart.
+     * @throws BrainFlowError from the BrainFlow API.
+     */
+    public void apply(DataExtractor dataExtractor, List<String> patterns) throws BrainFlowError {
+        int[] channels = Arrays.stream(ChannelIndex.of(dataExtractor.getDataLabels()).select(patterns)).distinct().toArray();
+        apply(dataExtractor, channels, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Applies the chain, in place, to some channels of the data.
+     *
+     * @param dataExtractor the data extractor holding the data.
+     * @param channels      the channel (row) indices to filter.
+     * @param pool          the pool to run the per-channel tasks on.
+     * @throws BrainFlowError from the BrainFlow API.
+     */
+    public void apply(DataExtractor dataExtractor, int[] channels, ForkJoinPool pool) throws BrainFlowError {
+        long start = System.nanoTime();
+        double[][] data = dataExtractor.getData();
+        int samplingRate = dataExtractor.getSamplingRate();
+
+        List<Callable<Void>> tasks = new ArrayList<>(channels.length);
+        for (int channel : channels) {
+            double[] dataChannel = data[channel];
+            tasks.add(() -> {
+                apply(dataExtractor, dataChannel, samplingRate);
+                return null;
+            });
+        }
+
+        for (Future<Void> future : pool.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while filtering.", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof BrainFlowError brainFlowError) {
+                    throw brainFlowError;
+                }
+                throw new IllegalStateException("Filtering failed.", e.getCause());
+            }
+        }
+        Metrics.stage(Metrics.FILTER).record(System.nanoTime() - start);
+    }
+
+    /**
+     * Applies the chain, in place, to a single data channel, on the calling thread.
+     *
+     * @param dataExtractor the data extractor, providing the filter methods.
+     * @param dataChannel   data channel to filter.
+     * @param samplingRate  in Hz.
+     * @throws BrainFlowError from the BrainFlow API.
+     */
+    public void apply(DataExtractor dataExtractor, double[] dataChannel, int samplingRate) throws BrainFlowError {
+        for (FilterStep step : steps) {
+            step.apply(dataExtractor, dataChannel, samplingRate);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.bci.visualizer;
+
+import brainflow.BrainFlowError;
+import brainflow.DetrendOperations;
+import brainflow.FilterTypes;
+import brainflow.NoiseTypes;
+
+/**
+ * A single step of a {@link FilterChain}, applied in place to one data channel,
+ * through the filter methods of {@link DataExtractor}.
+ */
+public sealed interface FilterStep {
+
+    /**
+     * Default filter order.
+     */
+    int DEFAULT_ORDER = 4;
+
+    /**
+     * Half the width of a notch, in Hz.
+     */
+    double NOTCH_HALF_WIDTH = 1.0;
+
+    /**
+     * Applies the step to a data channel, in place.
+     *
+     * @param dataExtractor the data extractor, providing the filter methods.
+     * @param dataChannel   data channel to filter.
+     * @param samplingRate  in Hz.
+     * @throws BrainFlowError from the BrainFlow API.
+     */
+    void apply(DataExtractor dataExtractor, double[] dataChannel, int samplingRate) throws BrainFlowError;
+
+    /**
+     * Returns a notch filter, as a narrow band stop filter.
+     *
+     * @param frequency the frequency to remove, in Hz.
+     * @return the step.
+     */
+    static FilterStep notch(double frequency) {
+        return new BandStop(frequency - NOTCH_HALF_WIDTH, frequency + NOTCH_HALF_WIDTH, DEFAULT_ORDER, FilterTypes.BUTTERWORTH, 0);
+    }
+
+    /**
+     * Returns a Butterworth band pass filter.
+     *
+     * @param startFrequency the frequency to start the band pass filter.
+     * @param stopFrequency  the frequency to stop the band pass filter.
+     * @return the step.
+     */
+    static FilterStep bandPass(double startFrequency, double stopFrequency) {
+        return new BandPass(startFrequency, stopFrequency, DEFAULT_ORDER, FilterTypes.BUTTERWORTH, 0);
+    }
+
+    /**
+     * Returns a linear detrend.
+     *
+     * @return the step.
+     */
+    static FilterStep detrend() {
+        return new Detrend(DetrendOperations.LINEAR);
+    }
+
+    /**
+     * Low pass signal filter step.
+     *
+     * @param cutOff     cut off-frequency in Hz.
+     * @param order      order of the filter.
+     * @param filterType type of the filter.
+     * @param ripple     ripple for the filter.
+     */
+    record LowPass(double cutOff, int order, FilterTypes filterType, double ripple) implements FilterStep {
+        @Override
+        public void apply(DataExtractor dataExtractor, double[] dataChannel, int samplingRate) throws BrainFlowError {
+            dataExtractor.filterLowPass(dataChannel, samplingRate, cutOff, order, filterType, ripple);
+        }
+    }
+
+    /**
+     * High pass signal filter step.
+     *
+     * @param cutOff     cut off-frequency in Hz.
+     * @param order      order of the filter.
+     * @param filterType type of the filter.
+     * @param ripple     ripple for the filter.
+     */
+    record HighPass(double cutOff, int order, FilterTypes filterType, double ripple) implements FilterStep {
+        @Override
+        public void apply(DataExtractor dataExtractor, double[] dataChannel, int samplingRate) throws BrainFlowError {
+            dataExtractor.filterHighPass(dataChannel, samplingRate, cutOff, order, filterType, ripple);
+        }
+    }
+
+    /**
+     * Band pass signal filter step.
+     *
+     * @param startFrequency the frequency to start the band pass filter.
+     * @param stopFrequency  the frequency to stop the band pass filter.
+     * @param order          order of the filter.
+     * @param filterType     type of the filter.
+     * @param ripple         ripple for the filter.
+     */
+    record BandPass(double startFrequency, double stopFrequency, int order, FilterTypes filterType,
+                    double ripple) implements FilterStep {
+        @Override
+        public void apply(DataExtractor dataExtractor, double[] dataChannel, int samplingRate) throws BrainFlowError {
+            dataExtractor.filterBandPass(dataChannel, samplingRate, startFrequency, stopFrequency, order, filterType, ripple);
+        }
+    }
+
+    /**
+     * Band stop signal filter step.
+     *
+     * @param startFrequency the frequency to start the band stop filter.
+     * @param stopFrequency  the frequency to stop the band stop filter.
+     * @param order          order of the filter.
+     * @param filterType     type of the filter.
+     * @param ripple         ripple for the filter.
+     */
+    record BandStop(double startFrequency, double stopFrequency, int order, FilterTypes filterType,
+                    double ripple) implements FilterStep {
+        @Override
+        public void apply(DataExtractor dataExtractor, double[] dataChannel, int samplingRate) throws BrainFlowError {
+            dataExtractor.filterBandStop(dataChannel, samplingRate, startFrequency, stopFrequency, order, filterType, ripple);
+        }
+    }
+
+    /**
+     * Remove environmental noise signal filter step.
+     *
+     * @param noiseType type of the noise to remove.
+     */
+    record EnvironmentalNoise(NoiseTypes noiseType) implements FilterStep {
+        @Override
+        public void apply(DataExtractor dataExtractor, double[] dataChannel, int samplingRate) throws BrainFlowError {
+            dataExtractor.filterRemoveEnvironmentalNoise(dataChannel, samplingRate, noiseType);
+        }
+    }
+
+    /**
+     * Detrend signal filter step.
+     *
+     * @param operation the detrend operation.
+     */
+    record Detrend(DetrendOperations operation) implements FilterStep {
+        @Override
+        public void apply(DataExtractor dataExtractor, double[] dataChannel, int samplingRate) throws BrainFlowError {
+            dataExtractor.filterDetrend(dataChannel, operation);
+        }
+    }
+}
@@ -2,10 +2,18 @@ package org.example.bci.visualizer;
 
 import brainflow.BrainFlowInputParams;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
 /**
  * Parses the command line parameters.
  */
 public class ParamParser {
+    // Parameters of one board of a multi-board session, e.g. "--b2-serial-port".
+    private static final Pattern BOARD_PARAM = Pattern.compile("--b\\d+-.+");
+
     /**
      * Parses the command line parameters.
      *
@@ -14,9 +22,21 @@ public class ParamParser {
      * @return the board ID.
      */
     public static int parseParams(String[] args, BrainFlowInputParams params) {
+        return parseParams(args, params, new SessionParams());
+    }
+
+    /**
+     * Parses the command line parameters, including the session settings.
+     *
+     * @param args          command line arguments.
+     * @param params        BrainFlowInputParams to populate.
+     * @param sessionParams SessionParams to populate.
+     * @return the board ID.
+     */
+    public static int parseParams(String[] args, BrainFlowInputParams params, SessionParams sessionParams) {
         int boardId = -1;
 
-        for (int i = 0; i < args.length; ++i) {
+        for (int i = 0; i + 1 < args.length; ++i) {
             String argId = args[i];
             String argValue = args[i + 1];
 
@@ -29,9 +49,55 @@ public class ParamParser {
                 case "--timeout" -> params.timeout = Integer.parseInt(argValue);
                 case "--serial-number" -> params.serial_number = argValue;
                 case "--file" -> params.file = argValue;
+                case "--session-millis" -> sessionParams.setSessionMillis(Long.parseLong(argValue));
+                case "--capture" -> sessionParams.setCaptureFile(argValue);
+                case "--compress-capture" -> sessionParams.setCompressCapture(Boolean.parseBoolean(argValue));
+                case "--replay" -> sessionParams.setReplayFile(argValue);
+                case "--replay-speed" -> sessionParams.setReplaySpeed(Double.parseDouble(argValue));
+                case "--replay-from" -> sessionParams.setReplayFrom(Double.parseDouble(argValue));
+                case "--replay-to" -> sessionParams.setReplayTo(Double.parseDouble(argValue));
+                case "--replay-all" -> sessionParams.setReplayAll(Boolean.parseBoolean(argValue));
+                case "--sample-count" -> sessionParams.setSampleCount(Integer.parseInt(argValue));
+                case "--dump-every" -> sessionParams.setDumpEvery(Integer.parseInt(argValue));
+                case "--metrics-millis" -> sessionParams.setMetricsMillis(Long.parseLong(argValue));
+                case "--stream-export" -> sessionParams.setStreamExport(Boolean.parseBoolean(argValue));
+                case "--stream-filter" -> sessionParams.setStreamFilter(argValue);
+                case "--stream-filter-settle" -> sessionParams.setStreamFilterSettle(Boolean.parseBoolean(argValue));
+                case "--project" -> sessionParams.setProjection(Boolean.parseBoolean(argValue));
+                case "--precision" -> sessionParams.setPrecision(SampleRingBuffer.Precision.valueOf(argValue.toUpperCase()));
+                case "--boards" -> sessionParams.setBoardIds(Arrays.stream(argValue.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray());
             }
         }
 
         return boardId;
     }
+
+    /**
+     * Returns the command line parameters of one board of a multi-board session: the common parameters, followed by
+     * the parameters prefixed with the board number, e.g. "--b2-serial-port COM4" as "--serial-port COM4" for board 2,
+     * so they take precedence. The parameters of the other boards are left out.
+     *
+     * @param args        command line arguments.
+     * @param boardNumber the board number, from 1, in the order of --boards.
+     * @return the arguments of the board.
+     */
+    public static String[] boardArgs(String[] args, int boardNumber) {
+        String prefix = "--b" + boardNumber + "-";
+        List<String> common = new ArrayList<>();
+        List<String> board = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!BOARD_PARAM.matcher(args[i]).matches()) {
+                common.add(args[i]);
+                continue;
+            }
+            if (args[i].startsWith(prefix) && i + 1 < args.length) {
+                board.add("--" + args[i].substring(prefix.length()));
+                board.add(args[i + 1]);
+            }
+            // Skip the value.
+            i++;
+        }
+        common.addAll(board);
+        return common.toArray(String[]::new);
+    }
 }
@@ -0,0 +1,117 @@
+package org.example.bci.visualizer;
+
+import brainflow.BrainFlowError;
+import brainflow.DataFilter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Replays a recorded session, in chunks, at real time, a multiple of real time, or as fast as possible.
+ * <p>
+ * Samples are passed on unchanged, so the original timestamps are kept.
+ * Pacing follows the timestamp channel, or the sampling rate when there is no timestamp channel.
+ */
+public class Replayer {
+    private static final Logger log = LogManager.getLogger(Replayer.class);
+
+    // Chunk length, in seconds of recorded time, like the drain interval of a live session.
+    static final double CHUNK_SECONDS = 0.1;
+
+    private final SampleSource source;
+    private final int samplingRate;
+    private final int timestampChannel;
+    private final int chunkSamples;
+
+    /**
+     * Constructor for a given source.
+     *
+     * @param source           the recorded session.
+     * @param samplingRate     the sampling rate in Hz.
+     * @param timestampChannel the timestamp channel (row) index, or -1 for none.
+     */
+    public Replayer(SampleSource source, int samplingRate, int timestampChannel) {
+        this.source = source;
+        this.samplingRate = Math.max(1, samplingRate);
+        this.timestampChannel = timestampChannel;
+        this.chunkSamples = (int) Math.max(1, Math.round(this.samplingRate * CHUNK_SECONDS));
+    }
+
+    /**
+     * Returns a replayer for a file written by {@link DataFilter#write_file(double[][], String, String)}.
+     *
+     * @param fileName         the file name.
+     * @param samplingRate     the sampling rate in Hz.
+     * @param timestampChannel the timestamp channel (row) index, or -1 for none.
+     * @return the replayer.
+     * @throws BrainFlowError from the BrainFlow API.
+     */
+    public static Replayer fromBrainFlowFile(String fileName, int samplingRate, int timestampChannel) throws BrainFlowError {
+        return new Replayer(SampleSource.of(DataFilter.read_file(fileName)), samplingRate, timestampChannel);
+    }
+
+    /**
+     * Returns the recorded session.
+     *
+     * @return the source.
+     */
+    public SampleSource getSource() {
+        return source;
+    }
+
+    /**
+     * Replays the session into a chunk consumer, on the calling thread.
+     *
+     * @param sink    the chunk consumer, receiving samples as [channel][sample].
+     * @param speed   the replay speed, 1 for real time, zero or less for as fast as possible.
+     * @param running checked before each chunk, replay stops when it returns false.
+     * @throws IOException          from reading the recording.
+     * @throws InterruptedException when interrupted while pacing.
+     */
+    public void replay(Consumer<double[][]> sink, double speed, BooleanSupplier running) throws IOException, InterruptedException {
+        long sampleCount = source.getSampleCount();
+        long startNanos = System.nanoTime();
+        double firstTime = Double.NaN;
+
+        for (long from = 0; from < sampleCount && running.getAsBoolean(); from += chunkSamples) {
+            double[][] chunk = source.read(from, chunkSamples);
+            int length = chunk.length == 0 ? 0 : chunk[0].length;
+            if (length == 0) {
+                break;
+            }
+
+            if (speed > 0) {
+                // Release the chunk when its last sample would have arrived, scaled by the speed.
+                double time = recordedTime(chunk, length - 1, from + length - 1);
+                if (Double.isNaN(firstTime)) {
+                    firstTime = recordedTime(chunk, 0, from);
+                }
+                long dueNanos = startNanos + (long) ((time - firstTime) * 1e9 / speed);
+                TimeUnit.NANOSECONDS.sleep(dueNanos - System.nanoTime());
+            }
+
+            sink.accept(chunk);
+        }
+
+        log.info("Replayed {} samples in {}ms", sampleCount, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Returns the recorded time of a sample.
+     *
+     * @param chunk       the chunk holding the sample.
+     * @param index       the sample index within the chunk.
+     * @param sampleIndex the sample index within the session.
+     * @return the time in seconds.
+     */
+    private double recordedTime(double[][] chunk, int index, long sampleIndex) {
+        if (timestampChannel >= 0 && timestampChannel < chunk.length && Double.isFinite(chunk[timestampChannel][index])) {
+            return chunk[timestampChannel][index];
+        }
+        return (double) sampleIndex / samplingRate;
+    }
+}
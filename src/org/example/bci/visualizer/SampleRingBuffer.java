@@ -0,0 +1,338 @@
+package org.example.bci.visualizer;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * Fixed capacity, channel-major sample store, keeping the most recent samples of a session.
+ * <p>
+ * One thread writes, any number of threads read, and no locks are taken.
+ * The writer claims the samples it is about to overwrite before writing, and publishes them when done.
+ * Readers get zero-copy windows over published samples, and check {@link Window#isValid()} after reading,
+ * to find out whether the writer lapped them in the meantime.
+ * <p>
+ * Samples are stored as doubles, or as floats, see {@link Precision}, and are always read as doubles.
+ */
+public class SampleRingBuffer {
+
+    /**
+     * Sample storage precisions.
+     */
+    public enum Precision {
+        /**
+         * 64 bit samples, exactly as acquired.
+         */
+        DOUBLE,
+        /**
+         * 32 bit samples, taking half the memory, with about 7 significant digits, e.g. 0.1 µV for EEG samples
+         * of up to a volt. Too coarse for timestamps, which are kept as doubles.
+         */
+        FLOAT
+    }
+
+    // Per channel, one of the two columns is null.
+    private final double[][] columns;
+    private final float[][] floatColumns;
+    private final Precision precision;
+    private final int capacity;
+
+    // Sequence numbers, counting samples since creation.
+    private volatile long claimed = 0;
+    private volatile long published = 0;
+
+    /**
+     * Constructor for a given number of channels and capacity.
+     *
+     * @param channelCount number of channels (rows) per sample.
+     * @param capacity     number of samples to keep.
+     */
+    public SampleRingBuffer(int channelCount, int capacity) {
+        this(channelCount, capacity, Precision.DOUBLE);
+    }
+
+    /**
+     * Constructor for a given number of channels, capacity and precision.
+     *
+     * @param channelCount   number of channels (rows) per sample.
+     * @param capacity       number of samples to keep.
+     * @param precision      the storage precision.
+     * @param doubleChannels channels always stored as doubles, e.g. the timestamp channel.
+     */
+    public SampleRingBuffer(int channelCount, int capacity, Precision precision, int... doubleChannels) {
+        if (channelCount <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Channel count and capacity must be positive.");
+        }
+        this.columns = new double[channelCount][];
+        this.floatColumns = new float[channelCount][];
+        this.precision = precision;
+        this.capacity = capacity;
+        for (int channel : doubleChannels) {
+            if (channel >= 0 && channel < channelCount) {
+                columns[channel] = new double[capacity];
+            }
+        }
+        for (int channel = 0; channel < channelCount; channel++) {
+            if (columns[channel] == null) {
+                if (precision == Precision.FLOAT) {
+                    floatColumns[channel] = new float[capacity];
+                } else {
+                    columns[channel] = new double[capacity];
+                }
+            }
+        }
+    }
+
+    /**
+     * Constructor for existing columns.
+     *
+     * @param columns   columns to use as storage, all of the same length.
+     * @param published number of samples already held.
+     */
+    private SampleRingBuffer(double[][] columns, long published) {
+        this.columns = columns;
+        this.floatColumns = new float[columns.length][];
+        this.precision = Precision.DOUBLE;
+        this.capacity = columns.length == 0 ? 0 : columns[0].length;
+        this.claimed = published;
+        this.published = published;
+    }
+
+    /**
+     * Wraps existing data, without copying it, as a full buffer.
+     *
+     * @param data samples as [channel][sample], as returned by BrainFlow.
+     * @return the buffer, holding all the samples.
+     */
+    public static SampleRingBuffer wrap(double[][] data) {
+        return new SampleRingBuffer(data, data.length == 0 ? 0 : data[0].length);
+    }
+
+    /**
+     * Appends a chunk of samples, overwriting the oldest samples when full.
+     * Must only be called from the single writer thread.
+     *
+     * @param chunk samples as [channel][sample], as returned by BrainFlow.
+     */
+    public void write(double[][] chunk) {
+        if (chunk == null || chunk.length == 0 || capacity == 0) {
+            return;
+        }
+        int chunkLength = chunk[0].length;
+        long start = published;
+        long end = start + chunkLength;
+
+        // Only the tail of an oversized chunk can survive.
+        int skip = Math.max(0, chunkLength - capacity);
+        int length = chunkLength - skip;
+        int offset = (int) ((start + skip) % capacity);
+        int firstPart = Math.min(length, capacity - offset);
+
+        claimed = end;
+        // Keep the sample stores below from moving above the claimed store, so a reader seeing them sees the claim.
+        VarHandle.storeStoreFence();
+        for (int channel = 0; channel < columns.length; channel++) {
+            if (columns[channel] != null) {
+                System.arraycopy(chunk[channel], skip, columns[channel], offset, firstPart);
+                System.arraycopy(chunk[channel], skip + firstPart, columns[channel], 0, length - firstPart);
+            } else {
+                narrow(chunk[channel], skip, floatColumns[channel], offset, firstPart);
+                narrow(chunk[channel], skip + firstPart, floatColumns[channel], 0, length - firstPart);
+            }
+        }
+        published = end;
+    }
+
+    /**
+     * Copies doubles into floats.
+     *
+     * @param src     source array.
+     * @param srcPos  first source index.
+     * @param dest    destination array.
+     * @param destPos first destination index.
+     * @param length  number of values.
+     */
+    private static void narrow(double[] src, int srcPos, float[] dest, int destPos, int length) {
+        for (int i = 0; i < length; i++) {
+            dest[destPos + i] = (float) src[srcPos + i];
+        }
+    }
+
+    /**
+     * Returns the number of channels.
+     *
+     * @return channel count.
+     */
+    public int getChannelCount() {
+        return columns.length;
+    }
+
+    /**
+     * Returns the storage precision, of all channels but those always stored as doubles.
+     *
+     * @return the precision.
+     */
+    public Precision getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Returns the capacity.
+     *
+     * @return capacity in samples.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the total number of samples written, since creation.
+     *
+     * @return samples written.
+     */
+    public long getWritten() {
+        return published;
+    }
+
+    /**
+     * Returns the number of samples currently held.
+     *
+     * @return samples held.
+     */
+    public int size() {
+        return (int) Math.min(published, capacity);
+    }
+
+    /**
+     * Returns a zero-copy window over the most recent samples of a channel.
+     *
+     * @param channel the channel (row) index.
+     * @param length  the maximum number of samples.
+     * @return the window, which might hold fewer samples than requested.
+     */
+    public Window latest(int channel, int length) {
+        long end = published;
+        return window(channel, end - length, length);
+    }
+
+    /**
+     * Returns a zero-copy window over a range of samples of a channel.
+     * The range is clipped to the samples currently held.
+     *
+     * @param channel the channel (row) index.
+     * @param from    the sequence number of the first sample.
+     * @param length  the maximum number of samples.
+     * @return the window, which might hold fewer samples than requested.
+     */
+    public Window window(int channel, long from, int length) {
+        long end = published;
+        long start = Math.max(from, Math.max(0, end - capacity));
+        long stop = Math.min(from + length, end);
+        return new Window(columns[channel], floatColumns[channel], start, (int) Math.max(0, stop - start));
+    }
+
+    /**
+     * Copies the held samples into a new array, oldest sample first.
+     * Must only be called from the writer thread, or once writing has ended.
+     *
+     * @return samples as [channel][sample].
+     */
+    public double[][] snapshot() {
+        double[][] result = new double[getChannelCount()][];
+        for (int channel = 0; channel < result.length; channel++) {
+            Window window = latest(channel, capacity);
+            result[channel] = new double[window.length()];
+            window.copyTo(result[channel], 0);
+        }
+        return result;
+    }
+
+    /**
+     * A read-only view over a range of samples in a single channel.
+     */
+    public final class Window {
+        private final double[] column;
+        private final float[] floatColumn;
+        private final long from;
+        private final int length;
+
+        /**
+         * Constructor.
+         *
+         * @param column      the backing column, or null.
+         * @param floatColumn the backing float column, if there is no double column, else null.
+         * @param from        the sequence number of the first sample.
+         * @param length      the number of samples.
+         */
+        private Window(double[] column, float[] floatColumn, long from, int length) {
+            this.column = column;
+            this.floatColumn = floatColumn;
+            this.from = from;
+            this.length = length;
+        }
+
+        /**
+         * Returns the sequence number of the first sample.
+         *
+         * @return sequence number.
+         */
+        public long from() {
+            return from;
+        }
+
+        /**
+         * Returns the number of samples.
+         *
+         * @return number of samples.
+         */
+        public int length() {
+            return length;
+        }
+
+        /**
+         * Returns a sample.
+         *
+         * @param index index within the window.
+         * @return the sample value.
+         */
+        public double get(int index) {
+            int position = (int) ((from + index) % capacity);
+            return column != null ? column[position] : floatColumn[position];
+        }
+
+        /**
+         * Copies the samples into an array.
+         *
+         * @param dest   destination array.
+         * @param offset offset in the destination array.
+         */
+        public void copyTo(double[] dest, int offset) {
+            if (length == 0) {
+                return;
+            }
+            int start = (int) (from % capacity);
+            int firstPart = Math.min(length, capacity - start);
+            if (column != null) {
+                System.arraycopy(column, start, dest, offset, firstPart);
+                System.arraycopy(column, 0, dest, offset + firstPart, length - firstPart);
+            } else {
+                for (int i = 0; i < firstPart; i++) {
+                    dest[offset + i] = floatColumn[start + i];
+                }
+                for (int i = 0; i < length - firstPart; i++) {
+                    dest[offset + firstPart + i] = floatColumn[i];
+                }
+            }
+        }
+
+        /**
+         * Returns whether the samples read so far are still valid, i.e. the writer has not overwritten any of them.
+         * Call after reading.
+         *
+         * @return true if valid.
+         */
+        public boolean isValid() {
+            // Keep the sample reads above from moving below the claimed read.
+            VarHandle.loadLoadFence();
+            return from >= claimed - capacity;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.bci.visualizer;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A recorded session, readable in ranges of samples.
+ */
+public interface SampleSource {
+
+    /**
+     * Returns the number of channels (rows) per sample.
+     *
+     * @return channel count.
+     */
+    int getChannelCount();
+
+    /**
+     * Returns the number of samples.
+     *
+     * @return number of samples.
+     */
+    long getSampleCount();
+
+    /**
+     * Reads a range of samples of all channels.
+     *
+     * @param from   the first sample index.
+     * @param length the maximum number of samples.
+     * @return samples as [channel][sample], clipped to the samples in the recording.
+     * @throws IOException from reading the recording.
+     */
+    double[][] read(long from, int length) throws IOException;
+
+    /**
+     * Returns a view of a range of the samples, read from this source when read from the view.
+     *
+     * @param from the first sample index.
+     * @param to   the sample index after the last sample, clipped to the samples in the recording.
+     * @return the view, with its samples indexed from zero.
+     */
+    default SampleSource slice(long from, long to) {
+        SampleSource source = this;
+        long start = Math.max(0, Math.min(from, getSampleCount()));
+        long end = Math.max(start, Math.min(to, getSampleCount()));
+        return new SampleSource() {
+            @Override
+            public int getChannelCount() {
+                return source.getChannelCount();
+            }
+
+            @Override
+            public long getSampleCount() {
+                return end - start;
+            }
+
+            @Override
+            public double[][] read(long from, int length) throws IOException {
+                long first = Math.min(start + from, end);
+                return source.read(first, (int) Math.min(length, end - first));
+            }
+        };
+    }
+
+    /**
+     * Returns an in-memory source, e.g. for data read with {@link brainflow.DataFilter#read_file(String)}.
+     *
+     * @param data samples as [channel][sample].
+     * @return the source.
+     */
+    static SampleSource of(double[][] data) {
+        return new SampleSource() {
+            @Override
+            public int getChannelCount() {
+                return data.length;
+            }
+
+            @Override
+            public long getSampleCount() {
+                return data.length == 0 ? 0 : data[0].length;
+            }
+
+            @Override
+            public double[][] read(long from, int length) {
+                int start = (int) Math.min(from, getSampleCount());
+                int end = (int) Math.min(from + length, getSampleCount());
+                double[][] chunk = new double[data.length][];
+                for (int c = 0; c < data.length; c++) {
+                    chunk[c] = Arrays.copyOfRange(data[c], start, end);
+                }
+                return chunk;
+            }
+        };
+    }
+}
@@ -0,0 +1,548 @@
+package org.example.bci.visualizer;
+
+import brainflow.BoardDescr;
+import brainflow.BoardShim;
+import brainflow.BrainFlowError;
+import brainflow.BrainFlowInputParams;
+import brainflow.LogLevels;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.bci.visualizer.metrics.BoardMetrics;
+import org.example.bci.visualizer.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Acquires one session from several boards at once, possibly of different types, e.g. several synthetic boards.
+ * <p>
+ * Each board is drained on its own virtual thread, so a slow board never holds up the others, and the calling
+ * thread merges the drained chunks into one stream, with the rows of each board following the rows of the boards
+ * before it and the data labels prefixed per board, e.g. "B2 Fp1". The merged stream goes through one
+ * {@link DataExtractor}, so the chunk listeners, the capture file and the Excel export work as for a single board.
+ * <p>
+ * Boards are aligned by timestamp: the merged rows follow the samples of the first board, and every other board
+ * contributes its sample nearest in time to each row, so boards of different sampling rates are resampled to the
+ * rate of the first board. When a board delivers no samples for {@link #MAX_LAG_SECONDS}, its samples are filled
+ * with NaN, so the session keeps going.
+ */
+public class SessionCoordinator {
+    private static final Logger log = LogManager.getLogger(SessionCoordinator.class);
+
+    /**
+     * A board of the session.
+     *
+     * @param boardId the board id.
+     * @param params  the BrainFlow input params of the board.
+     */
+    public record Board(int boardId, BrainFlowInputParams params) {
+    }
+
+    // How long, in seconds, a board may deliver no samples before its samples are filled with NaN.
+    static final double MAX_LAG_SECONDS = 5;
+
+    // How many sample periods, of the slower of two boards, a sample may be off the time of a merged row.
+    static final double ALIGN_PERIODS = 2;
+
+    private final List<Board> boards;
+    private final List<BoardDescr> boardDescrs = new ArrayList<>();
+    private final DataExtractor dataExtractor;
+
+    /**
+     * Constructor, looking up the board descriptors and building the merged data extractor.
+     *
+     * @param boards      the boards, in row order.
+     * @param sampleCount number of samples to keep for the export.
+     * @throws BrainFlowError from the BrainFlow API.
+     */
+    public SessionCoordinator(List<Board> boards, int sampleCount) throws BrainFlowError {
+        if (boards.isEmpty()) {
+            throw new IllegalArgumentException("At least one board is needed.");
+        }
+        this.boards = List.copyOf(boards);
+        disambiguate(this.boards);
+
+        List<String> dataLabels = new ArrayList<>();
+        for (int i = 0; i < this.boards.size(); i++) {
+            int boardId = this.boards.get(i).boardId();
+            BoardDescr boardDescr = BoardShim.get_board_descr(BoardDescr.class, boardId);
+            boardDescrs.add(boardDescr);
+            for (String label : new DataExtractor(boardId, boardDescr, 1).getDataLabels()) {
+                dataLabels.add(getBoardPrefix(i) + label);
+            }
+        }
+
+        int samplingRate = boardDescrs.get(0).sampling_rate;
+        for (BoardDescr boardDescr : boardDescrs) {
+            if (boardDescr.sampling_rate != samplingRate) {
+                log.info("Board {} samples at {} Hz, and is resampled to the {} Hz of the first board.", boardDescr.name, boardDescr.sampling_rate, samplingRate);
+            }
+        }
+
+        dataExtractor = new DataExtractor(this.boards.get(0).boardId(), BoardDescriptors.merge(boardDescrs), sampleCount);
+        dataExtractor.setDataLabels(dataLabels.toArray(String[]::new));
+    }
+
+    /**
+     * Gives boards of the same type, with blank other info, an other info of their own, as BrainFlow only opens
+     * one session per board id and params, e.g. for several synthetic boards.
+     *
+     * @param boards the boards.
+     */
+    private static void disambiguate(List<Board> boards) {
+        for (int i = 0; i < boards.size(); i++) {
+            Board board = boards.get(i);
+            boolean shared = boards.stream().filter(other -> other.boardId() == board.boardId()).count() > 1;
+            if (shared && (board.params().other_info == null || board.params().other_info.isBlank())) {
+                board.params().other_info = "board " + (i + 1);
+            }
+        }
+    }
+
+    /**
+     * Returns the data label prefix of a board.
+     *
+     * @param index the board index, in row order.
+     * @return the prefix, e.g. "B1 ".
+     */
+    public static String getBoardPrefix(int index) {
+        return "B" + (index + 1) + " ";
+    }
+
+    /**
+     * Runs the session, until the session time has passed or {@link DataExtractor#stopContinuous()} is called.
+     *
+     * @param sessionMillis session length in millis, zero or less to run until stopped.
+     * @throws Exception from the BrainFlow API.
+     */
+    public void run(long sessionMillis) throws Exception {
+        long deadline = sessionMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sessionMillis) : Long.MAX_VALUE;
+        dataExtractor.acquire((sink, running) -> feed(sink, running, deadline));
+    }
+
+    /**
+     * Opens the boards, drains each on its own virtual thread, and merges their chunks into the sink until stopped.
+     *
+     * @param sink     the merged chunk consumer.
+     * @param running  checked between merges, the session stops when it returns false.
+     * @param deadline the System.nanoTime() at which the session stops.
+     * @throws Exception from the BrainFlow API.
+     */
+    private void feed(Consumer<double[][]> sink, BooleanSupplier running, long deadline) throws Exception {
+        BoardShim.enable_board_logger();
+
+        List<BoardStream> streams = new ArrayList<>();
+        try {
+            int rowOffset = 0;
+            for (int i = 0; i < boards.size(); i++) {
+                Board board = boards.get(i);
+                BoardDescr boardDescr = boardDescrs.get(i);
+                BoardStream stream = new BoardStream(getBoardPrefix(i).trim(), new BoardShim(board.boardId(), board.params()), rowOffset, boardDescr, dataExtractor.getBufferSize());
+                stream.metrics = Metrics.board(getBoardPrefix(i) + boardDescr.name);
+                stream.boardShim.prepare_session();
+                streams.add(stream);
+                rowOffset += stream.rows;
+            }
+            for (BoardStream stream : streams) {
+                stream.boardShim.start_stream(dataExtractor.getBufferSize());
+                stream.lastDelivery = System.nanoTime();
+            }
+            BoardShim.log_message(LogLevels.LEVEL_INFO, "Draining %s boards every %sms...".formatted(streams.size(), dataExtractor.getDrainMillis()));
+
+            long drainNanos = TimeUnit.MILLISECONDS.toNanos(dataExtractor.getDrainMillis());
+            for (BoardStream stream : streams) {
+                stream.thread = Thread.ofVirtual().name("drain-" + stream.name).start(() -> stream.drainUntil(running, deadline, drainNanos));
+            }
+
+            long nextMerge = System.nanoTime();
+            while (running.getAsBoolean() && System.nanoTime() < deadline) {
+                nextMerge += drainNanos;
+                TimeUnit.NANOSECONDS.sleep(Math.min(nextMerge, deadline) - System.nanoTime());
+                merge(streams, sink, false);
+            }
+
+            // The drain threads stop on their own, once the session has stopped.
+            for (BoardStream stream : streams) {
+                stream.thread.join();
+            }
+            for (BoardStream stream : streams) {
+                stream.boardShim.stop_stream();
+                // Pick up whatever arrived after the last scheduled drain.
+                stream.drain();
+            }
+            merge(streams, sink, true);
+        } finally {
+            for (BoardStream stream : streams) {
+                if (stream.thread != null) {
+                    // Only still running when the session failed.
+                    stream.thread.interrupt();
+                    stream.thread.join();
+                }
+                stream.boardShim.release_session();
+            }
+        }
+    }
+
+    /**
+     * Merges the samples that the boards have delivered into one chunk, and passes it on to the sink.
+     * <p>
+     * The rows of the chunk follow the timestamps of the first board, the reference, and every other board fills
+     * each row with its sample nearest in time, or with NaN when it has none within {@link #ALIGN_PERIODS} sample periods.
+     * A row is merged once every other board has delivered a sample at or after it, or lags, or the session ends.
+     * While the reference board lags, the rows follow its sampling rate, with its samples filled with NaN.
+     *
+     * @param streams the board streams, the reference board first.
+     * @param sink    the merged chunk consumer.
+     * @param flush   true to merge all pending samples, at the end of the session.
+     * @throws BrainFlowError from a drain thread.
+     */
+    private void merge(List<BoardStream> streams, Consumer<double[][]> sink, boolean flush) throws BrainFlowError {
+        long now = System.nanoTime();
+        for (BoardStream stream : streams) {
+            stream.collect(now);
+        }
+        BoardStream reference = streams.get(0);
+        List<BoardStream> others = streams.subList(1, streams.size());
+
+        // Rows are merged up to the time that every other board has covered.
+        double until = Double.POSITIVE_INFINITY;
+        double earliest = Double.POSITIVE_INFINITY;
+        double latest = Double.NEGATIVE_INFINITY;
+        for (BoardStream other : others) {
+            double lastTime = other.pendingCount == 0 ? Double.NEGATIVE_INFINITY : other.times[other.pendingCount - 1];
+            if (!flush && !other.lagging) {
+                until = Math.min(until, lastTime);
+            }
+            if (other.pendingCount > 0) {
+                earliest = Math.min(earliest, other.times[0]);
+                latest = Math.max(latest, lastTime);
+            }
+        }
+
+        int length = reference.countUntil(until);
+        double[] times = Arrays.copyOf(reference.times, length);
+        if (reference.lagging && length == reference.pendingCount) {
+            times = reference.clock(times, Double.isInfinite(until) ? latest : until, earliest);
+        }
+        if (times.length == 0) {
+            return;
+        }
+
+        double[][] chunk = new double[dataExtractor.getSourceBoardDescr().num_rows][];
+        reference.take(chunk, times, length);
+        for (BoardStream other : others) {
+            other.takeNearest(chunk, times, ALIGN_PERIODS / Math.min(reference.samplingRate, other.samplingRate));
+        }
+        sink.accept(chunk);
+    }
+
+    /**
+     * Returns the data extractor of the merged session.
+     *
+     * @return data extractor.
+     */
+    public DataExtractor getDataExtractor() {
+        return dataExtractor;
+    }
+
+    /**
+     * Returns the boards of the session.
+     *
+     * @return boards, in row order.
+     */
+    public List<Board> getBoards() {
+        return boards;
+    }
+
+    /**
+     * A chunk drained from a board.
+     *
+     * @param samples the samples, as [channel][sample].
+     * @param times   the timestamp of every sample, in seconds.
+     */
+    private record Drained(double[][] samples, double[] times) {
+    }
+
+    /**
+     * One board of a running session, drained on its own thread into a queue, and merged from the pending samples.
+     */
+    private static final class BoardStream {
+        private final String name;
+        private final BoardShim boardShim;
+        private final int rowOffset;
+        private final int rows;
+        private final int samplingRate;
+        private final int timestampChannel;
+        private final int packageChannel;
+        private final int bufferSize;
+        private final Queue<Drained> drained = new ConcurrentLinkedQueue<>();
+        private volatile BrainFlowError error;
+        private Thread thread;
+        private BoardMetrics metrics;
+        // The time of the next sample of a board without a timestamp channel, owned by the draining thread.
+        private double nextTime = Double.NaN;
+
+        // Samples drained but not merged yet, and their times, owned by the merging thread.
+        private double[][] pending;
+        private double[] times;
+        private int pendingCount = 0;
+        // The pending sample nearest to the last merged row.
+        private int cursor = 0;
+        private long lastDelivery;
+        private boolean lagging = false;
+        // The time of the last merged row, and the last row merged while lagging, as samples up to it arrive too late.
+        private double clockTime = Double.NaN;
+        private double skipUntil = Double.NaN;
+
+        /**
+         * Constructor.
+         *
+         * @param name       the board name, for logging.
+         * @param boardShim  the board.
+         * @param rowOffset  the first row of the board in the merged session.
+         * @param boardDescr the board descriptor.
+         * @param bufferSize the board buffer size, in samples.
+         */
+        BoardStream(String name, BoardShim boardShim, int rowOffset, BoardDescr boardDescr, int bufferSize) {
+            this.name = name;
+            this.boardShim = boardShim;
+            this.rowOffset = rowOffset;
+            this.rows = boardDescr.num_rows;
+            this.samplingRate = boardDescr.sampling_rate;
+            this.timestampChannel = boardDescr.timestamp_channel >= 0 && boardDescr.timestamp_channel < rows ? boardDescr.timestamp_channel : -1;
+            this.packageChannel = boardDescr.package_num_channel;
+            this.bufferSize = bufferSize;
+            this.pending = new double[rows][bufferSize];
+            this.times = new double[bufferSize];
+        }
+
+        /**
+         * Drains the board on a fixed schedule, until the session stops or a drain fails.
+         *
+         * @param running    checked between drains.
+         * @param deadline   the System.nanoTime() at which the session stops.
+         * @param drainNanos the drain interval.
+         */
+        void drainUntil(BooleanSupplier running, long deadline, long drainNanos) {
+            try {
+                long nextDrain = System.nanoTime();
+                while (running.getAsBoolean() && System.nanoTime() < deadline) {
+                    nextDrain += drainNanos;
+                    drain();
+                    TimeUnit.NANOSECONDS.sleep(Math.min(nextDrain, deadline) - System.nanoTime());
+                }
+            } catch (BrainFlowError e) {
+                error = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Drains all samples currently in the board buffer into the queue.
+         *
+         * @throws BrainFlowError from the BrainFlow API.
+         */
+        void drain() throws BrainFlowError {
+            int count = boardShim.get_board_data_count();
+            metrics.recordBufferFill(count, bufferSize);
+            if (count == 0) {
+                return;
+            }
+            double[][] chunk = boardShim.get_board_data();
+            if (chunk[0].length >= bufferSize) {
+                log.warn("Board {} buffer was full when drained, samples might have been dropped.", name);
+            }
+            metrics.recordChunk(chunk, packageChannel);
+            drained.add(new Drained(chunk, timesOf(chunk)));
+        }
+
+        /**
+         * Returns the timestamps of a drained chunk, or times at the sampling rate, ending now, for a board without a timestamp channel.
+         *
+         * @param chunk the drained chunk.
+         * @return the times, in seconds.
+         */
+        private double[] timesOf(double[][] chunk) {
+            if (timestampChannel >= 0) {
+                return chunk[timestampChannel];
+            }
+            int length = chunk[0].length;
+            if (Double.isNaN(nextTime)) {
+                nextTime = System.currentTimeMillis() / 1000.0 - (double) length / samplingRate;
+            }
+            double[] chunkTimes = new double[length];
+            for (int i = 0; i < length; i++) {
+                chunkTimes[i] = nextTime + (double) i / samplingRate;
+            }
+            nextTime += (double) length / samplingRate;
+            return chunkTimes;
+        }
+
+        /**
+         * Moves the drained chunks to the pending samples, and updates whether the board lags.
+         *
+         * @param now the System.nanoTime() of the merge.
+         * @throws BrainFlowError from the drain thread.
+         */
+        void collect(long now) throws BrainFlowError {
+            if (error != null) {
+                throw error;
+            }
+            Drained chunk;
+            while ((chunk = drained.poll()) != null) {
+                int length = chunk.times().length;
+                if (pendingCount + length > times.length) {
+                    int capacity = Math.max(times.length * 2, pendingCount + length);
+                    for (int row = 0; row < rows; row++) {
+                        pending[row] = Arrays.copyOf(pending[row], capacity);
+                    }
+                    times = Arrays.copyOf(times, capacity);
+                }
+                for (int i = 0; i < length; i++) {
+                    // Samples arriving after their rows were merged without them are dropped.
+                    if (chunk.times()[i] <= skipUntil) {
+                        continue;
+                    }
+                    for (int row = 0; row < rows; row++) {
+                        pending[row][pendingCount] = chunk.samples()[row][i];
+                    }
+                    times[pendingCount++] = chunk.times()[i];
+                }
+                lastDelivery = now;
+                if (lagging) {
+                    log.info("Board {} delivers samples again.", name);
+                    lagging = false;
+                }
+            }
+            if (!lagging && now - lastDelivery > TimeUnit.MILLISECONDS.toNanos((long) (MAX_LAG_SECONDS * 1000))) {
+                log.warn("Board {} delivered no samples for {}s, its samples are filled with NaN.", name, MAX_LAG_SECONDS);
+                lagging = true;
+            }
+        }
+
+        /**
+         * Returns the number of pending samples up to a time.
+         *
+         * @param until the time, in seconds.
+         * @return the sample count.
+         */
+        int countUntil(double until) {
+            int count = 0;
+            // Samples without a time do not hold up the samples after them.
+            while (count < pendingCount && !(times[count] > until)) {
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * Appends times at the sampling rate to the times of the merged rows, continuing the last merged row,
+         * for a board that lags.
+         *
+         * @param rowTimes the times of the rows so far.
+         * @param until    the last time to append.
+         * @param from     the first time to append, if no row was merged yet.
+         * @return the times of the rows.
+         */
+        double[] clock(double[] rowTimes, double until, double from) {
+            double last = rowTimes.length > 0 ? rowTimes[rowTimes.length - 1] : clockTime;
+            double first = Double.isNaN(last) ? from : last + 1.0 / samplingRate;
+            if (Double.isInfinite(first) || !(first <= until)) {
+                return rowTimes;
+            }
+            int count = (int) Math.floor((until - first) * samplingRate) + 1;
+            double[] result = Arrays.copyOf(rowTimes, rowTimes.length + count);
+            for (int i = 0; i < count; i++) {
+                result[rowTimes.length + i] = first + (double) i / samplingRate;
+            }
+            skipUntil = result[result.length - 1];
+            return result;
+        }
+
+        /**
+         * Takes the first pending samples into the rows of the board in a merged chunk, as the reference board,
+         * filling the rows after them with NaN, but for their times.
+         *
+         * @param chunk    the merged chunk, as [channel][sample].
+         * @param rowTimes the times of the merged rows.
+         * @param length   the number of pending samples to take.
+         */
+        void take(double[][] chunk, double[] rowTimes, int length) {
+            for (int row = 0; row < rows; row++) {
+                double[] values = Arrays.copyOf(pending[row], rowTimes.length);
+                Arrays.fill(values, length, rowTimes.length, Double.NaN);
+                chunk[rowOffset + row] = values;
+            }
+            if (timestampChannel >= 0) {
+                System.arraycopy(rowTimes, length, chunk[rowOffset + timestampChannel], length, rowTimes.length - length);
+            }
+            clockTime = rowTimes[rowTimes.length - 1];
+            discard(length);
+        }
+
+        /**
+         * Fills the rows of the board in a merged chunk with the pending samples nearest in time to the merged rows,
+         * or with NaN where none is within the tolerance, and drops the samples before the last one used.
+         *
+         * @param chunk     the merged chunk, as [channel][sample].
+         * @param rowTimes  the times of the merged rows.
+         * @param tolerance the largest time difference of a sample to its row, in seconds.
+         */
+        void takeNearest(double[][] chunk, double[] rowTimes, double tolerance) {
+            int[] nearest = new int[rowTimes.length];
+            for (int i = 0; i < rowTimes.length; i++) {
+                nearest[i] = nearest(rowTimes[i], tolerance);
+            }
+            for (int row = 0; row < rows; row++) {
+                double[] values = new double[rowTimes.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = nearest[i] < 0 ? Double.NaN : pending[row][nearest[i]];
+                }
+                chunk[rowOffset + row] = values;
+            }
+            discard(cursor);
+            cursor = 0;
+        }
+
+        /**
+         * Returns the pending sample nearest in time, moving the cursor up to the last sample not after the time.
+         *
+         * @param time      the time, in seconds, not before the time of the previous call.
+         * @param tolerance the largest time difference, in seconds.
+         * @return the sample index, or -1 if no sample is within the tolerance.
+         */
+        private int nearest(double time, double tolerance) {
+            if (pendingCount == 0 || Double.isNaN(time)) {
+                return -1;
+            }
+            while (cursor + 1 < pendingCount && !(times[cursor + 1] > time)) {
+                cursor++;
+            }
+            int best = cursor;
+            if (cursor + 1 < pendingCount && Math.abs(times[cursor + 1] - time) < Math.abs(times[cursor] - time)) {
+                best = cursor + 1;
+            }
+            return Math.abs(times[best] - time) <= tolerance ? best : -1;
+        }
+
+        /**
+         * Drops the first pending samples.
+         *
+         * @param count the number of samples to drop.
+         */
+        private void discard(int count) {
+            for (int row = 0; row < rows; row++) {
+                System.arraycopy(pending[row], count, pending[row], 0, pendingCount - count);
+            }
+            System.arraycopy(times, count, times, 0, pendingCount - count);
+            pendingCount -= count;
+        }
+    }
+}
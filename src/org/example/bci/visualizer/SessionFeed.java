@@ -0,0 +1,20 @@
+package org.example.bci.visualizer;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Feeds the chunks of a session into a {@link DataExtractor}, e.g. from a replayed recording or several boards.
+ */
+@FunctionalInterface
+public interface SessionFeed {
+
+    /**
+     * Feeds chunks into a sink, on the calling thread, until the session ends or running returns false.
+     *
+     * @param sink    the chunk consumer, receiving samples as [channel][sample], from one thread only.
+     * @param running checked between chunks, the feed stops when it returns false.
+     * @throws Exception from the source of the session.
+     */
+    void feed(Consumer<double[][]> sink, BooleanSupplier running) throws Exception;
+}
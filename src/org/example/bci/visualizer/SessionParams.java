@@ -0,0 +1,343 @@
+package org.example.bci.visualizer;
+
+import org.example.bci.visualizer.metrics.Metrics;
+
+/**
+ * Session settings for the visualizer, which are not passed on to BrainFlow.
+ */
+public class SessionParams {
+
+    private long sessionMillis = 0;
+    private String captureFile = null;
+    private boolean compressCapture = false;
+    private String streamFilter = null;
+    private boolean streamFilterSettle = false;
+    private String replayFile = null;
+    private double replaySpeed = 0;
+    private double replayFrom = 0;
+    private double replayTo = 0;
+    private boolean replayAll = false;
+    private int sampleCount = 0;
+    private int[] boardIds = new int[0];
+    private int dumpEvery = 0;
+    private long metricsMillis = Metrics.SUMMARY_MILLIS;
+    private boolean streamExport = false;
+    private boolean projection = false;
+    private SampleRingBuffer.Precision precision = SampleRingBuffer.Precision.DOUBLE;
+
+    /**
+     * Returns the session length.
+     *
+     * @return session length in millis, zero or less means a one-shot extract.
+     */
+    public long getSessionMillis() {
+        return sessionMillis;
+    }
+
+    /**
+     * Sets the session length.
+     *
+     * @param sessionMillis session length in millis, zero or less means a one-shot extract.
+     */
+    public void setSessionMillis(long sessionMillis) {
+        this.sessionMillis = sessionMillis;
+    }
+
+    /**
+     * Returns the capture file.
+     *
+     * @return capture file name, or null for no capture file.
+     */
+    public String getCaptureFile() {
+        return captureFile;
+    }
+
+    /**
+     * Sets the capture file, to write the session samples to.
+     *
+     * @param captureFile capture file name, or null for no capture file.
+     */
+    public void setCaptureFile(String captureFile) {
+        this.captureFile = captureFile;
+    }
+
+    /**
+     * Returns the replay file.
+     *
+     * @return replay file name, or null to acquire from the board.
+     */
+    public String getReplayFile() {
+        return replayFile;
+    }
+
+    /**
+     * Sets the replay file, a capture file, or a BrainFlow file ending with ".csv".
+     *
+     * @param replayFile replay file name, or null to acquire from the board.
+     */
+    public void setReplayFile(String replayFile) {
+        this.replayFile = replayFile;
+    }
+
+    /**
+     * Returns the replay speed.
+     *
+     * @return replay speed, 1 for real time, zero or less for as fast as possible.
+     */
+    public double getReplaySpeed() {
+        return replaySpeed;
+    }
+
+    /**
+     * Sets the replay speed.
+     *
+     * @param replaySpeed replay speed, 1 for real time, zero or less for as fast as possible.
+     */
+    public void setReplaySpeed(double replaySpeed) {
+        this.replaySpeed = replaySpeed;
+    }
+
+    /**
+     * Returns the start of the replayed range.
+     *
+     * @return seconds after the first sample of the recording.
+     */
+    public double getReplayFrom() {
+        return replayFrom;
+    }
+
+    /**
+     * Sets the start of the replayed range.
+     *
+     * @param replayFrom seconds after the first sample of the recording.
+     */
+    public void setReplayFrom(double replayFrom) {
+        this.replayFrom = replayFrom;
+    }
+
+    /**
+     * Returns the end of the replayed range.
+     *
+     * @return seconds after the first sample of the recording, zero or less to replay to the end.
+     */
+    public double getReplayTo() {
+        return replayTo;
+    }
+
+    /**
+     * Sets the end of the replayed range.
+     *
+     * @param replayTo seconds after the first sample of the recording, zero or less to replay to the end.
+     */
+    public void setReplayTo(double replayTo) {
+        this.replayTo = replayTo;
+    }
+
+    /**
+     * Returns whether all samples of a recording are kept, instead of the default sample count.
+     *
+     * @return true to size the sample buffer to the whole recording.
+     */
+    public boolean isReplayAll() {
+        return replayAll;
+    }
+
+    /**
+     * Sets whether all samples of a recording are kept, instead of the default sample count.
+     * The sample buffer is allocated up front, so a long recording needs memory for all its samples.
+     *
+     * @param replayAll true to size the sample buffer to the whole recording.
+     */
+    public void setReplayAll(boolean replayAll) {
+        this.replayAll = replayAll;
+    }
+
+    /**
+     * Returns whether only a time range of the recording is replayed.
+     *
+     * @return true if a start or end of the replayed range is set.
+     */
+    public boolean hasReplayRange() {
+        return replayFrom > 0 || replayTo > 0;
+    }
+
+    /**
+     * Returns the number of samples to keep for the export.
+     *
+     * @return sample count, zero or less for the default.
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Sets the number of samples to keep for the export.
+     *
+     * @param sampleCount sample count, zero or less for the default.
+     */
+    public void setSampleCount(int sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+
+    /**
+     * Returns the board ids of a multi-board session.
+     *
+     * @return board ids, empty for a single board session.
+     */
+    public int[] getBoardIds() {
+        return boardIds;
+    }
+
+    /**
+     * Sets the board ids of a multi-board session, in row order.
+     *
+     * @param boardIds board ids, empty for a single board session.
+     */
+    public void setBoardIds(int[] boardIds) {
+        this.boardIds = boardIds;
+    }
+
+    /**
+     * Returns the sample dump interval.
+     *
+     * @return every how many samples one is dumped to the console, zero for no dump.
+     */
+    public int getDumpEvery() {
+        return dumpEvery;
+    }
+
+    /**
+     * Sets the sample dump interval.
+     *
+     * @param dumpEvery every how many samples one is dumped to the console, zero for no dump.
+     */
+    public void setDumpEvery(int dumpEvery) {
+        this.dumpEvery = dumpEvery;
+    }
+
+    /**
+     * Returns the interval of the metrics summary log.
+     *
+     * @return interval in millis, zero for no periodic summary.
+     */
+    public long getMetricsMillis() {
+        return metricsMillis;
+    }
+
+    /**
+     * Sets the interval of the metrics summary log.
+     *
+     * @param metricsMillis interval in millis, zero for no periodic summary.
+     */
+    public void setMetricsMillis(long metricsMillis) {
+        this.metricsMillis = metricsMillis;
+    }
+
+    /**
+     * Returns whether the Excel file is exported while the session is acquired.
+     *
+     * @return true to export every sample while acquiring, false to export the kept samples after the session.
+     */
+    public boolean isStreamExport() {
+        return streamExport;
+    }
+
+    /**
+     * Sets whether the Excel file is exported while the session is acquired.
+     *
+     * @param streamExport true to export every sample while acquiring, false to export the kept samples after the session.
+     */
+    public void setStreamExport(boolean streamExport) {
+        this.streamExport = streamExport;
+    }
+
+    /**
+     * Returns whether only the channels used by the charts and the analysis are kept.
+     *
+     * @return true to keep only the used channels, false to keep all channels.
+     */
+    public boolean isProjection() {
+        return projection;
+    }
+
+    /**
+     * Sets whether only the channels used by the charts and the analysis are kept.
+     *
+     * @param projection true to keep only the used channels, false to keep all channels.
+     */
+    public void setProjection(boolean projection) {
+        this.projection = projection;
+    }
+
+    /**
+     * Returns the storage precision of the kept samples.
+     *
+     * @return the precision.
+     */
+    public SampleRingBuffer.Precision getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Sets the storage precision of the kept samples.
+     *
+     * @param precision the precision.
+     */
+    public void setPrecision(SampleRingBuffer.Precision precision) {
+        this.precision = precision;
+    }
+
+    /**
+     * Returns whether the capture file is compressed.
+     *
+     * @return true to compress the capture file blocks.
+     */
+    public boolean isCompressCapture() {
+        return compressCapture;
+    }
+
+    /**
+     * Sets whether the capture file is compressed.
+     *
+     * @param compressCapture true to compress the capture file blocks.
+     */
+    public void setCompressCapture(boolean compressCapture) {
+        this.compressCapture = compressCapture;
+    }
+
+    /**
+     * Returns the streaming filter specs.
+     *
+     * @return comma separated filter specs, as for {@link org.example.bci.visualizer.dsp.BiquadCascade#parse(int, String)}, or null for no streaming filter.
+     */
+    public String getStreamFilter() {
+        return streamFilter;
+    }
+
+    /**
+     * Sets the streaming filter specs, filtering the signal channels of every chunk of a session.
+     *
+     * @param streamFilter comma separated filter specs, as for {@link org.example.bci.visualizer.dsp.BiquadCascade#parse(int, String)}, or null for no streaming filter.
+     */
+    public void setStreamFilter(String streamFilter) {
+        this.streamFilter = streamFilter;
+    }
+
+    /**
+     * Returns whether the streaming filter state starts settled at the first sample.
+     *
+     * @return true to settle, false to start at zero, like BrainFlow.
+     */
+    public boolean isStreamFilterSettle() {
+        return streamFilterSettle;
+    }
+
+    /**
+     * Sets whether the streaming filter state starts settled at the first sample.
+     *
+     * @param streamFilterSettle true to settle, false to start at zero, like BrainFlow.
+     */
+    public void setStreamFilterSettle(boolean streamFilterSettle) {
+        this.streamFilterSettle = streamFilterSettle;
+    }
+}
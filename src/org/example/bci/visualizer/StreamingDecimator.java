@@ -0,0 +1,182 @@
+package org.example.bci.visualizer;
+
+import brainflow.BrainFlowError;
+
+/**
+ * Reduces the series of a chart while they are streamed, without knowing the number of samples in advance,
+ * and decimates the reduced series to the point budget of the chart at the end.
+ * <p>
+ * Samples are gathered in a fixed number of buckets, and whenever all buckets are used, neighbouring buckets are
+ * merged and the bucket size doubles. Each bucket keeps the minimum and maximum of each series, in the order they
+ * occurred, and their sum, so the reduced series hold the exact envelope, or the exact means, at a few points per
+ * point of the budget. The {@link ChartDecimator} then decimates the reduced series with the mode of the chart,
+ * e.g. LTTB on the envelope, as in MinMaxLTTB.
+ */
+public class StreamingDecimator {
+
+    // Buckets per point of the budget, so the reduced series hold up to twice as many points for the mean,
+    // and four times as many for the envelope.
+    static final int BUCKETS_PER_POINT = 2;
+
+    private final int[] columns;
+    private final int maxPoints;
+    private final ChartDecimator.Mode mode;
+    private final int capacity;
+
+    private final double[][] min;
+    private final double[][] max;
+    private final double[][] sum;
+    // Whether the minimum occurred after the maximum.
+    private final boolean[][] minLast;
+
+    // Full buckets, the next sample goes into bucket index [full].
+    private int full = 0;
+    private long bucketSize = 1;
+    private long fill = 0;
+    private long sampleCount = 0;
+
+    /**
+     * Constructor for the series of a chart.
+     *
+     * @param columns   the columns (channels) of the chart.
+     * @param maxPoints the point budget per series, at least 4.
+     * @param mode      the decimation mode.
+     */
+    public StreamingDecimator(int[] columns, int maxPoints, ChartDecimator.Mode mode) {
+        this.columns = columns.clone();
+        this.maxPoints = Math.max(4, maxPoints);
+        this.mode = mode;
+        this.capacity = this.maxPoints * BUCKETS_PER_POINT;
+        this.min = new double[columns.length][capacity];
+        this.max = new double[columns.length][capacity];
+        this.sum = new double[columns.length][capacity];
+        this.minLast = new boolean[columns.length][capacity];
+    }
+
+    /**
+     * Adds a chunk of samples.
+     *
+     * @param chunk samples as [channel][sample], holding all the columns of the chart.
+     */
+    public void accept(double[][] chunk) {
+        int length = chunk.length == 0 ? 0 : chunk[0].length;
+        for (int sample = 0; sample < length; sample++) {
+            if (fill == bucketSize) {
+                full++;
+                fill = 0;
+                if (full == capacity) {
+                    merge();
+                }
+            }
+            int bucket = full;
+            for (int i = 0; i < columns.length; i++) {
+                double value = chunk[columns[i]][sample];
+                if (fill == 0) {
+                    min[i][bucket] = value;
+                    max[i][bucket] = value;
+                    sum[i][bucket] = value;
+                    minLast[i][bucket] = false;
+                } else {
+                    if (value < min[i][bucket] || Double.isNaN(min[i][bucket])) {
+                        min[i][bucket] = value;
+                        minLast[i][bucket] = true;
+                    }
+                    if (value > max[i][bucket] || Double.isNaN(max[i][bucket])) {
+                        max[i][bucket] = value;
+                        minLast[i][bucket] = false;
+                    }
+                    sum[i][bucket] += value;
+                }
+            }
+            fill++;
+            sampleCount++;
+        }
+    }
+
+    /**
+     * Merges neighbouring buckets, halving the number of full buckets, and doubling the bucket size.
+     */
+    private void merge() {
+        for (int i = 0; i < columns.length; i++) {
+            for (int bucket = 0; bucket < capacity / 2; bucket++) {
+                int first = bucket * 2;
+                int second = first + 1;
+                boolean secondMin = min[i][second] < min[i][first] || Double.isNaN(min[i][first]);
+                boolean secondMax = max[i][second] > max[i][first] || Double.isNaN(max[i][first]);
+                // The order of the extremes, from the bucket each comes from.
+                boolean lastIsMin = secondMin == secondMax ? minLast[i][secondMin ? second : first] : secondMin;
+
+                min[i][bucket] = secondMin ? min[i][second] : min[i][first];
+                max[i][bucket] = secondMax ? max[i][second] : max[i][first];
+                sum[i][bucket] = sum[i][first] + sum[i][second];
+                minLast[i][bucket] = lastIsMin;
+            }
+        }
+        full = capacity / 2;
+        bucketSize *= 2;
+    }
+
+    /**
+     * Returns the number of samples added.
+     *
+     * @return sample count.
+     */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Decimates the series to the point budget.
+     *
+     * @param dataExtractor the data extractor, used for the mean mode.
+     * @return the decimated series, with the positions as 1 based sample numbers.
+     * @throws BrainFlowError from the BrainFlow API.
+     */
+    public ChartDecimator.Decimation decimate(DataExtractor dataExtractor) throws BrainFlowError {
+        int buckets = full + (fill > 0 ? 1 : 0);
+        boolean envelope = mode != ChartDecimator.Mode.MEAN && bucketSize > 1;
+        int points = envelope ? buckets * 2 : buckets;
+
+        // The reduced series share their positions: the start and the centre of a bucket for the envelope,
+        // like ChartDecimator.MIN_MAX, and else the centre.
+        double[] positions = new double[points];
+        double[][] reduced = new double[columns.length][points];
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            long start = bucket * bucketSize;
+            long size = bucket == full ? fill : bucketSize;
+            if (envelope) {
+                positions[bucket * 2] = start + 1;
+                positions[bucket * 2 + 1] = start + size / 2 + 1;
+            } else {
+                positions[bucket] = start + (size + 1) / 2;
+            }
+            for (int i = 0; i < columns.length; i++) {
+                if (envelope) {
+                    reduced[i][bucket * 2] = minLast[i][bucket] ? max[i][bucket] : min[i][bucket];
+                    reduced[i][bucket * 2 + 1] = minLast[i][bucket] ? min[i][bucket] : max[i][bucket];
+                } else {
+                    reduced[i][bucket] = sum[i][bucket] / size;
+                }
+            }
+        }
+
+        if (points <= maxPoints || columns.length == 0) {
+            return new ChartDecimator.Decimation(positions, reduced);
+        }
+
+        SampleRingBuffer buffer = SampleRingBuffer.wrap(reduced);
+        SampleRingBuffer.Window[] channels = new SampleRingBuffer.Window[columns.length];
+        for (int i = 0; i < channels.length; i++) {
+            channels[i] = buffer.window(i, 0, points);
+        }
+        ChartDecimator.Decimation decimation = new ChartDecimator().decimate(channels, maxPoints, mode, dataExtractor);
+
+        // Map the positions in the reduced series back to sample numbers.
+        double[] samplePositions = new double[decimation.positions().length];
+        for (int i = 0; i < samplePositions.length; i++) {
+            int index = (int) Math.min(points, Math.max(1, Math.round(decimation.positions()[i])));
+            samplePositions[i] = positions[index - 1];
+        }
+        return new ChartDecimator.Decimation(samplePositions, decimation.series());
+    }
+}
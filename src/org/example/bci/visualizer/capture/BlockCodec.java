@@ -0,0 +1,479 @@
+package org.example.bci.visualizer.capture;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Lossless codec for the samples of one channel in a block, as stored in compressed capture files.
+ * <p>
+ * Every encoded block starts with a tag byte, naming one of five encodings:
+ * <ul>
+ *     <li>{@link #INTEGER}: values that are all whole numbers, e.g. package numbers, markers or battery levels,
+ *     as the first value, followed by zig-zag varints of the delta of deltas, mostly one byte per sample.</li>
+ *     <li>{@link #FLOAT}: values that are all exact floats, e.g. from boards sending 32 bit samples,
+ *     as the XOR of their float bits, see below.</li>
+ *     <li>{@link #BITS}: the delta of deltas of the raw bits of the values, which suits slowly and evenly
+ *     changing values, e.g. timestamps.</li>
+ *     <li>{@link #XOR}: Gorilla style XOR of every value with the previous one, storing only the meaningful bits,
+ *     which suits signals.</li>
+ *     <li>{@link #RAW}: the values as they are, for values none of the others can compress.</li>
+ * </ul>
+ * Whole numbers are always encoded as {@link #INTEGER}, exact floats as {@link #FLOAT}, and other values as the
+ * smallest of {@link #BITS}, {@link #XOR} and {@link #RAW}.
+ * An encoder holds scratch buffers, so it is not thread safe, decoding is.
+ */
+public final class BlockCodec {
+
+    static final byte XOR = 0;
+    static final byte INTEGER = 1;
+    static final byte BITS = 2;
+    static final byte FLOAT = 3;
+    static final byte RAW = 4;
+
+    // Largest encoded sample: XOR control bits, 6 bit leading zeros and length, and 64 meaningful bits.
+    private static final int MAX_SAMPLE_BYTES = 10;
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private byte[] scratch = new byte[0];
+
+    /**
+     * Returns the largest number of bytes a block can be encoded to.
+     *
+     * @param samples the number of samples in the block.
+     * @return the maximum encoded size in bytes.
+     */
+    public static int maxEncodedBytes(int samples) {
+        return 1 + Long.BYTES + samples * MAX_SAMPLE_BYTES;
+    }
+
+    /**
+     * Encodes the samples of a channel in a block.
+     *
+     * @param values     the samples.
+     * @param offset     the first sample.
+     * @param length     the number of samples.
+     * @param dest       the destination, with room for at least {@link #maxEncodedBytes(int)} bytes.
+     * @param destOffset the offset in the destination.
+     * @return the number of bytes written.
+     */
+    public int encode(double[] values, int offset, int length, byte[] dest, int destOffset) {
+        if (isIntegral(values, offset, length)) {
+            dest[destOffset] = INTEGER;
+            return 1 + encodeDeltas(values, offset, length, true, dest, destOffset + 1);
+        }
+        if (isFloat(values, offset, length)) {
+            dest[destOffset] = FLOAT;
+            return 1 + encodeXor(values, offset, length, true, dest, destOffset + 1);
+        }
+
+        if (scratch.length < maxEncodedBytes(length)) {
+            scratch = new byte[maxEncodedBytes(length)];
+        }
+        int xorBytes = encodeXor(values, offset, length, false, dest, destOffset + 1);
+        int bitsBytes = encodeDeltas(values, offset, length, false, scratch, 0);
+        int rawBytes = length * Double.BYTES;
+        if (rawBytes <= xorBytes && rawBytes <= bitsBytes) {
+            dest[destOffset] = RAW;
+            for (int i = 0; i < length; i++) {
+                LONGS.set(dest, destOffset + 1 + i * Long.BYTES, Double.doubleToRawLongBits(values[offset + i]));
+            }
+            return 1 + rawBytes;
+        }
+        if (bitsBytes < xorBytes) {
+            dest[destOffset] = BITS;
+            System.arraycopy(scratch, 0, dest, destOffset + 1, bitsBytes);
+            return 1 + bitsBytes;
+        }
+        dest[destOffset] = XOR;
+        return 1 + xorBytes;
+    }
+
+    /**
+     * Decodes the samples of a channel in a block.
+     *
+     * @param src        the encoded block.
+     * @param srcOffset  the offset of the encoded block.
+     * @param srcLength  the length of the encoded block.
+     * @param dest       the destination.
+     * @param destOffset the offset in the destination.
+     * @param length     the number of samples in the block.
+     * @throws IllegalArgumentException if the block is not a valid encoded block.
+     */
+    public static void decode(byte[] src, int srcOffset, int srcLength, double[] dest, int destOffset, int length) {
+        if (length == 0) {
+            return;
+        }
+        switch (src[srcOffset]) {
+            case INTEGER -> decodeDeltas(src, srcOffset + 1, dest, destOffset, length, true);
+            case BITS -> decodeDeltas(src, srcOffset + 1, dest, destOffset, length, false);
+            case XOR -> decodeXor(src, srcOffset + 1, srcOffset + srcLength, dest, destOffset, length, false);
+            case FLOAT -> decodeXor(src, srcOffset + 1, srcOffset + srcLength, dest, destOffset, length, true);
+            case RAW -> {
+                for (int i = 0; i < length; i++) {
+                    dest[destOffset + i] = Double.longBitsToDouble((long) LONGS.get(src, srcOffset + 1 + i * Long.BYTES));
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown block encoding: " + src[srcOffset]);
+        }
+    }
+
+    /**
+     * Returns whether all values are whole numbers, which convert to a long and back unchanged, e.g. not -0.0 or NaN.
+     *
+     * @param values the samples.
+     * @param offset the first sample.
+     * @param length the number of samples.
+     * @return true if all values are whole numbers.
+     */
+    private static boolean isIntegral(double[] values, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            double value = values[i];
+            if (Double.doubleToRawLongBits(value) != Double.doubleToRawLongBits((double) (long) value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether all values are exact floats, which convert to a float and back unchanged.
+     *
+     * @param values the samples.
+     * @param offset the first sample.
+     * @param length the number of samples.
+     * @return true if all values are exact floats.
+     */
+    private static boolean isFloat(double[] values, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            double value = values[i];
+            if (Double.doubleToRawLongBits(value) != Double.doubleToRawLongBits((float) value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the bits of a value, as encoded by XOR.
+     *
+     * @param value  the value.
+     * @param floats true for the bits of the value as a float, false for its bits as a double.
+     * @return the bits.
+     */
+    private static long toBits(double value, boolean floats) {
+        return floats ? Float.floatToRawIntBits((float) value) & 0xFFFFFFFFL : Double.doubleToRawLongBits(value);
+    }
+
+    /**
+     * Returns the value of bits, as encoded by XOR.
+     *
+     * @param bits   the bits.
+     * @param floats true for the bits of a float, false for the bits of a double.
+     * @return the value.
+     */
+    private static double fromBits(long bits, boolean floats) {
+        return floats ? Float.intBitsToFloat((int) bits) : Double.longBitsToDouble(bits);
+    }
+
+    /**
+     * Encodes values as the first value, followed by zig-zag varints of the first delta and the delta of deltas.
+     *
+     * @param values     the samples.
+     * @param offset     the first sample.
+     * @param length     the number of samples.
+     * @param integral   true to encode the values as longs, false to encode their raw bits.
+     * @param dest       the destination.
+     * @param destOffset the offset in the destination.
+     * @return the number of bytes written.
+     */
+    private static int encodeDeltas(double[] values, int offset, int length, boolean integral, byte[] dest, int destOffset) {
+        int position = destOffset;
+        long previous = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < length; i++) {
+            long current = integral ? (long) values[offset + i] : Double.doubleToRawLongBits(values[offset + i]);
+            if (i == 0) {
+                LONGS.set(dest, position, current);
+                position += Long.BYTES;
+            } else {
+                long delta = current - previous;
+                position = writeVarLong(dest, position, zigZag(delta - previousDelta));
+                previousDelta = delta;
+            }
+            previous = current;
+        }
+        return position - destOffset;
+    }
+
+    /**
+     * Decodes values encoded by {@link #encodeDeltas(double[], int, int, boolean, byte[], int)}.
+     *
+     * @param src        the encoded values.
+     * @param srcOffset  the offset of the encoded values.
+     * @param dest       the destination.
+     * @param destOffset the offset in the destination.
+     * @param length     the number of samples.
+     * @param integral   true if the values are encoded as longs, false if as their raw bits.
+     */
+    private static void decodeDeltas(byte[] src, int srcOffset, double[] dest, int destOffset, int length, boolean integral) {
+        long current = (long) LONGS.get(src, srcOffset);
+        int position = srcOffset + Long.BYTES;
+        long delta = 0;
+        dest[destOffset] = integral ? current : Double.longBitsToDouble(current);
+        for (int i = 1; i < length; i++) {
+            long zigZag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = src[position++];
+                zigZag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            delta += (zigZag >>> 1) ^ -(zigZag & 1);
+            current += delta;
+            dest[destOffset + i] = integral ? current : Double.longBitsToDouble(current);
+        }
+    }
+
+    /**
+     * Encodes values Gorilla style: the first value as is, then per value a 0 bit if it equals the previous value,
+     * or else the XOR with the previous value, as its meaningful bits within the previous window of leading and
+     * trailing zeros, or with a new window.
+     *
+     * @param values     the samples.
+     * @param offset     the first sample.
+     * @param length     the number of samples.
+     * @param floats     true to encode the bits of the values as floats, false as doubles.
+     * @param dest       the destination.
+     * @param destOffset the offset in the destination.
+     * @return the number of bytes written.
+     */
+    private static int encodeXor(double[] values, int offset, int length, boolean floats, byte[] dest, int destOffset) {
+        BitWriter writer = new BitWriter(dest, destOffset);
+        int width = floats ? Integer.SIZE : Long.SIZE;
+        long previous = 0;
+        int leading = Integer.MAX_VALUE;
+        int trailing = 0;
+        for (int i = 0; i < length; i++) {
+            long current = toBits(values[offset + i], floats);
+            if (i == 0) {
+                writer.write(current, width);
+            } else {
+                long xor = current ^ previous;
+                if (xor == 0) {
+                    writer.write(0, 1);
+                } else {
+                    int currentLeading = Long.numberOfLeadingZeros(xor) - (Long.SIZE - width);
+                    int currentTrailing = Long.numberOfTrailingZeros(xor);
+                    if (currentLeading >= leading && currentTrailing >= trailing) {
+                        // Fits the previous window.
+                        writer.write(0b10, 2);
+                        writer.write(xor >>> trailing, width - leading - trailing);
+                    } else {
+                        leading = currentLeading;
+                        trailing = currentTrailing;
+                        int meaningful = width - leading - trailing;
+                        writer.write(0b11, 2);
+                        writer.write(leading, 6);
+                        writer.write(meaningful - 1, 6);
+                        writer.write(xor >>> trailing, meaningful);
+                    }
+                }
+            }
+            previous = current;
+        }
+        return writer.finish() - destOffset;
+    }
+
+    /**
+     * Decodes values encoded by {@link #encodeXor(double[], int, int, boolean, byte[], int)}.
+     *
+     * @param src        the encoded values.
+     * @param srcOffset  the offset of the encoded values.
+     * @param srcEnd     the end of the encoded values.
+     * @param dest       the destination.
+     * @param destOffset the offset in the destination.
+     * @param length     the number of samples.
+     * @param floats     true if the bits of the values are encoded as floats, false as doubles.
+     */
+    private static void decodeXor(byte[] src, int srcOffset, int srcEnd, double[] dest, int destOffset, int length, boolean floats) {
+        BitReader reader = new BitReader(src, srcOffset, srcEnd);
+        int width = floats ? Integer.SIZE : Long.SIZE;
+        long current = floats ? reader.read(32) : reader.read(32) << 32 | reader.read(32);
+        dest[destOffset] = fromBits(current, floats);
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 1; i < length; i++) {
+            // The control bits, and a new window, read at once.
+            long control = reader.peek(14);
+            if (control >>> 13 == 0) {
+                reader.skip(1);
+            } else {
+                if ((control >>> 12 & 1) == 0) {
+                    reader.skip(2);
+                } else {
+                    leading = (int) (control >>> 6 & 0x3F);
+                    trailing = width - leading - ((int) (control & 0x3F) + 1);
+                    reader.skip(14);
+                }
+                int meaningful = width - leading - trailing;
+                long bits = meaningful > 32
+                        ? reader.read(meaningful - 32) << 32 | reader.read(32)
+                        : reader.read(meaningful);
+                current ^= bits << trailing;
+            }
+            dest[destOffset + i] = fromBits(current, floats);
+        }
+    }
+
+    /**
+     * Returns a zig-zag encoded value, mapping small negative and positive values to small unsigned values.
+     *
+     * @param value the value.
+     * @return the zig-zag encoded value.
+     */
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * Writes an unsigned varint, 7 bits per byte, least significant first.
+     *
+     * @param dest     the destination.
+     * @param position the position to write at.
+     * @param value    the value.
+     * @return the position after the varint.
+     */
+    private static int writeVarLong(byte[] dest, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            dest[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        dest[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * Writes bits to a byte array, most significant bit first.
+     */
+    private static final class BitWriter {
+        private final byte[] dest;
+        private int position;
+        private long bits = 0;
+        private int bitCount = 0;
+
+        /**
+         * Constructor.
+         *
+         * @param dest     the destination.
+         * @param position the position of the first byte.
+         */
+        BitWriter(byte[] dest, int position) {
+            this.dest = dest;
+            this.position = position;
+        }
+
+        /**
+         * Writes the lowest bits of a value.
+         *
+         * @param value the value.
+         * @param count the number of bits, 0 to 64.
+         */
+        void write(long value, int count) {
+            if (count == 0) {
+                return;
+            }
+            if (count < 64) {
+                value &= (1L << count) - 1;
+            }
+            int free = 64 - bitCount;
+            if (count < free) {
+                bits |= value << (free - count);
+                bitCount += count;
+            } else {
+                int overflow = count - free;
+                LONGS.set(dest, position, bits | value >>> overflow);
+                position += Long.BYTES;
+                bits = overflow == 0 ? 0 : value << (64 - overflow);
+                bitCount = overflow;
+            }
+        }
+
+        /**
+         * Writes the remaining bits, padded to a whole byte.
+         *
+         * @return the position after the last byte.
+         */
+        int finish() {
+            for (int shift = 56; bitCount > 0; shift -= 8, bitCount -= 8) {
+                dest[position++] = (byte) (bits >>> shift);
+            }
+            bitCount = 0;
+            return position;
+        }
+    }
+
+    /**
+     * Reads bits from a byte array, most significant bit first.
+     */
+    private static final class BitReader {
+        private final byte[] src;
+        private final int end;
+        private long bitPosition;
+
+        /**
+         * Constructor.
+         *
+         * @param src      the source.
+         * @param position the position of the first byte.
+         * @param end      the end of the bits.
+         */
+        BitReader(byte[] src, int position, int end) {
+            this.src = src;
+            this.end = end;
+            this.bitPosition = (long) position * 8;
+        }
+
+        /**
+         * Reads bits.
+         *
+         * @param count the number of bits, 1 to 57.
+         * @return the bits, as the lowest bits of the result.
+         */
+        long read(int count) {
+            long value = peek(count);
+            bitPosition += count;
+            return value;
+        }
+
+        /**
+         * Skips bits.
+         *
+         * @param count the number of bits.
+         */
+        void skip(int count) {
+            bitPosition += count;
+        }
+
+        /**
+         * Returns the next bits, without reading them. Bits past the end are zeros.
+         *
+         * @param count the number of bits, 1 to 57.
+         * @return the bits, as the lowest bits of the result.
+         */
+        long peek(int count) {
+            int position = (int) (bitPosition >>> 3);
+            long window;
+            if (position + Long.BYTES <= end) {
+                window = (long) LONGS.get(src, position);
+            } else {
+                window = 0;
+                for (int i = 0; i < Long.BYTES; i++) {
+                    window = window << 8 | (position + i < end ? src[position + i] & 0xFF : 0);
+                }
+            }
+            return (window << (bitPosition & 7)) >>> (64 - count);
+        }
+    }
+}
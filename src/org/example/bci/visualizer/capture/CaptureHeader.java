@@ -0,0 +1,302 @@
+package org.example.bci.visualizer.capture;
+
+import brainflow.BoardDescr;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Header of a capture file, describing the board and the layout of the sample blocks that follow it.
+ * <p>
+ * Layout, little endian: magic, version, header length, board id, sampling rate, channel count, block samples,
+ * sample count, file position of the block times, followed by the board descriptor and the data labels,
+ * padded to {@link #ALIGNMENT}. The version tells whether the blocks are stored as is, or compressed,
+ * see {@link BlockCodec}. The sample count and the position of the block times are written when the file is closed,
+ * so both are 0 in a file that was never closed.
+ *
+ * @param boardId      the board id.
+ * @param samplingRate the sampling rate in Hz.
+ * @param channelCount the number of channels (rows) per sample.
+ * @param blockSamples the number of samples per block.
+ * @param sampleCount  the number of samples in the file.
+ * @param boardDescr   the board descriptor.
+ * @param dataLabels   the data labels, one per channel.
+ * @param compressed   true if the blocks are compressed.
+ */
+public record CaptureHeader(int boardId, int samplingRate, int channelCount, int blockSamples, long sampleCount,
+                            BoardDescr boardDescr, String[] dataLabels, boolean compressed) {
+
+    static final byte[] MAGIC = "BCICAP01".getBytes(StandardCharsets.US_ASCII);
+    // Versions 1 and 2 had no block times.
+    static final int VERSION = 3;
+    static final int COMPRESSED_VERSION = 4;
+    // Blocks start on a page boundary, which keeps memory mapping cheap.
+    static final int ALIGNMENT = 4096;
+    static final int SAMPLE_COUNT_OFFSET = 32;
+    static final int BLOCK_TIMES_OFFSET = 40;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * Constructor for a header of uncompressed blocks.
+     *
+     * @param boardId      the board id.
+     * @param samplingRate the sampling rate in Hz.
+     * @param channelCount the number of channels (rows) per sample.
+     * @param blockSamples the number of samples per block.
+     * @param sampleCount  the number of samples in the file.
+     * @param boardDescr   the board descriptor.
+     * @param dataLabels   the data labels, one per channel.
+     */
+    public CaptureHeader(int boardId, int samplingRate, int channelCount, int blockSamples, long sampleCount,
+                         BoardDescr boardDescr, String[] dataLabels) {
+        this(boardId, samplingRate, channelCount, blockSamples, sampleCount, boardDescr, dataLabels, false);
+    }
+
+    /**
+     * Returns a copy with another sample count.
+     *
+     * @param sampleCount the number of samples in the file.
+     * @return the header.
+     */
+    public CaptureHeader withSampleCount(long sampleCount) {
+        return new CaptureHeader(boardId, samplingRate, channelCount, blockSamples, sampleCount, boardDescr, dataLabels, compressed);
+    }
+
+    /**
+     * Returns a copy with compressed or uncompressed blocks.
+     *
+     * @param compressed true if the blocks are compressed.
+     * @return the header.
+     */
+    public CaptureHeader withCompressed(boolean compressed) {
+        return new CaptureHeader(boardId, samplingRate, channelCount, blockSamples, sampleCount, boardDescr, dataLabels, compressed);
+    }
+
+    /**
+     * Returns the size of an uncompressed block.
+     *
+     * @return block size in bytes.
+     */
+    public long getBlockBytes() {
+        return (long) channelCount * blockSamples * Double.BYTES;
+    }
+
+    /**
+     * Returns the number of blocks, the last one possibly partly filled.
+     *
+     * @return number of blocks.
+     */
+    public long getBlockCount() {
+        return (sampleCount + blockSamples - 1) / blockSamples;
+    }
+
+    /**
+     * Encodes the header.
+     *
+     * @return the encoded header, padded to the alignment, ready to be written at the start of the file.
+     */
+    public ByteBuffer encode() {
+        ByteBuffer metadata = ByteBuffer.allocate(64 * 1024).order(BYTE_ORDER);
+        writeBoardDescr(metadata, boardDescr);
+        metadata.putInt(dataLabels.length);
+        for (String label : dataLabels) {
+            writeString(metadata, label);
+        }
+        metadata.flip();
+
+        int headerLength = align(BLOCK_TIMES_OFFSET + Long.BYTES + metadata.remaining());
+        ByteBuffer buffer = ByteBuffer.allocate(headerLength).order(BYTE_ORDER);
+        buffer.put(MAGIC);
+        buffer.putInt(compressed ? COMPRESSED_VERSION : VERSION);
+        buffer.putInt(headerLength);
+        buffer.putInt(boardId);
+        buffer.putInt(samplingRate);
+        buffer.putInt(channelCount);
+        buffer.putInt(blockSamples);
+        buffer.putLong(sampleCount);
+        buffer.putLong(0); // Block times position, written when closing.
+        buffer.put(metadata);
+        buffer.position(0);
+        return buffer;
+    }
+
+    /**
+     * Decodes a header.
+     *
+     * @param buffer the start of the file.
+     * @return the header.
+     * @throws IOException if the buffer does not hold a valid header.
+     */
+    public static CaptureHeader decode(ByteBuffer buffer) throws IOException {
+        buffer.order(BYTE_ORDER);
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a capture file.");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION && version != COMPRESSED_VERSION) {
+                throw new IOException("Unsupported capture file version: " + version);
+            }
+            buffer.getInt(); // Header length.
+            int boardId = buffer.getInt();
+            int samplingRate = buffer.getInt();
+            int channelCount = buffer.getInt();
+            int blockSamples = buffer.getInt();
+            long sampleCount = buffer.getLong();
+            buffer.getLong(); // Block times position.
+            BoardDescr boardDescr = readBoardDescr(buffer);
+            String[] dataLabels = new String[buffer.getInt()];
+            for (int i = 0; i < dataLabels.length; i++) {
+                dataLabels[i] = readString(buffer);
+            }
+            return new CaptureHeader(boardId, samplingRate, channelCount, blockSamples, sampleCount, boardDescr, dataLabels, version == COMPRESSED_VERSION);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated capture file header.", e);
+        }
+    }
+
+    /**
+     * Reads the header length, from the start of a file.
+     *
+     * @param buffer the first bytes of the file, at least {@link #SAMPLE_COUNT_OFFSET} long.
+     * @return the header length in bytes.
+     */
+    static int readHeaderLength(ByteBuffer buffer) {
+        return buffer.order(BYTE_ORDER).getInt(MAGIC.length + Integer.BYTES);
+    }
+
+    /**
+     * Reads the file position of the block times, from the start of a file.
+     *
+     * @param buffer the first bytes of the file, at least {@link #BLOCK_TIMES_OFFSET} plus 8 long.
+     * @return the file position of the block times, or 0 if the file was never closed.
+     */
+    static long readBlockTimesPosition(ByteBuffer buffer) {
+        return buffer.order(BYTE_ORDER).getLong(BLOCK_TIMES_OFFSET);
+    }
+
+    /**
+     * Rounds a length up to the alignment.
+     *
+     * @param length the length in bytes.
+     * @return the aligned length.
+     */
+    private static int align(int length) {
+        return (length + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * Writes a board descriptor.
+     *
+     * @param buffer     the buffer to write to.
+     * @param boardDescr the board descriptor.
+     */
+    private static void writeBoardDescr(ByteBuffer buffer, BoardDescr boardDescr) {
+        writeString(buffer, boardDescr.name);
+        writeString(buffer, boardDescr.eeg_names);
+        buffer.putInt(boardDescr.sampling_rate);
+        buffer.putInt(boardDescr.num_rows);
+        buffer.putInt(boardDescr.package_num_channel);
+        buffer.putInt(boardDescr.timestamp_channel);
+        buffer.putInt(boardDescr.marker_channel);
+        buffer.putInt(boardDescr.battery_channel);
+        for (List<Integer> channels : List.of(nonNull(boardDescr.eeg_channels), nonNull(boardDescr.eog_channels),
+                nonNull(boardDescr.exg_channels), nonNull(boardDescr.emg_channels), nonNull(boardDescr.ppg_channels),
+                nonNull(boardDescr.eda_channels), nonNull(boardDescr.accel_channels), nonNull(boardDescr.gyro_channels),
+                nonNull(boardDescr.temperature_channels), nonNull(boardDescr.resistance_channels),
+                nonNull(boardDescr.rotation_channels), nonNull(boardDescr.other_channels))) {
+            buffer.putInt(channels.size());
+            for (int channel : channels) {
+                buffer.putInt(channel);
+            }
+        }
+    }
+
+    /**
+     * Reads a board descriptor, in the order written by {@link #writeBoardDescr(ByteBuffer, BoardDescr)}.
+     *
+     * @param buffer the buffer to read from.
+     * @return the board descriptor.
+     */
+    private static BoardDescr readBoardDescr(ByteBuffer buffer) {
+        BoardDescr boardDescr = new BoardDescr();
+        boardDescr.name = readString(buffer);
+        boardDescr.eeg_names = readString(buffer);
+        boardDescr.sampling_rate = buffer.getInt();
+        boardDescr.num_rows = buffer.getInt();
+        boardDescr.package_num_channel = buffer.getInt();
+        boardDescr.timestamp_channel = buffer.getInt();
+        boardDescr.marker_channel = buffer.getInt();
+        boardDescr.battery_channel = buffer.getInt();
+        boardDescr.eeg_channels = readChannels(buffer);
+        boardDescr.eog_channels = readChannels(buffer);
+        boardDescr.exg_channels = readChannels(buffer);
+        boardDescr.emg_channels = readChannels(buffer);
+        boardDescr.ppg_channels = readChannels(buffer);
+        boardDescr.eda_channels = readChannels(buffer);
+        boardDescr.accel_channels = readChannels(buffer);
+        boardDescr.gyro_channels = readChannels(buffer);
+        boardDescr.temperature_channels = readChannels(buffer);
+        boardDescr.resistance_channels = readChannels(buffer);
+        boardDescr.rotation_channels = readChannels(buffer);
+        boardDescr.other_channels = readChannels(buffer);
+        return boardDescr;
+    }
+
+    /**
+     * Reads a list of channels.
+     *
+     * @param buffer the buffer to read from.
+     * @return the channels.
+     */
+    private static List<Integer> readChannels(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        List<Integer> channels = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            channels.add(buffer.getInt());
+        }
+        return channels;
+    }
+
+    /**
+     * Returns the channels, or an empty list for boards without them.
+     *
+     * @param channels the channels, or null.
+     * @return the channels.
+     */
+    private static List<Integer> nonNull(List<Integer> channels) {
+        return channels == null ? List.of() : channels;
+    }
+
+    /**
+     * Writes a string, as its UTF-8 length and bytes.
+     *
+     * @param buffer the buffer to write to.
+     * @param value  the string, null is written as empty.
+     */
+    private static void writeString(ByteBuffer buffer, String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Reads a string.
+     *
+     * @param buffer the buffer to read from.
+     * @return the string.
+     */
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
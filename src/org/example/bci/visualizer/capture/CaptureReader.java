@@ -0,0 +1,381 @@
+package org.example.bci.visualizer.capture;
+
+import org.example.bci.visualizer.Replayer;
+import org.example.bci.visualizer.SampleSource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a capture file, written by a {@link CaptureWriter}, through memory mapping.
+ * <p>
+ * Opening only reads the header, the sample blocks are mapped on first access, in regions of whole blocks,
+ * so reopening a large session is quick, and reading a block copies nothing. The first timestamp of every block,
+ * stored after the blocks at the position given in the header, is read when the {@link TimeIndex} is first used.
+ * <p>
+ * An uncompressed file that was not closed, e.g. as the session crashed, is read up to its last full block,
+ * but has no block times to index.
+ * <p>
+ * Compressed files are read block by block instead: opening also reads the index of the blocks, and a channel of
+ * a block is decoded on first access. The most recently decoded block of each channel is kept, so reading a
+ * channel in small, consecutive ranges, e.g. when replaying, decodes every block once.
+ */
+public class CaptureReader implements Closeable, SampleSource {
+
+    // A single mapping can not exceed 2GB, so larger files are mapped in regions.
+    private static final long MAX_REGION_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final CaptureHeader header;
+    private final long dataOffset;
+    private final int blocksPerRegion;
+    private final MappedByteBuffer[] regions;
+
+    // Only used for compressed blocks: the file position of every channel in every block, and the end of the last.
+    private final long[] channelBlockOffsets;
+    private final long[] decodedBlocks;
+    private final double[][] decodedValues;
+    // The file position of the block times, 0 if the file was never closed.
+    private final long blockTimesOffset;
+    private TimeIndex timeIndex;
+
+    /**
+     * Constructor for a given file.
+     *
+     * @param path the capture file.
+     * @throws IOException from the file, or if it is not a valid capture file.
+     */
+    public CaptureReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer start = ByteBuffer.allocate(CaptureHeader.BLOCK_TIMES_OFFSET + Long.BYTES);
+            readFully(start, 0);
+            int headerLength = CaptureHeader.readHeaderLength(start);
+            if (headerLength < start.capacity() || headerLength > channel.size()) {
+                throw new IOException("Not a capture file.");
+            }
+
+            ByteBuffer headerBuffer = ByteBuffer.allocate(headerLength);
+            readFully(headerBuffer, 0);
+            headerBuffer.flip();
+            CaptureHeader decoded = CaptureHeader.decode(headerBuffer);
+            this.blockTimesOffset = CaptureHeader.readBlockTimesPosition(start);
+            if (blockTimesOffset == 0 && !decoded.compressed()) {
+                // The sample count is written when closing, but the full blocks of a file that was never closed,
+                // e.g. when the session crashed, are still there.
+                decoded = decoded.withSampleCount((channel.size() - headerLength) / decoded.getBlockBytes() * decoded.blockSamples());
+            }
+            this.header = decoded;
+            this.dataOffset = headerLength;
+            this.channelBlockOffsets = header.compressed() ? readIndex() : null;
+            if (!header.compressed() && blockTimesOffset != 0
+                    && (blockTimesOffset != dataOffset + header.getBlockCount() * header.getBlockBytes()
+                    || blockTimesOffset + header.getBlockCount() * Double.BYTES > channel.size())) {
+                throw new IOException("Invalid capture file, the block times do not follow the blocks.");
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.decodedBlocks = new long[header.channelCount()];
+        this.decodedValues = new double[header.channelCount()][];
+        Arrays.fill(decodedBlocks, -1);
+
+        this.blocksPerRegion = (int) Math.max(1, MAX_REGION_BYTES / header.getBlockBytes());
+        this.regions = new MappedByteBuffer[(int) ((header.getBlockCount() + blocksPerRegion - 1) / blocksPerRegion)];
+    }
+
+    /**
+     * Reads the index of a compressed file, and sums the encoded sizes into file positions.
+     * The block times follow the index.
+     *
+     * @return the file position of every channel in every block, followed by the end of the last.
+     * @throws IOException from the file, or if the index does not match the header.
+     */
+    private long[] readIndex() throws IOException {
+        ByteBuffer indexPosition = ByteBuffer.allocate(Long.BYTES).order(CaptureHeader.BYTE_ORDER);
+        readFully(indexPosition, channel.size() - Long.BYTES);
+        long indexOffset = indexPosition.getLong(0);
+        long entries = header.getBlockCount() * header.channelCount();
+        long indexEnd = indexOffset + entries * Integer.BYTES;
+        if (indexOffset < dataOffset || indexEnd != blockTimesOffset
+                || indexEnd + header.getBlockCount() * Double.BYTES + Long.BYTES != channel.size()) {
+            throw new IOException("Invalid capture file index, was the file closed?");
+        }
+
+        ByteBuffer index = ByteBuffer.allocate((int) (entries * Integer.BYTES)).order(CaptureHeader.BYTE_ORDER);
+        readFully(index, indexOffset);
+        long[] offsets = new long[(int) entries + 1];
+        offsets[0] = dataOffset;
+        for (int i = 0; i < entries; i++) {
+            offsets[i + 1] = offsets[i] + index.getInt(i * Integer.BYTES);
+        }
+        if (offsets[(int) entries] != indexOffset) {
+            throw new IOException("Invalid capture file index, the blocks do not end at the index.");
+        }
+        return offsets;
+    }
+
+    /**
+     * Returns the header.
+     *
+     * @return the header.
+     */
+    public CaptureHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * Reads the first timestamp of every block, as stored by the {@link CaptureWriter}.
+     *
+     * @return the block times.
+     * @throws IOException from reading the file, or if it was never closed.
+     */
+    double[] readBlockTimes() throws IOException {
+        if (blockTimesOffset == 0) {
+            throw new IOException("The capture file has no block times, was the file closed?");
+        }
+        double[] blockTimes = new double[(int) header.getBlockCount()];
+        ByteBuffer buffer = ByteBuffer.allocate(blockTimes.length * Double.BYTES).order(CaptureHeader.BYTE_ORDER);
+        readFully(buffer, blockTimesOffset);
+        buffer.flip();
+        buffer.asDoubleBuffer().get(blockTimes);
+        return blockTimes;
+    }
+
+    /**
+     * Returns the number of channels (rows) per sample.
+     *
+     * @return channel count.
+     */
+    @Override
+    public int getChannelCount() {
+        return header.channelCount();
+    }
+
+    /**
+     * Returns the number of samples.
+     *
+     * @return number of samples.
+     */
+    @Override
+    public long getSampleCount() {
+        return header.sampleCount();
+    }
+
+    /**
+     * Returns a zero-copy view of a channel in a block, limited to the samples in the file.
+     * For a compressed file, it is a read-only view of the decoded values.
+     *
+     * @param blockIndex the block index.
+     * @param channel    the channel (row) index.
+     * @return the channel values of the block.
+     * @throws IOException from mapping or reading the file.
+     */
+    public DoubleBuffer channelBlock(long blockIndex, int channel) throws IOException {
+        if (channelBlockOffsets != null) {
+            return DoubleBuffer.wrap(decodedBlock(blockIndex, channel)).asReadOnlyBuffer();
+        }
+        int blockSamples = header.blockSamples();
+        MappedByteBuffer region = region((int) (blockIndex / blocksPerRegion));
+        long offset = (blockIndex % blocksPerRegion) * header.getBlockBytes() + (long) channel * blockSamples * Double.BYTES;
+        int samples = (int) Math.min(blockSamples, header.sampleCount() - blockIndex * blockSamples);
+
+        return region.slice((int) offset, samples * Double.BYTES).order(CaptureHeader.BYTE_ORDER).asDoubleBuffer();
+    }
+
+    /**
+     * Returns the decoded values of a channel in a compressed block, decoding them unless they were the last
+     * decoded values of the channel.
+     *
+     * @param blockIndex the block index.
+     * @param channel    the channel (row) index.
+     * @return the channel values of the block, not to be changed.
+     * @throws IOException from reading the file.
+     */
+    private double[] decodedBlock(long blockIndex, int channel) throws IOException {
+        synchronized (decodedValues) {
+            if (decodedBlocks[channel] == blockIndex) {
+                return decodedValues[channel];
+            }
+        }
+        int samples = (int) Math.min(header.blockSamples(), header.sampleCount() - blockIndex * header.blockSamples());
+        double[] values = new double[samples];
+        decodeBlock(blockIndex, channel, values, 0);
+        synchronized (decodedValues) {
+            decodedBlocks[channel] = blockIndex;
+            decodedValues[channel] = values;
+        }
+        return values;
+    }
+
+    /**
+     * Decodes a channel in a compressed block.
+     *
+     * @param blockIndex the block index.
+     * @param channel    the channel (row) index.
+     * @param dest       the destination, with room for the samples of the block.
+     * @param offset     the offset in the destination.
+     * @throws IOException from reading the file.
+     */
+    private void decodeBlock(long blockIndex, int channel, double[] dest, int offset) throws IOException {
+        int entry = (int) (blockIndex * header.channelCount() + channel);
+        long position = channelBlockOffsets[entry];
+        ByteBuffer encoded = ByteBuffer.allocate((int) (channelBlockOffsets[entry + 1] - position));
+        readFully(encoded, position);
+        int samples = (int) Math.min(header.blockSamples(), header.sampleCount() - blockIndex * header.blockSamples());
+        BlockCodec.decode(encoded.array(), 0, encoded.capacity(), dest, offset, samples);
+    }
+
+    /**
+     * Returns a single sample.
+     *
+     * @param channel the channel (row) index.
+     * @param sample  the sample index.
+     * @return the sample value.
+     * @throws IOException from mapping the file.
+     */
+    public double get(int channel, long sample) throws IOException {
+        return channelBlock(sample / header.blockSamples(), channel).get((int) (sample % header.blockSamples()));
+    }
+
+    /**
+     * Copies a range of samples of a channel into an array.
+     *
+     * @param channel the channel (row) index.
+     * @param from    the first sample index.
+     * @param dest    the destination array.
+     * @param offset  the offset in the destination array.
+     * @param length  the number of samples.
+     * @throws IOException from mapping the file.
+     */
+    public void read(int channel, long from, double[] dest, int offset, int length) throws IOException {
+        int blockSamples = header.blockSamples();
+        while (length > 0) {
+            int start = (int) (from % blockSamples);
+            if (channelBlockOffsets != null && start == 0 && length >= Math.min(blockSamples, header.sampleCount() - from)) {
+                // Decode a whole block straight into the destination.
+                int count = (int) Math.min(blockSamples, header.sampleCount() - from);
+                decodeBlock(from / blockSamples, channel, dest, offset);
+                from += count;
+                offset += count;
+                length -= count;
+                continue;
+            }
+            DoubleBuffer values = channelBlock(from / blockSamples, channel);
+            int count = Math.min(length, values.limit() - start);
+            values.get(start, dest, offset, count);
+            from += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Reads a range of samples of all channels.
+     *
+     * @param from   the first sample index.
+     * @param length the maximum number of samples.
+     * @return samples as [channel][sample], clipped to the samples in the file.
+     * @throws IOException from mapping the file.
+     */
+    @Override
+    public double[][] read(long from, int length) throws IOException {
+        int count = (int) Math.max(0, Math.min(length, header.sampleCount() - from));
+        double[][] chunk = new double[header.channelCount()][count];
+        for (int c = 0; c < chunk.length; c++) {
+            read(c, from, chunk[c], 0, count);
+        }
+        return chunk;
+    }
+
+    /**
+     * Returns a replayer for the captured session.
+     *
+     * @return the replayer, pacing by the captured timestamps.
+     */
+    public Replayer replayer() {
+        return new Replayer(this, header.samplingRate(), header.boardDescr().timestamp_channel);
+    }
+
+    /**
+     * Returns a replayer for a time range of the captured session, located through the time index,
+     * so only the samples of the range are read.
+     *
+     * @param fromSeconds the start of the range, in seconds after the first timestamp.
+     * @param toSeconds   the end of the range, in seconds after the first timestamp, excluded.
+     * @return the replayer, pacing by the captured timestamps.
+     * @throws IOException from reading the file.
+     */
+    public Replayer replayer(double fromSeconds, double toSeconds) throws IOException {
+        TimeIndex index = getTimeIndex();
+        SampleSource range = index.range(index.getStartTime() + fromSeconds, index.getStartTime() + toSeconds);
+        return new Replayer(range, header.samplingRate(), header.boardDescr().timestamp_channel);
+    }
+
+    /**
+     * Returns the time index, building it on first use.
+     *
+     * @return the time index.
+     * @throws IOException           from reading the file.
+     * @throws IllegalStateException if the board has no timestamp channel.
+     */
+    public synchronized TimeIndex getTimeIndex() throws IOException {
+        if (timeIndex == null) {
+            timeIndex = TimeIndex.of(this);
+        }
+        return timeIndex;
+    }
+
+    /**
+     * Closes the file. Mapped regions stay valid until they are garbage collected.
+     *
+     * @throws IOException from the file.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Returns a mapped region, mapping it on first access.
+     *
+     * @param regionIndex the region index.
+     * @return the region.
+     * @throws IOException from mapping the file.
+     */
+    private synchronized MappedByteBuffer region(int regionIndex) throws IOException {
+        MappedByteBuffer region = regions[regionIndex];
+        if (region == null) {
+            long firstBlock = (long) regionIndex * blocksPerRegion;
+            long blocks = Math.min(blocksPerRegion, header.getBlockCount() - firstBlock);
+            region = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + firstBlock * header.getBlockBytes(), blocks * header.getBlockBytes());
+            regions[regionIndex] = region;
+        }
+        return region;
+    }
+
+    /**
+     * Reads a buffer from a position.
+     *
+     * @param buffer   the buffer.
+     * @param position the file position.
+     * @throws IOException from the file, or at the end of the file.
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of capture file.");
+            }
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package org.example.bci.visualizer.capture;
+
+import org.example.bci.visualizer.DataExtractor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Writes samples to a capture file: a {@link CaptureHeader}, followed by fixed-size, channel-major sample blocks,
+ * and the first timestamp of every block, for the {@link TimeIndex}.
+ * <p>
+ * Compressed blocks, see {@link BlockCodec}, vary in size, so they follow each other, and are followed by an index
+ * of the encoded size of every channel in every block, the first timestamp of every block, and the file position
+ * of the index.
+ * <p>
+ * Can be added as a chunk listener to a {@link DataExtractor}, to write a session while it is being acquired.
+ */
+public class CaptureWriter implements Closeable, Consumer<double[][]> {
+
+    /**
+     * Default number of samples per block.
+     */
+    public static final int BLOCK_SAMPLES = 1024;
+
+    private final FileChannel channel;
+    private final CaptureHeader header;
+    private final long dataOffset;
+    private final ByteBuffer block;
+    private final DoubleBuffer blockValues;
+    private int blockFill = 0;
+    private long sampleCount = 0;
+    private final int timestampChannel;
+    // The first timestamp of every block, NaN without a timestamp channel.
+    private double[] blockTimes = new double[64];
+    private int blockCount = 0;
+    private double lastTime = Double.NaN;
+
+    // Only used for compressed blocks.
+    private final double[][] pendingBlock;
+    private final BlockCodec codec;
+    private final byte[] encoded;
+    private int[] index;
+    private int indexSize = 0;
+    private long position;
+
+    /**
+     * Constructor for a given file and header.
+     *
+     * @param path   the file to create, or overwrite.
+     * @param header the header, the sample count is filled in when closing.
+     * @throws IOException from the file.
+     */
+    public CaptureWriter(Path path, CaptureHeader header) throws IOException {
+        this.header = header;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer encodedHeader = header.withSampleCount(0).encode();
+        this.dataOffset = encodedHeader.remaining();
+        this.position = dataOffset;
+        writeFully(encodedHeader, 0);
+        int timestamps = header.boardDescr().timestamp_channel;
+        this.timestampChannel = timestamps >= 0 && timestamps < header.channelCount() ? timestamps : -1;
+
+        if (header.compressed()) {
+            this.block = null;
+            this.blockValues = null;
+            this.pendingBlock = new double[header.channelCount()][header.blockSamples()];
+            this.codec = new BlockCodec();
+            this.encoded = new byte[header.channelCount() * BlockCodec.maxEncodedBytes(header.blockSamples())];
+            this.index = new int[header.channelCount() * 64];
+        } else {
+            this.block = ByteBuffer.allocateDirect((int) header.getBlockBytes()).order(CaptureHeader.BYTE_ORDER);
+            this.blockValues = block.asDoubleBuffer();
+            this.pendingBlock = null;
+            this.codec = null;
+            this.encoded = null;
+        }
+    }
+
+    /**
+     * Constructor for the board of a data extractor.
+     *
+     * @param path          the file to create, or overwrite.
+     * @param dataExtractor the data extractor, describing the board.
+     * @throws IOException from the file.
+     */
+    public CaptureWriter(Path path, DataExtractor dataExtractor) throws IOException {
+        this(path, dataExtractor, false);
+    }
+
+    /**
+     * Constructor for the board of a data extractor, with compressed or uncompressed blocks.
+     *
+     * @param path          the file to create, or overwrite.
+     * @param dataExtractor the data extractor, describing the board.
+     * @param compressed    true to compress the blocks.
+     * @throws IOException from the file.
+     */
+    public CaptureWriter(Path path, DataExtractor dataExtractor, boolean compressed) throws IOException {
+        this(path, new CaptureHeader(dataExtractor.getBoardId(), dataExtractor.getSamplingRate(),
+                dataExtractor.getDataLabels().length, BLOCK_SAMPLES, 0, dataExtractor.getBoardDescr(), dataExtractor.getDataLabels(), compressed));
+    }
+
+    /**
+     * Appends a chunk of samples.
+     *
+     * @param chunk samples as [channel][sample], as returned by BrainFlow.
+     * @throws IOException from the file.
+     */
+    public void write(double[][] chunk) throws IOException {
+        if (chunk == null || chunk.length == 0) {
+            return;
+        }
+        int blockSamples = header.blockSamples();
+        int chunkLength = chunk[0].length;
+        int offset = 0;
+
+        while (offset < chunkLength) {
+            int length = Math.min(chunkLength - offset, blockSamples - blockFill);
+            for (int c = 0; c < header.channelCount(); c++) {
+                if (pendingBlock != null) {
+                    System.arraycopy(chunk[c], offset, pendingBlock[c], blockFill, length);
+                } else {
+                    blockValues.put(c * blockSamples + blockFill, chunk[c], offset, length);
+                }
+            }
+            blockFill += length;
+            offset += length;
+            sampleCount += length;
+
+            if (blockFill == blockSamples) {
+                flushBlock();
+            }
+        }
+    }
+
+    /**
+     * Appends a chunk of samples, for use as a chunk listener.
+     *
+     * @param chunk samples as [channel][sample], as returned by BrainFlow.
+     * @throws UncheckedIOException from the file.
+     */
+    @Override
+    public void accept(double[][] chunk) {
+        try {
+            write(chunk);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the number of samples written.
+     *
+     * @return samples written.
+     */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Writes the last, partly filled, block, the block times, the final sample count and the position of the block times,
+     * and closes the file.
+     *
+     * @throws IOException from the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (blockFill > 0 && pendingBlock != null) {
+                flushBlock();
+            } else if (blockFill > 0) {
+                // Blocks always have the full size, so they can be located without an index.
+                for (int i = 0; i < blockValues.capacity(); i++) {
+                    if (i % header.blockSamples() >= blockFill) {
+                        blockValues.put(i, 0);
+                    }
+                }
+                flushBlock();
+            }
+            long blockTimesPosition;
+            if (pendingBlock != null) {
+                blockTimesPosition = writeIndex();
+            } else {
+                blockTimesPosition = dataOffset + blockCount * header.getBlockBytes();
+                writeFully(encodeBlockTimes(0), blockTimesPosition);
+            }
+            ByteBuffer counts = ByteBuffer.allocate(2 * Long.BYTES).order(CaptureHeader.BYTE_ORDER)
+                    .putLong(0, sampleCount)
+                    .putLong(CaptureHeader.BLOCK_TIMES_OFFSET - CaptureHeader.SAMPLE_COUNT_OFFSET, blockTimesPosition);
+            writeFully(counts, CaptureHeader.SAMPLE_COUNT_OFFSET);
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes the current block, and starts a new one.
+     *
+     * @throws IOException from the file.
+     */
+    private void flushBlock() throws IOException {
+        if (blockCount == blockTimes.length) {
+            blockTimes = Arrays.copyOf(blockTimes, blockCount * 2);
+        }
+        double blockTime = Double.NaN;
+        if (timestampChannel >= 0) {
+            // A missing (NaN) timestamp is taken as the timestamp before it, as by the TimeIndex.
+            blockTime = Double.isNaN(timestamp(0)) ? lastTime : timestamp(0);
+            for (int i = blockFill - 1; i >= 0; i--) {
+                if (!Double.isNaN(timestamp(i))) {
+                    lastTime = timestamp(i);
+                    break;
+                }
+            }
+        }
+        blockTimes[blockCount++] = blockTime;
+        if (pendingBlock != null) {
+            flushCompressedBlock();
+            return;
+        }
+        long blockIndex = (sampleCount - 1) / header.blockSamples();
+        block.clear();
+        writeFully(block, dataOffset + blockIndex * header.getBlockBytes());
+        blockFill = 0;
+    }
+
+    /**
+     * Returns a timestamp of the current block.
+     *
+     * @param sample the sample index in the block.
+     * @return the timestamp.
+     */
+    private double timestamp(int sample) {
+        return pendingBlock != null ? pendingBlock[timestampChannel][sample] : blockValues.get(timestampChannel * header.blockSamples() + sample);
+    }
+
+    /**
+     * Compresses the current block, only holding the samples written to it, appends it, and starts a new one.
+     *
+     * @throws IOException from the file.
+     */
+    private void flushCompressedBlock() throws IOException {
+        if (indexSize + pendingBlock.length > index.length) {
+            index = Arrays.copyOf(index, index.length * 2);
+        }
+        int length = 0;
+        for (double[] values : pendingBlock) {
+            int channelBytes = codec.encode(values, 0, blockFill, encoded, length);
+            index[indexSize++] = channelBytes;
+            length += channelBytes;
+        }
+        writeFully(ByteBuffer.wrap(encoded, 0, length), position);
+        position += length;
+        blockFill = 0;
+    }
+
+    /**
+     * Writes the index of the compressed blocks and the block times, followed by the file position of the index.
+     *
+     * @return the file position of the block times.
+     * @throws IOException from the file.
+     */
+    private long writeIndex() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(indexSize * Integer.BYTES).order(CaptureHeader.BYTE_ORDER);
+        buffer.asIntBuffer().put(index, 0, indexSize);
+        writeFully(buffer, position);
+        ByteBuffer times = encodeBlockTimes(Long.BYTES);
+        times.putLong(blockCount * Double.BYTES, position);
+        long blockTimesPosition = position + (long) indexSize * Integer.BYTES;
+        writeFully(times, blockTimesPosition);
+        return blockTimesPosition;
+    }
+
+    /**
+     * Encodes the first timestamp of every block.
+     *
+     * @param extraBytes room to leave after the times.
+     * @return the buffer, holding the times and the extra room.
+     */
+    private ByteBuffer encodeBlockTimes(int extraBytes) {
+        ByteBuffer buffer = ByteBuffer.allocate(blockCount * Double.BYTES + extraBytes).order(CaptureHeader.BYTE_ORDER);
+        buffer.asDoubleBuffer().put(blockTimes, 0, blockCount);
+        return buffer;
+    }
+
+    /**
+     * Writes a buffer at a position.
+     *
+     * @param buffer   the buffer.
+     * @param position the file position.
+     * @throws IOException from the file.
+     */
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
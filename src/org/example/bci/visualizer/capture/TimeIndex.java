@@ -0,0 +1,170 @@
+package org.example.bci.visualizer.capture;
+
+import org.example.bci.visualizer.SampleSource;
+
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+
+/**
+ * Sparse index over the timestamp channel of a capture file, locating a time with binary searches.
+ * <p>
+ * The index holds the first timestamp of every block, as stored at the end of the file by the {@link CaptureWriter},
+ * so building it reads those timestamps only, and finding a time reads the timestamps of one block.
+ * Timestamps are expected not to decrease, as BrainFlow records them; a missing (NaN) timestamp is taken as
+ * the timestamp before it.
+ *
+ * <pre>{@code
+ * TimeIndex index = reader.getTimeIndex();
+ * SampleSource minutes = index.range(index.getStartTime() + 42 * 60, index.getStartTime() + 45 * 60);
+ * }</pre>
+ */
+public final class TimeIndex {
+
+    private final CaptureReader reader;
+    private final int timestampChannel;
+    private final double[] blockTimes;
+    private final double startTime;
+
+    /**
+     * Constructor.
+     *
+     * @param reader           the capture file.
+     * @param timestampChannel the timestamp channel (row).
+     * @param blockTimes       the first timestamp of every block, negative infinity before the first timestamp.
+     * @param startTime        the first timestamp.
+     */
+    private TimeIndex(CaptureReader reader, int timestampChannel, double[] blockTimes, double startTime) {
+        this.reader = reader;
+        this.timestampChannel = timestampChannel;
+        this.blockTimes = blockTimes;
+        this.startTime = startTime;
+    }
+
+    /**
+     * Builds the index of a capture file.
+     *
+     * @param reader the capture file.
+     * @return the index.
+     * @throws IOException           from reading the file, or if it was never closed.
+     * @throws IllegalStateException if the board has no timestamp channel.
+     */
+    public static TimeIndex of(CaptureReader reader) throws IOException {
+        CaptureHeader header = reader.getHeader();
+        int timestampChannel = header.boardDescr().timestamp_channel;
+        if (timestampChannel < 0 || timestampChannel >= header.channelCount()) {
+            throw new IllegalStateException("The capture file of " + header.boardDescr().name + " has no timestamp channel.");
+        }
+
+        double[] blockTimes = reader.readBlockTimes();
+        // A block starting without a timestamp is stored with the one before it, so only the blocks before
+        // the first timestamp are NaN. That timestamp is in the block before the first one with a time, or starts it.
+        int first = 0;
+        while (first < blockTimes.length && Double.isNaN(blockTimes[first])) {
+            blockTimes[first++] = Double.NEGATIVE_INFINITY;
+        }
+        double startTime = Double.NaN;
+        if (first < blockTimes.length) {
+            startTime = blockTimes[first];
+            if (first > 0) {
+                DoubleBuffer times = reader.channelBlock(first - 1, timestampChannel);
+                for (int i = 0; i < times.limit(); i++) {
+                    if (!Double.isNaN(times.get(i))) {
+                        startTime = times.get(i);
+                        break;
+                    }
+                }
+            }
+        }
+        return new TimeIndex(reader, timestampChannel, blockTimes, startTime);
+    }
+
+    /**
+     * Returns the timestamp of the first sample with a timestamp.
+     *
+     * @return the start time, in seconds since the epoch, or NaN for a file without timestamps.
+     */
+    public double getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Returns the timestamp of the last sample.
+     *
+     * @return the end time, in seconds since the epoch, or NaN for an empty file.
+     * @throws IOException from reading the file.
+     */
+    public double getEndTime() throws IOException {
+        long sampleCount = reader.getSampleCount();
+        return sampleCount == 0 ? Double.NaN : reader.get(timestampChannel, sampleCount - 1);
+    }
+
+    /**
+     * Finds the first sample at or after a time: a binary search for the block, then within its timestamps.
+     *
+     * @param time the time, in seconds since the epoch.
+     * @return the sample index, or the sample count if all samples are before the time.
+     * @throws IOException from reading the file.
+     */
+    public long find(double time) throws IOException {
+        // The last block starting before the time, which holds the sample, unless it is the first of the next block.
+        int low = 0;
+        int high = blockTimes.length - 1;
+        int block = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (blockTimes[middle] < time) {
+                block = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (block < 0) {
+            return 0;
+        }
+
+        DoubleBuffer times = reader.channelBlock(block, timestampChannel);
+        int first = 0;
+        int last = times.limit();
+        while (first < last) {
+            int middle = (first + last) >>> 1;
+            if (timeAt(times, middle, blockTimes[block]) < time) {
+                first = middle + 1;
+            } else {
+                last = middle;
+            }
+        }
+        return (long) block * reader.getHeader().blockSamples() + first;
+    }
+
+    /**
+     * Returns the timestamp of a sample in a block, or of the last sample before it with a timestamp,
+     * so the timestamps of a block do not decrease, even with missing (NaN) timestamps.
+     *
+     * @param times     the timestamps of the block.
+     * @param index     the sample index in the block.
+     * @param blockTime the indexed time of the block, for missing timestamps at its start.
+     * @return the timestamp.
+     */
+    private static double timeAt(DoubleBuffer times, int index, double blockTime) {
+        for (int i = index; i >= 0; i--) {
+            double time = times.get(i);
+            if (!Double.isNaN(time)) {
+                return time;
+            }
+        }
+        return blockTime;
+    }
+
+    /**
+     * Returns the samples of a time range, read from the capture file when read.
+     *
+     * @param from the start time, in seconds since the epoch.
+     * @param to   the end time, in seconds since the epoch, excluded.
+     * @return the samples from the first sample at or after the start time, up to the first sample at or after the end time.
+     * @throws IOException from reading the file.
+     */
+    public SampleSource range(double from, double to) throws IOException {
+        return reader.slice(find(from), find(to));
+    }
+}
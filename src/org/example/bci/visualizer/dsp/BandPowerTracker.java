@@ -0,0 +1,277 @@
+package org.example.bci.visualizer.dsp;
+
+import brainflow.BoardDescr;
+
+/**
+ * Tracks the EEG band powers of streamed channels, over a sliding window, updated every hop of samples.
+ * <p>
+ * Each channel keeps a sliding DFT of only the bins the bands need, updated in constant time per sample and bin,
+ * so an update never redoes the transform. The twiddle factors are computed once, and the Hann window is applied
+ * in the frequency domain, as a three-tap kernel over neighbouring bins.
+ */
+public final class BandPowerTracker extends WindowedTracker<BandPowerTracker.BandPowers> {
+
+    /**
+     * The EEG bands, with the same edges as BrainFlow's average band powers.
+     */
+    public enum Band {
+        DELTA("Delta", 2, 4),
+        THETA("Theta", 4, 8),
+        ALPHA("Alpha", 8, 13),
+        BETA("Beta", 13, 30),
+        GAMMA("Gamma", 30, 45);
+
+        private final String title;
+        private final double startFrequency;
+        private final double stopFrequency;
+
+        Band(String title, double startFrequency, double stopFrequency) {
+            this.title = title;
+            this.startFrequency = startFrequency;
+            this.stopFrequency = stopFrequency;
+        }
+
+        /**
+         * Returns the title.
+         *
+         * @return the title.
+         */
+        public String getTitle() {
+            return title;
+        }
+
+        /**
+         * Returns the start frequency, included in the band.
+         *
+         * @return start frequency in Hz.
+         */
+        public double getStartFrequency() {
+            return startFrequency;
+        }
+
+        /**
+         * Returns the stop frequency, excluded from the band.
+         *
+         * @return stop frequency in Hz.
+         */
+        public double getStopFrequency() {
+            return stopFrequency;
+        }
+    }
+
+    /**
+     * The band powers of all tracked channels, at one update.
+     *
+     * @param sample    the number of samples seen, including the last sample of the window.
+     * @param timestamp the timestamp of the last sample of the window, or NaN without a timestamp channel.
+     * @param powers    band powers as [channel][band], in squared units of the samples, e.g. μV².
+     */
+    public record BandPowers(long sample, double timestamp, double[][] powers) {
+    }
+
+    // Window length, in seconds, rounded up to a power of two samples.
+    static final double WINDOW_SECONDS = 2;
+
+    // Hop length, in seconds.
+    static final double HOP_SECONDS = 0.5;
+
+    private static final Band[] BANDS = Band.values();
+
+    private final int samplingRate;
+    private final int[] channels;
+    private final int windowSize;
+
+    // The plan: the tracked bins, and their twiddle factors.
+    private final int firstBin;
+    private final double[] twiddleRe;
+    private final double[] twiddleIm;
+    // The bins of each band, as [band][first, last].
+    private final int[][] bandBins;
+    // Scale from the sum of squared windowed bins to a one sided band power.
+    private final double powerScale;
+
+    // Sliding DFT per channel, as [channel][bin].
+    private final double[][] binRe;
+    private final double[][] binIm;
+    // The samples in the window per channel, to slide the oldest one out.
+    private final double[][] history;
+    private int historyPos = 0;
+
+    /**
+     * Constructor with a two second window, rounded up to a power of two samples, updated every half second.
+     *
+     * @param samplingRate     in Hz.
+     * @param channels         the channel (row) indices to track.
+     * @param timestampChannel the timestamp channel (row) index, or -1 for none.
+     */
+    public BandPowerTracker(int samplingRate, int[] channels, int timestampChannel) {
+        this(samplingRate, channels, timestampChannel, windowSamples(samplingRate, WINDOW_SECONDS), hopSamples(samplingRate, HOP_SECONDS));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param samplingRate     in Hz.
+     * @param channels         the channel (row) indices to track.
+     * @param timestampChannel the timestamp channel (row) index, or -1 for none.
+     * @param windowSize       the window length, in samples.
+     * @param hop              the number of samples between updates.
+     */
+    public BandPowerTracker(int samplingRate, int[] channels, int timestampChannel, int windowSize, int hop) {
+        super(timestampChannel, windowSize, hop);
+        this.samplingRate = samplingRate;
+        this.channels = channels.clone();
+        this.windowSize = windowSize;
+
+        // Bins of each band, below the Nyquist bin, so the window kernel has both neighbours.
+        double resolution = (double) samplingRate / windowSize;
+        int lastUsable = windowSize / 2 - 1;
+        bandBins = new int[BANDS.length][];
+        int first = lastUsable;
+        int last = 1;
+        for (int b = 0; b < BANDS.length; b++) {
+            int start = Math.max(1, (int) Math.ceil(BANDS[b].startFrequency / resolution));
+            int stop = Math.min(lastUsable, (int) Math.ceil(BANDS[b].stopFrequency / resolution) - 1);
+            bandBins[b] = new int[]{start, stop};
+            if (start <= stop) {
+                first = Math.min(first, start);
+                last = Math.max(last, stop);
+            }
+        }
+        if (first > last) {
+            first = last;
+        }
+        firstBin = first - 1;
+        int binCount = last + 2 - firstBin;
+
+        twiddleRe = new double[binCount];
+        twiddleIm = new double[binCount];
+        for (int i = 0; i < binCount; i++) {
+            double angle = 2 * Math.PI * (firstBin + i) / windowSize;
+            twiddleRe[i] = Math.cos(angle);
+            twiddleIm[i] = Math.sin(angle);
+        }
+        // Hann window power is 3N/8, doubled for one side, times the bin width.
+        powerScale = 16.0 / (3.0 * windowSize * windowSize);
+
+        binRe = new double[channels.length][binCount];
+        binIm = new double[channels.length][binCount];
+        history = new double[channels.length][windowSize];
+    }
+
+    /**
+     * Returns a tracker for the EEG channels of a board.
+     *
+     * @param boardDescr the board descriptor.
+     * @return the tracker, with no channels when the board has no EEG channels.
+     */
+    public static BandPowerTracker forBoard(BoardDescr boardDescr) {
+        int[] eegChannels = boardDescr.eeg_channels == null ? new int[0] : boardDescr.eeg_channels.stream().mapToInt(Integer::intValue).toArray();
+        return new BandPowerTracker(boardDescr.sampling_rate, eegChannels, boardDescr.timestamp_channel);
+    }
+
+    /**
+     * Slides the windows of all channels over a segment of a chunk.
+     *
+     * @param chunk  samples as [channel][sample].
+     * @param from   the first sample index.
+     * @param length the number of samples.
+     */
+    @Override
+    void add(double[][] chunk, int from, int length) {
+        for (int c = 0; c < channels.length; c++) {
+            slide(c, chunk[channels[c]], from, length);
+        }
+        historyPos = (historyPos + length) % windowSize;
+    }
+
+    /**
+     * Returns the band powers of the current window.
+     *
+     * @param timestamp the timestamp of the last sample of the window.
+     * @return the band powers.
+     */
+    @Override
+    BandPowers update(double timestamp) {
+        return new BandPowers(getSeen(), timestamp, getPowers());
+    }
+
+    /**
+     * Slides the window of one channel over a range of samples.
+     *
+     * @param c      the index of the channel, in the channels of this tracker.
+     * @param data   the samples.
+     * @param from   the first sample index.
+     * @param length the number of samples.
+     */
+    private void slide(int c, double[] data, int from, int length) {
+        double[] re = binRe[c];
+        double[] im = binIm[c];
+        double[] window = history[c];
+        int pos = historyPos;
+        for (int i = from; i < from + length; i++) {
+            double x = Double.isFinite(data[i]) ? data[i] : 0;
+            double delta = x - window[pos];
+            window[pos] = x;
+            if (++pos == windowSize) {
+                pos = 0;
+            }
+            for (int k = 0; k < re.length; k++) {
+                double r = re[k] + delta;
+                double m = im[k];
+                re[k] = r * twiddleRe[k] - m * twiddleIm[k];
+                im[k] = r * twiddleIm[k] + m * twiddleRe[k];
+            }
+        }
+    }
+
+    /**
+     * Returns the current band powers of all channels, from the Hann windowed bins.
+     *
+     * @return band powers as [channel][band].
+     */
+    public double[][] getPowers() {
+        double[][] powers = new double[channels.length][BANDS.length];
+        for (int c = 0; c < channels.length; c++) {
+            double[] re = binRe[c];
+            double[] im = binIm[c];
+            for (int b = 0; b < BANDS.length; b++) {
+                double sum = 0;
+                for (int k = bandBins[b][0] - firstBin; k <= bandBins[b][1] - firstBin; k++) {
+                    double yRe = 0.5 * re[k] - 0.25 * (re[k - 1] + re[k + 1]);
+                    double yIm = 0.5 * im[k] - 0.25 * (im[k - 1] + im[k + 1]);
+                    sum += yRe * yRe + yIm * yIm;
+                }
+                powers[c][b] = sum * powerScale;
+            }
+        }
+        return powers;
+    }
+
+    /**
+     * Returns the bands.
+     *
+     * @return the bands, in the order of the powers.
+     */
+    public static Band[] getBands() {
+        return BANDS.clone();
+    }
+
+    /**
+     * Returns the tracked channels.
+     *
+     * @return channel (row) indices, in the order of the powers.
+     */
+    public int[] getChannels() {
+        return channels.clone();
+    }
+
+    /**
+     * Returns the sampling rate.
+     *
+     * @return sampling rate in Hz.
+     */
+    public int getSamplingRate() {
+        return samplingRate;
+    }
+}
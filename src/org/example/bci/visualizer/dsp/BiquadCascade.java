@@ -0,0 +1,562 @@
+package org.example.bci.visualizer.dsp;
+
+import brainflow.FilterTypes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An IIR filter, as a cascade of second order sections (biquads), designed from the same parameters as the
+ * filter methods of {@link org.example.bci.visualizer.DataExtractor}.
+ * <p>
+ * Filters are designed from an analog Butterworth or Chebyshev type I prototype, transformed to low pass, high pass,
+ * band pass or band stop, and mapped to the z-plane by the bilinear transform, with prewarped band edges.
+ * A cascade is immutable, the filter state lives in a {@link StreamingFilter}.
+ */
+public final class BiquadCascade {
+
+    // Coefficients per section.
+    static final int COEFFICIENTS = 5;
+
+    // State values per section.
+    static final int STATE = 2;
+
+    // Order of the filters of a filter spec, and quality of its notches.
+    static final int DEFAULT_ORDER = 4;
+    static final double DEFAULT_QUALITY = 30;
+
+    // Zeros of a low pass section, at the Nyquist frequency.
+    private static final double[] ZERO_NYQUIST = {1, 2, 1};
+
+    // Zeros of a high pass section, at DC.
+    private static final double[] ZERO_DC = {1, -2, 1};
+
+    // Coefficients as b0, b1, b2, a1, a2 per section, with a0 normalized to 1.
+    private final double[] coefficients;
+
+    /**
+     * Constructor for given coefficients.
+     *
+     * @param coefficients b0, b1, b2, a1, a2 per section, with a0 normalized to 1.
+     */
+    BiquadCascade(double[] coefficients) {
+        if (coefficients.length == 0 || coefficients.length % COEFFICIENTS != 0) {
+            throw new IllegalArgumentException("Coefficients must be five per section, was " + coefficients.length);
+        }
+        this.coefficients = coefficients.clone();
+    }
+
+    /**
+     * Returns a low pass filter.
+     *
+     * @param samplingRate in Hz.
+     * @param cutOff       cut off frequency in Hz.
+     * @param order        order of the filter.
+     * @param filterType   type of the filter, Butterworth or Chebyshev type I.
+     * @param ripple       pass band ripple in dB, for Chebyshev type I.
+     * @return the filter.
+     */
+    public static BiquadCascade lowPass(int samplingRate, double cutOff, int order, FilterTypes filterType, double ripple) {
+        checkFrequency(samplingRate, cutOff);
+        Complex[] prototype = prototype(order, filterType, ripple);
+        double warped = prewarp(samplingRate, cutOff);
+
+        List<double[]> sections = new ArrayList<>();
+        for (Complex pole : prototype) {
+            addSection(sections, bilinear(pole.scale(warped)), ZERO_NYQUIST);
+        }
+        return normalize(sections, 0, prototypeGain(order, filterType, ripple));
+    }
+
+    /**
+     * Returns a high pass filter.
+     *
+     * @param samplingRate in Hz.
+     * @param cutOff       cut off frequency in Hz.
+     * @param order        order of the filter.
+     * @param filterType   type of the filter, Butterworth or Chebyshev type I.
+     * @param ripple       pass band ripple in dB, for Chebyshev type I.
+     * @return the filter.
+     */
+    public static BiquadCascade highPass(int samplingRate, double cutOff, int order, FilterTypes filterType, double ripple) {
+        checkFrequency(samplingRate, cutOff);
+        Complex[] prototype = prototype(order, filterType, ripple);
+        double warped = prewarp(samplingRate, cutOff);
+
+        List<double[]> sections = new ArrayList<>();
+        for (Complex pole : prototype) {
+            addSection(sections, bilinear(Complex.real(warped).divide(pole)), ZERO_DC);
+        }
+        return normalize(sections, Math.PI, prototypeGain(order, filterType, ripple));
+    }
+
+    /**
+     * Returns a band pass filter.
+     *
+     * @param samplingRate   in Hz.
+     * @param startFrequency the frequency to start the band pass filter.
+     * @param stopFrequency  the frequency to stop the band pass filter.
+     * @param order          order of the filter.
+     * @param filterType     type of the filter, Butterworth or Chebyshev type I.
+     * @param ripple         pass band ripple in dB, for Chebyshev type I.
+     * @return the filter.
+     */
+    public static BiquadCascade bandPass(int samplingRate, double startFrequency, double stopFrequency, int order, FilterTypes filterType, double ripple) {
+        checkBand(samplingRate, startFrequency, stopFrequency);
+        Complex[] prototype = prototype(order, filterType, ripple);
+        double low = prewarp(samplingRate, startFrequency);
+        double high = prewarp(samplingRate, stopFrequency);
+        double width = high - low;
+        double centre2 = low * high;
+
+        // s -> (s^2 + w0^2) / (s * bw), each prototype pole p gives the roots of s^2 - p*bw*s + w0^2.
+        List<double[]> sections = new ArrayList<>();
+        double[] zeros = {1, 0, -1};
+        for (Complex pole : prototype) {
+            Complex[] roots = quadraticRoots(pole.scale(width), centre2);
+            if (pole.im() == 0) {
+                addSection(sections, bilinear(roots[0]), bilinear(roots[1]), zeros);
+            } else {
+                addSection(sections, bilinear(roots[0]), zeros);
+                addSection(sections, bilinear(roots[1]), zeros);
+            }
+        }
+        return normalize(sections, 2 * Math.atan(Math.sqrt(centre2)), prototypeGain(order, filterType, ripple));
+    }
+
+    /**
+     * Returns a band stop filter.
+     *
+     * @param samplingRate   in Hz.
+     * @param startFrequency the frequency to start the band stop filter.
+     * @param stopFrequency  the frequency to stop the band stop filter.
+     * @param order          order of the filter.
+     * @param filterType     type of the filter, Butterworth or Chebyshev type I.
+     * @param ripple         pass band ripple in dB, for Chebyshev type I.
+     * @return the filter.
+     */
+    public static BiquadCascade bandStop(int samplingRate, double startFrequency, double stopFrequency, int order, FilterTypes filterType, double ripple) {
+        checkBand(samplingRate, startFrequency, stopFrequency);
+        Complex[] prototype = prototype(order, filterType, ripple);
+        double low = prewarp(samplingRate, startFrequency);
+        double high = prewarp(samplingRate, stopFrequency);
+        double width = high - low;
+        double centre2 = low * high;
+
+        // s -> s * bw / (s^2 + w0^2), each prototype pole p gives the roots of s^2 - (bw/p)*s + w0^2.
+        List<double[]> sections = new ArrayList<>();
+        double[] zeros = {1, -2 * Math.cos(2 * Math.atan(Math.sqrt(centre2))), 1};
+        for (Complex pole : prototype) {
+            Complex[] roots = quadraticRoots(Complex.real(width).divide(pole), centre2);
+            if (pole.im() == 0) {
+                addSection(sections, bilinear(roots[0]), bilinear(roots[1]), zeros);
+            } else {
+                addSection(sections, bilinear(roots[0]), zeros);
+                addSection(sections, bilinear(roots[1]), zeros);
+            }
+        }
+        return normalize(sections, 0, prototypeGain(order, filterType, ripple));
+    }
+
+    /**
+     * Returns a second order notch filter.
+     *
+     * @param samplingRate in Hz.
+     * @param frequency    the frequency to remove, in Hz.
+     * @param quality      the quality factor, the notch frequency divided by the -3 dB width.
+     * @return the filter.
+     */
+    public static BiquadCascade notch(int samplingRate, double frequency, double quality) {
+        checkFrequency(samplingRate, frequency);
+        if (quality <= 0) {
+            throw new IllegalArgumentException("Quality must be positive, was " + quality);
+        }
+        double w0 = 2 * Math.PI * frequency / samplingRate;
+        double alpha = Math.sin(w0) / (2 * quality);
+        double a0 = 1 + alpha;
+        double cos = -2 * Math.cos(w0);
+        return new BiquadCascade(new double[]{1 / a0, cos / a0, 1 / a0, cos / a0, (1 - alpha) / a0});
+    }
+
+    /**
+     * Returns a chain of filters, from comma separated filter specs, each a filter name and its frequencies in Hz,
+     * optionally followed by the order, or the quality of a notch, separated by colons:
+     * {@code lowpass:<cut off>}, {@code highpass:<cut off>}, {@code bandpass:<start>:<stop>},
+     * {@code bandstop:<start>:<stop>} and {@code notch:<frequency>}, e.g. {@code "highpass:1,notch:50,lowpass:45:6"}.
+     * The filters are fourth order Butterworth filters by default, and notches have a quality of 30.
+     *
+     * @param samplingRate in Hz.
+     * @param specs        the filter specs.
+     * @return the filter chain, as one cascade.
+     * @throws IllegalArgumentException if a spec is not valid.
+     */
+    public static BiquadCascade parse(int samplingRate, String specs) {
+        BiquadCascade chain = null;
+        for (String spec : specs.split(",")) {
+            String[] parts = spec.trim().split(":");
+            double[] values = new double[parts.length - 1];
+            try {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = Double.parseDouble(parts[i + 1].trim());
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Filter spec is not valid: " + spec, e);
+            }
+            BiquadCascade filter = switch (parts[0].trim().toLowerCase()) {
+                case "lowpass" -> lowPass(samplingRate, value(spec, values, 0, Double.NaN), order(spec, values, 1), FilterTypes.BUTTERWORTH, 0);
+                case "highpass" -> highPass(samplingRate, value(spec, values, 0, Double.NaN), order(spec, values, 1), FilterTypes.BUTTERWORTH, 0);
+                case "bandpass" -> bandPass(samplingRate, value(spec, values, 0, Double.NaN), value(spec, values, 1, Double.NaN), order(spec, values, 2), FilterTypes.BUTTERWORTH, 0);
+                case "bandstop" -> bandStop(samplingRate, value(spec, values, 0, Double.NaN), value(spec, values, 1, Double.NaN), order(spec, values, 2), FilterTypes.BUTTERWORTH, 0);
+                case "notch" -> notch(samplingRate, value(spec, values, 0, Double.NaN), value(spec, values, 1, DEFAULT_QUALITY));
+                default -> throw new IllegalArgumentException("Unknown filter in spec: " + spec);
+            };
+            chain = chain == null ? filter : chain.then(filter);
+        }
+        return chain;
+    }
+
+    /**
+     * Returns a value of a filter spec.
+     *
+     * @param spec         the filter spec, for the error message.
+     * @param values       the values of the spec.
+     * @param index        the index of the value.
+     * @param defaultValue the value when missing, or NaN if required.
+     * @return the value.
+     */
+    private static double value(String spec, double[] values, int index, double defaultValue) {
+        if (index < values.length) {
+            return values[index];
+        }
+        if (Double.isNaN(defaultValue)) {
+            throw new IllegalArgumentException("Filter spec is missing a frequency: " + spec);
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Returns the order of a filter spec.
+     *
+     * @param spec   the filter spec, for the error message.
+     * @param values the values of the spec.
+     * @param index  the index of the order.
+     * @return the order, or the default order when missing.
+     */
+    private static int order(String spec, double[] values, int index) {
+        return (int) value(spec, values, index, DEFAULT_ORDER);
+    }
+
+    /**
+     * Returns a cascade applying this filter, then another.
+     *
+     * @param next the filter to apply next.
+     * @return the cascade of both filters.
+     */
+    public BiquadCascade then(BiquadCascade next) {
+        double[] chained = Arrays.copyOf(coefficients, coefficients.length + next.coefficients.length);
+        System.arraycopy(next.coefficients, 0, chained, coefficients.length, next.coefficients.length);
+        return new BiquadCascade(chained);
+    }
+
+    /**
+     * Returns the number of second order sections.
+     *
+     * @return section count.
+     */
+    public int getSectionCount() {
+        return coefficients.length / COEFFICIENTS;
+    }
+
+    /**
+     * Returns the magnitude response.
+     *
+     * @param samplingRate in Hz.
+     * @param frequency    in Hz.
+     * @return the gain at the frequency.
+     */
+    public double getGain(int samplingRate, double frequency) {
+        return gain(coefficients, 2 * Math.PI * frequency / samplingRate);
+    }
+
+    /**
+     * Filters a range of samples in place, in transposed direct form II, updating the state.
+     * Allocates nothing.
+     *
+     * @param state  the state, two values per section.
+     * @param data   the samples.
+     * @param from   the first sample index.
+     * @param length the number of samples.
+     */
+    void process(double[] state, double[] data, int from, int length) {
+        double[] c = coefficients;
+        int end = from + length;
+        for (int s = 0, k = 0; k < c.length; s += STATE, k += COEFFICIENTS) {
+            double b0 = c[k], b1 = c[k + 1], b2 = c[k + 2], a1 = c[k + 3], a2 = c[k + 4];
+            double z1 = state[s], z2 = state[s + 1];
+            for (int i = from; i < end; i++) {
+                double x = data[i];
+                double y = b0 * x + z1;
+                z1 = b1 * x - a1 * y + z2;
+                z2 = b2 * x - a2 * y;
+                data[i] = y;
+            }
+            state[s] = z1;
+            state[s + 1] = z2;
+        }
+    }
+
+    /**
+     * Sets the state to the steady state for a constant input, so a stream starting at an offset does not ring.
+     *
+     * @param state the state, two values per section.
+     * @param input the constant input.
+     */
+    void settle(double[] state, double input) {
+        double[] c = coefficients;
+        double x = input;
+        for (int s = 0, k = 0; k < c.length; s += STATE, k += COEFFICIENTS) {
+            double b0 = c[k], b1 = c[k + 1], b2 = c[k + 2], a1 = c[k + 3], a2 = c[k + 4];
+            double y = x * (b0 + b1 + b2) / (1 + a1 + a2);
+            state[s + 1] = b2 * x - a2 * y;
+            state[s] = y - b0 * x;
+            x = y;
+        }
+    }
+
+    /**
+     * Returns the left half plane poles of the analog low pass prototype, with a cut off of 1 rad/s.
+     * Only one pole of each complex conjugate pair is returned, real poles have a zero imaginary part.
+     *
+     * @param order      order of the filter.
+     * @param filterType type of the filter.
+     * @param ripple     pass band ripple in dB, for Chebyshev type I.
+     * @return the poles.
+     */
+    private static Complex[] prototype(int order, FilterTypes filterType, double ripple) {
+        if (order < 1) {
+            throw new IllegalArgumentException("Order must be at least 1, was " + order);
+        }
+
+        double sinh = 1;
+        double cosh = 1;
+        switch (filterType) {
+            case BUTTERWORTH -> {
+            }
+            case CHEBYSHEV_TYPE_1 -> {
+                if (ripple <= 0) {
+                    throw new IllegalArgumentException("Ripple must be positive for a Chebyshev filter, was " + ripple);
+                }
+                double epsilon = Math.sqrt(Math.pow(10, ripple / 10) - 1);
+                double v0 = asinh(1 / epsilon) / order;
+                sinh = Math.sinh(v0);
+                cosh = Math.cosh(v0);
+            }
+            default -> throw new IllegalArgumentException("Streaming filters are causal, and support Butterworth and Chebyshev type I only, was " + filterType);
+        }
+
+        Complex[] poles = new Complex[(order + 1) / 2];
+        for (int k = 0; k < order / 2; k++) {
+            double theta = Math.PI * (2 * k + 1) / (2 * order);
+            poles[k] = new Complex(-sinh * Math.sin(theta), cosh * Math.cos(theta));
+        }
+        if (order % 2 == 1) {
+            poles[poles.length - 1] = Complex.real(-sinh);
+        }
+        return poles;
+    }
+
+    /**
+     * Returns the pass band gain of the prototype, which is below 1 for even order Chebyshev filters.
+     *
+     * @param order      order of the filter.
+     * @param filterType type of the filter.
+     * @param ripple     pass band ripple in dB.
+     * @return the gain.
+     */
+    private static double prototypeGain(int order, FilterTypes filterType, double ripple) {
+        return filterType == FilterTypes.CHEBYSHEV_TYPE_1 && order % 2 == 0 ? Math.pow(10, -ripple / 20) : 1;
+    }
+
+    /**
+     * Returns a frequency, prewarped for the bilinear transform.
+     *
+     * @param samplingRate in Hz.
+     * @param frequency    in Hz.
+     * @return the analog frequency, for a bilinear transform without the 2/T factor.
+     */
+    private static double prewarp(int samplingRate, double frequency) {
+        return Math.tan(Math.PI * frequency / samplingRate);
+    }
+
+    /**
+     * Maps an s-plane pole to the z-plane, by z = (1 + s) / (1 - s).
+     *
+     * @param s the analog pole.
+     * @return the digital pole.
+     */
+    private static Complex bilinear(Complex s) {
+        return Complex.real(1).add(s).divide(Complex.real(1).subtract(s));
+    }
+
+    /**
+     * Returns the roots of s^2 - b*s + c.
+     *
+     * @param b the negated linear coefficient.
+     * @param c the constant coefficient.
+     * @return the two roots.
+     */
+    private static Complex[] quadraticRoots(Complex b, double c) {
+        Complex root = b.multiply(b).subtract(Complex.real(4 * c)).sqrt();
+        return new Complex[]{b.add(root).scale(0.5), b.subtract(root).scale(0.5)};
+    }
+
+    /**
+     * Adds a section for a complex conjugate pole pair, or a first order section for a real pole.
+     *
+     * @param sections the sections.
+     * @param pole     the pole.
+     * @param zeros    the numerator of a second order section.
+     */
+    private static void addSection(List<double[]> sections, Complex pole, double[] zeros) {
+        if (Math.abs(pole.im()) < 1e-12) {
+            // First order section, with one of the two zeros: 1 + z^-1 or 1 - z^-1.
+            sections.add(new double[]{1, Math.signum(zeros[1]), 0, -pole.re(), 0});
+        } else {
+            sections.add(new double[]{zeros[0], zeros[1], zeros[2], -2 * pole.re(), pole.re() * pole.re() + pole.im() * pole.im()});
+        }
+    }
+
+    /**
+     * Adds a section for two poles, either a complex conjugate pair or two real poles.
+     *
+     * @param sections the sections.
+     * @param first    the first pole.
+     * @param second   the second pole.
+     * @param zeros    the numerator.
+     */
+    private static void addSection(List<double[]> sections, Complex first, Complex second, double[] zeros) {
+        Complex product = first.multiply(second);
+        sections.add(new double[]{zeros[0], zeros[1], zeros[2], -(first.re() + second.re()), product.re()});
+    }
+
+    /**
+     * Scales the first section to a given gain at a reference frequency, and returns the cascade.
+     *
+     * @param sections  the sections.
+     * @param omega     the reference frequency, in radians per sample.
+     * @param reference the gain at the reference frequency.
+     * @return the cascade.
+     */
+    private static BiquadCascade normalize(List<double[]> sections, double omega, double reference) {
+        double[] coefficients = new double[sections.size() * COEFFICIENTS];
+        for (int i = 0; i < sections.size(); i++) {
+            System.arraycopy(sections.get(i), 0, coefficients, i * COEFFICIENTS, COEFFICIENTS);
+        }
+        double scale = reference / gain(coefficients, omega);
+        for (int k = 0; k < 3; k++) {
+            coefficients[k] *= scale;
+        }
+        return new BiquadCascade(coefficients);
+    }
+
+    /**
+     * Returns the magnitude response of a cascade.
+     *
+     * @param coefficients the coefficients.
+     * @param omega        the frequency, in radians per sample.
+     * @return the gain.
+     */
+    private static double gain(double[] coefficients, double omega) {
+        Complex z1 = new Complex(Math.cos(omega), -Math.sin(omega));
+        Complex z2 = z1.multiply(z1);
+        double gain = 1;
+        for (int k = 0; k < coefficients.length; k += COEFFICIENTS) {
+            Complex numerator = Complex.real(coefficients[k]).add(z1.scale(coefficients[k + 1])).add(z2.scale(coefficients[k + 2]));
+            Complex denominator = Complex.real(1).add(z1.scale(coefficients[k + 3])).add(z2.scale(coefficients[k + 4]));
+            gain *= numerator.abs() / denominator.abs();
+        }
+        return gain;
+    }
+
+    /**
+     * Returns the inverse hyperbolic sine.
+     *
+     * @param x the value.
+     * @return asinh(x).
+     */
+    private static double asinh(double x) {
+        return Math.log(x + Math.sqrt(x * x + 1));
+    }
+
+    /**
+     * Checks that a frequency is between zero and the Nyquist frequency.
+     *
+     * @param samplingRate in Hz.
+     * @param frequency    in Hz.
+     */
+    private static void checkFrequency(int samplingRate, double frequency) {
+        if (!(frequency > 0 && frequency < samplingRate / 2.0)) {
+            throw new IllegalArgumentException("Frequency must be between 0 and " + samplingRate / 2.0 + " Hz, was " + frequency);
+        }
+    }
+
+    /**
+     * Checks that a band is between zero and the Nyquist frequency.
+     *
+     * @param samplingRate   in Hz.
+     * @param startFrequency in Hz.
+     * @param stopFrequency  in Hz.
+     */
+    private static void checkBand(int samplingRate, double startFrequency, double stopFrequency) {
+        checkFrequency(samplingRate, startFrequency);
+        checkFrequency(samplingRate, stopFrequency);
+        if (startFrequency >= stopFrequency) {
+            throw new IllegalArgumentException("Start frequency " + startFrequency + " must be below stop frequency " + stopFrequency);
+        }
+    }
+
+    /**
+     * A complex number, only used while designing a filter.
+     *
+     * @param re the real part.
+     * @param im the imaginary part.
+     */
+    private record Complex(double re, double im) {
+
+        static Complex real(double re) {
+            return new Complex(re, 0);
+        }
+
+        Complex add(Complex other) {
+            return new Complex(re + other.re, im + other.im);
+        }
+
+        Complex subtract(Complex other) {
+            return new Complex(re - other.re, im - other.im);
+        }
+
+        Complex multiply(Complex other) {
+            return new Complex(re * other.re - im * other.im, re * other.im + im * other.re);
+        }
+
+        Complex divide(Complex other) {
+            double d = other.re * other.re + other.im * other.im;
+            return new Complex((re * other.re + im * other.im) / d, (im * other.re - re * other.im) / d);
+        }
+
+        Complex scale(double factor) {
+            return new Complex(re * factor, im * factor);
+        }
+
+        Complex sqrt() {
+            double r = Math.sqrt(abs());
+            double phi = Math.atan2(im, re) / 2;
+            return new Complex(r * Math.cos(phi), r * Math.sin(phi));
+        }
+
+        double abs() {
+            return Math.hypot(re, im);
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package org.example.bci.visualizer.dsp;
+
+import brainflow.BoardDescr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Averages epochs around the events of the marker channel into event related potentials (ERPs), per condition,
+ * while the samples are streamed.
+ * <p>
+ * The events are indexed by an {@link EventIndex} as the marker row arrives, and an epoch is averaged as soon as
+ * its last sample arrives, so no samples are kept beyond the last epoch length. Each epoch is baseline corrected
+ * with the mean of its pre-event samples, and added to the running mean and variance of its condition with
+ * Welford's update, so the averages and standard errors are exact after any number of trials.
+ * Every channel keeps its own ring and running sums, and the channels of a chunk are averaged by their own tasks,
+ * on a fork-join pool, so the tasks share no mutable state.
+ * An averager must be fed from one thread, e.g. as a chunk listener.
+ */
+public final class EpochAverager implements Consumer<double[][]> {
+
+    /**
+     * The event related potentials of one condition.
+     *
+     * @param marker        the marker value of the condition.
+     * @param trials        the number of epochs averaged.
+     * @param mean          the mean epoch, as [channel][sample], the event being at sample {@link EpochAverager#getPreSamples()}.
+     * @param standardError the standard error of the mean, as [channel][sample], or NaN for a single trial.
+     */
+    public record Erp(double marker, int trials, double[][] mean, double[][] standardError) {
+    }
+
+    // Epoch length before the event, in seconds.
+    static final double PRE_SECONDS = 0.2;
+
+    // Epoch length from the event, in seconds.
+    static final double POST_SECONDS = 0.8;
+
+    private final int samplingRate;
+    private final int[] channels;
+    private final int markerChannel;
+    private final int preSamples;
+    private final int postSamples;
+    private final int epochLength;
+    private final ForkJoinPool pool;
+
+    private final EventIndex eventIndex = new EventIndex();
+    private final ChannelAverage[] averages;
+    // Trials averaged per condition, shared by all channels.
+    private int[] trials = new int[0];
+    // The next event whose epoch is not complete yet.
+    private int nextEvent = 0;
+    private int skipped = 0;
+    private long seen = 0;
+
+    /**
+     * Constructor with epochs from 200 ms before to 800 ms after the events, on the common fork-join pool.
+     *
+     * @param samplingRate  in Hz.
+     * @param channels      the channel (row) indices to average.
+     * @param markerChannel the marker channel (row) index.
+     */
+    public EpochAverager(int samplingRate, int[] channels, int markerChannel) {
+        this(samplingRate, channels, markerChannel, (int) Math.round(samplingRate * PRE_SECONDS),
+                (int) Math.max(1, Math.round(samplingRate * POST_SECONDS)), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param samplingRate  in Hz.
+     * @param channels      the channel (row) indices to average.
+     * @param markerChannel the marker channel (row) index.
+     * @param preSamples    the number of samples before the event, used as baseline.
+     * @param postSamples   the number of samples from the event on, including the event sample.
+     * @param pool          the pool to run the per-channel tasks on.
+     */
+    public EpochAverager(int samplingRate, int[] channels, int markerChannel, int preSamples, int postSamples, ForkJoinPool pool) {
+        if (preSamples < 0 || postSamples < 1) {
+            throw new IllegalArgumentException("Pre samples must be at least 0 and post samples at least 1, was " + preSamples + " and " + postSamples);
+        }
+        this.samplingRate = samplingRate;
+        this.channels = channels.clone();
+        this.markerChannel = markerChannel;
+        this.preSamples = preSamples;
+        this.postSamples = postSamples;
+        this.epochLength = preSamples + postSamples;
+        this.pool = pool;
+        this.averages = new ChannelAverage[channels.length];
+        for (int c = 0; c < averages.length; c++) {
+            averages[c] = new ChannelAverage(preSamples, epochLength);
+        }
+    }
+
+    /**
+     * Returns an averager for the EEG channels of a board.
+     *
+     * @param boardDescr the board descriptor.
+     * @return the averager, or null when the board has no marker channel.
+     */
+    public static EpochAverager forBoard(BoardDescr boardDescr) {
+        if (boardDescr.marker_channel < 0 || boardDescr.marker_channel >= boardDescr.num_rows) {
+            return null;
+        }
+        int[] eegChannels = boardDescr.eeg_channels == null ? new int[0] : boardDescr.eeg_channels.stream().mapToInt(Integer::intValue).toArray();
+        return new EpochAverager(boardDescr.sampling_rate, eegChannels, boardDescr.marker_channel);
+    }
+
+    /**
+     * An epoch completed by a chunk.
+     *
+     * @param offset    the offset in the chunk of the last sample of the epoch.
+     * @param condition the condition index.
+     * @param trial     the trial number of the condition, from 1.
+     */
+    private record Epoch(int offset, int condition, int trial) {
+    }
+
+    /**
+     * Adds the samples of a chunk: indexes its events, and averages the epochs it completes.
+     *
+     * @param chunk samples as [channel][sample].
+     */
+    @Override
+    public synchronized void accept(double[][] chunk) {
+        int length = chunk.length == 0 ? 0 : chunk[0].length;
+        if (length == 0) {
+            return;
+        }
+        eventIndex.add(chunk[markerChannel], seen);
+
+        // Find the epochs ending in this chunk, and number their trials, in event order.
+        List<Epoch> epochs = new ArrayList<>();
+        while (nextEvent < eventIndex.size() && eventIndex.getSample(nextEvent) + postSamples <= seen + length) {
+            long event = eventIndex.getSample(nextEvent);
+            int condition = eventIndex.getCondition(nextEvent);
+            nextEvent++;
+            if (event < preSamples) {
+                // The baseline started before the first sample.
+                skipped++;
+                continue;
+            }
+            if (condition >= trials.length) {
+                trials = Arrays.copyOf(trials, eventIndex.getConditionCount());
+            }
+            epochs.add(new Epoch((int) (event + postSamples - 1 - seen), condition, ++trials[condition]));
+        }
+        seen += length;
+
+        if (epochs.isEmpty()) {
+            // Only ring copies, not worth a task per channel.
+            for (int c = 0; c < channels.length; c++) {
+                averages[c].accept(chunk[channels[c]], length, epochs);
+            }
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>(channels.length);
+        for (int c = 0; c < channels.length; c++) {
+            ChannelAverage average = averages[c];
+            double[] samples = chunk[channels[c]];
+            tasks.add(() -> {
+                average.accept(samples, length, epochs);
+                return null;
+            });
+        }
+        for (Future<Void> future : pool.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while averaging epochs.", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Averaging epochs failed.", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Returns the event related potentials of the conditions with at least one trial so far.
+     *
+     * @return the ERPs, in the order the conditions first occurred.
+     */
+    public synchronized List<Erp> getErps() {
+        List<Erp> erps = new ArrayList<>();
+        double[] markers = eventIndex.getMarkers();
+        for (int condition = 0; condition < trials.length; condition++) {
+            int n = trials[condition];
+            if (n == 0) {
+                continue;
+            }
+            double[][] mean = new double[channels.length][];
+            double[][] standardError = new double[channels.length][epochLength];
+            for (int c = 0; c < channels.length; c++) {
+                mean[c] = averages[c].means.get(condition).clone();
+                double[] m2 = averages[c].m2s.get(condition);
+                for (int i = 0; i < epochLength; i++) {
+                    // The sample standard deviation over the square root of the trials.
+                    standardError[c][i] = n < 2 ? Double.NaN : Math.sqrt(m2[i] / (n - 1) / n);
+                }
+            }
+            erps.add(new Erp(markers[condition], n, mean, standardError));
+        }
+        return erps;
+    }
+
+    /**
+     * Returns the index of the events so far.
+     * The index is changed by later chunks, so it must only be read when no chunks are added, e.g. after the session.
+     *
+     * @return the event index.
+     */
+    public EventIndex getEventIndex() {
+        return eventIndex;
+    }
+
+    /**
+     * Returns the number of events whose epochs were skipped, as they started before the first sample.
+     *
+     * @return skipped event count.
+     */
+    public synchronized int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Returns the averaged channels.
+     *
+     * @return a copy of the channel (row) indices.
+     */
+    public int[] getChannels() {
+        return channels.clone();
+    }
+
+    /**
+     * Returns the sampling rate.
+     *
+     * @return sampling rate in Hz.
+     */
+    public int getSamplingRate() {
+        return samplingRate;
+    }
+
+    /**
+     * Returns the number of samples before the event.
+     *
+     * @return pre samples.
+     */
+    public int getPreSamples() {
+        return preSamples;
+    }
+
+    /**
+     * Returns the number of samples from the event on.
+     *
+     * @return post samples.
+     */
+    public int getPostSamples() {
+        return postSamples;
+    }
+
+    /**
+     * The running averages of one channel: a ring with the last epoch length of samples,
+     * and the mean and sum of squared differences of every condition.
+     */
+    private static final class ChannelAverage {
+        private final int preSamples;
+        private final double[] ring;
+        private final double[] epoch;
+        private int ringPos = 0;
+        private final List<double[]> means = new ArrayList<>();
+        private final List<double[]> m2s = new ArrayList<>();
+
+        /**
+         * Constructor.
+         *
+         * @param preSamples  the number of samples before the event, used as baseline.
+         * @param epochLength the epoch length, in samples.
+         */
+        ChannelAverage(int preSamples, int epochLength) {
+            this.preSamples = preSamples;
+            this.ring = new double[epochLength];
+            this.epoch = new double[epochLength];
+        }
+
+        /**
+         * Adds the samples of a chunk to the ring, and every epoch ending in the chunk to its condition.
+         *
+         * @param samples the samples of the channel.
+         * @param length  the number of samples.
+         * @param epochs  the epochs ending in the chunk, in order.
+         */
+        void accept(double[] samples, int length, List<Epoch> epochs) {
+            int from = 0;
+            for (Epoch epoch : epochs) {
+                push(samples, from, epoch.offset() + 1);
+                from = epoch.offset() + 1;
+                add(epoch.condition(), epoch.trial());
+            }
+            push(samples, from, length);
+        }
+
+        /**
+         * Pushes samples into the ring, skipping all but the last epoch length of them, as only those can be part of a later epoch.
+         *
+         * @param samples the samples.
+         * @param from    the first sample, included.
+         * @param to      the last sample, excluded.
+         */
+        private void push(double[] samples, int from, int to) {
+            from = Math.max(from, to - ring.length);
+            while (from < to) {
+                int segment = Math.min(to - from, ring.length - ringPos);
+                System.arraycopy(samples, from, ring, ringPos, segment);
+                ringPos = (ringPos + segment) % ring.length;
+                from += segment;
+            }
+        }
+
+        /**
+         * Adds the epoch in the ring to its condition, baseline corrected, with Welford's update.
+         *
+         * @param condition the condition index.
+         * @param trial     the trial number of the condition, from 1.
+         */
+        private void add(int condition, int trial) {
+            while (means.size() <= condition) {
+                means.add(new double[ring.length]);
+                m2s.add(new double[ring.length]);
+            }
+            // Unroll the ring, oldest sample first.
+            int tail = ring.length - ringPos;
+            System.arraycopy(ring, ringPos, epoch, 0, tail);
+            System.arraycopy(ring, 0, epoch, tail, ringPos);
+
+            double baseline = 0;
+            for (int i = 0; i < preSamples; i++) {
+                baseline += epoch[i];
+            }
+            baseline = preSamples == 0 ? 0 : baseline / preSamples;
+
+            double[] mean = means.get(condition);
+            double[] m2 = m2s.get(condition);
+            for (int i = 0; i < epoch.length; i++) {
+                double value = epoch[i] - baseline;
+                double delta = value - mean[i];
+                mean[i] += delta / trial;
+                m2[i] += delta * (value - mean[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.bci.visualizer.dsp;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Index of the events of the marker channel: the sample and marker value of every non-zero marker, in sample order.
+ * <p>
+ * BrainFlow stores a marker on the one sample it was inserted at, and zero elsewhere, so the index is built in one
+ * pass over the marker row, as a whole or chunk by chunk. Each distinct marker value is a condition, numbered
+ * in the order it first occurs. The events are held in primitive arrays, grown by doubling.
+ * An index is not thread safe, it must be built from one thread.
+ */
+public final class EventIndex {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] samples = new long[INITIAL_CAPACITY];
+    private int[] conditions = new int[INITIAL_CAPACITY];
+    private int size = 0;
+    private double[] markers = new double[0];
+    private final Map<Double, Integer> conditionIndex = new HashMap<>();
+
+    /**
+     * Builds the index of a marker row.
+     *
+     * @param markers the marker row, the first sample being sample 0.
+     * @return the index.
+     */
+    public static EventIndex of(double[] markers) {
+        EventIndex index = new EventIndex();
+        index.add(markers, 0);
+        return index;
+    }
+
+    /**
+     * Adds the events of the next part of the marker row.
+     *
+     * @param markers     the markers of the part.
+     * @param firstSample the sample number of the first marker of the part, after the samples already added.
+     */
+    public void add(double[] markers, long firstSample) {
+        for (int i = 0; i < markers.length; i++) {
+            double marker = markers[i];
+            // Missing markers (NaN) are no events.
+            if (marker != 0 && !Double.isNaN(marker)) {
+                add(firstSample + i, marker);
+            }
+        }
+    }
+
+    /**
+     * Adds an event.
+     *
+     * @param sample the sample number, not before the last event.
+     * @param marker the marker value.
+     */
+    private void add(long sample, double marker) {
+        if (size == samples.length) {
+            samples = Arrays.copyOf(samples, size * 2);
+            conditions = Arrays.copyOf(conditions, size * 2);
+        }
+        Integer condition = conditionIndex.get(marker);
+        if (condition == null) {
+            condition = this.markers.length;
+            conditionIndex.put(marker, condition);
+            this.markers = Arrays.copyOf(this.markers, condition + 1);
+            this.markers[condition] = marker;
+        }
+        samples[size] = sample;
+        conditions[size] = condition;
+        size++;
+    }
+
+    /**
+     * Returns the number of events.
+     *
+     * @return event count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the sample number of an event.
+     *
+     * @param event the event index.
+     * @return the sample number.
+     */
+    public long getSample(int event) {
+        return samples[event];
+    }
+
+    /**
+     * Returns the condition of an event.
+     *
+     * @param event the event index.
+     * @return the condition index, into {@link #getMarkers()}.
+     */
+    public int getCondition(int event) {
+        return conditions[event];
+    }
+
+    /**
+     * Returns the number of conditions.
+     *
+     * @return condition count.
+     */
+    public int getConditionCount() {
+        return markers.length;
+    }
+
+    /**
+     * Returns the marker value of every condition.
+     *
+     * @return a copy of the marker values, by condition index.
+     */
+    public double[] getMarkers() {
+        return markers.clone();
+    }
+
+    /**
+     * Returns the sample numbers of the events of one condition.
+     *
+     * @param condition the condition index.
+     * @return the sample numbers, in order.
+     */
+    public long[] getSamples(int condition) {
+        return IntStream.range(0, size).filter(event -> conditions[event] == condition).mapToLong(event -> samples[event]).toArray();
+    }
+
+    /**
+     * Finds the first event at or after a sample, with a binary search.
+     *
+     * @param sample the sample number.
+     * @return the event index, or the event count if all events are before the sample.
+     */
+    public int find(long sample) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (samples[middle] < sample) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.bci.visualizer.dsp;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Filters chunks of streamed samples with a {@link BiquadCascade}, keeping the filter state of each channel
+ * across chunks, so chunk boundaries cause no edge transients.
+ * <p>
+ * Filtering is done in place and allocates nothing, so it can run on the thread feeding the session,
+ * e.g. as a chunk filter of a {@link org.example.bci.visualizer.DataExtractor}.
+ * <p>
+ * By default the state starts at zero, like the BrainFlow batch filters, so a stream filtered chunk by chunk gives
+ * the same samples as {@code DataFilter.perform_*} gives for the whole stream at once, including the transient of the
+ * first samples. Settling instead starts the state at the steady state for the first sample, so a large constant
+ * offset, e.g. an electrode offset of a few mV, does not make the filter ring, at the cost of differing from BrainFlow
+ * for the first samples.
+ * A streaming filter is not thread safe, each channel must be fed from one thread.
+ */
+public final class StreamingFilter implements Consumer<double[][]> {
+
+    private final BiquadCascade cascade;
+    private final int[] channels;
+    private final double[][] states;
+    private final boolean[] started;
+    private final boolean settle;
+
+    /**
+     * Constructor for given channels, with the state starting at zero, like BrainFlow.
+     *
+     * @param cascade  the filter.
+     * @param channels the channel (row) indices to filter.
+     */
+    public StreamingFilter(BiquadCascade cascade, int[] channels) {
+        this(cascade, channels, false);
+    }
+
+    /**
+     * Constructor for given channels.
+     *
+     * @param cascade  the filter.
+     * @param channels the channel (row) indices to filter.
+     * @param settle   true to start the state settled at the first sample of each channel, false to start at zero.
+     */
+    public StreamingFilter(BiquadCascade cascade, int[] channels, boolean settle) {
+        this.cascade = cascade;
+        this.settle = settle;
+        this.channels = channels.clone();
+        this.states = new double[channels.length][cascade.getSectionCount() * BiquadCascade.STATE];
+        this.started = new boolean[channels.length];
+    }
+
+    /**
+     * Filters the channels of a chunk, in place.
+     *
+     * @param chunk samples as [channel][sample].
+     */
+    @Override
+    public void accept(double[][] chunk) {
+        for (int i = 0; i < channels.length; i++) {
+            double[] dataChannel = chunk[channels[i]];
+            process(i, dataChannel, 0, dataChannel.length);
+        }
+    }
+
+    /**
+     * Filters a range of samples of one channel, in place, continuing from the previous range of that channel.
+     * When settling, the state starts settled at the first sample, so a constant offset does not make the filter ring.
+     *
+     * @param index  the index of the channel, in the channels of this filter.
+     * @param data   the samples.
+     * @param from   the first sample index.
+     * @param length the number of samples.
+     */
+    public void process(int index, double[] data, int from, int length) {
+        if (length <= 0) {
+            return;
+        }
+        if (settle && !started[index]) {
+            cascade.settle(states[index], data[from]);
+            started[index] = true;
+        }
+        cascade.process(states[index], data, from, length);
+    }
+
+    /**
+     * Resets the state of all channels, e.g. before a new session.
+     */
+    public void reset() {
+        for (int i = 0; i < channels.length; i++) {
+            Arrays.fill(states[i], 0);
+            started[i] = false;
+        }
+    }
+
+    /**
+     * Returns whether the state starts settled at the first sample.
+     *
+     * @return true if settling, false if starting at zero.
+     */
+    public boolean isSettle() {
+        return settle;
+    }
+
+    /**
+     * Returns the filter.
+     *
+     * @return the filter.
+     */
+    public BiquadCascade getCascade() {
+        return cascade;
+    }
+
+    /**
+     * Returns the filtered channels.
+     *
+     * @return channel (row) indices.
+     */
+    public int[] getChannels() {
+        return channels.clone();
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.bci.visualizer.dsp;
+
+import brainflow.BoardDescr;
+import brainflow.BrainFlowError;
+import brainflow.DataFilter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+
+/**
+ * Tracks heart rate and oxygen level (SpO2) from the PPG channels of a stream, over overlapping windows.
+ * <p>
+ * The last window of PPG samples is kept in a ring, so each update copies a fixed number of samples and
+ * costs the same, whatever the session length. Windows and FFT sizes are powers of two, as BrainFlow requires.
+ */
+public final class VitalsTracker extends WindowedTracker<VitalsTracker.Vitals> {
+    private static final Logger log = LogManager.getLogger(VitalsTracker.class);
+
+    /**
+     * The vitals at one update.
+     *
+     * @param sample      the number of samples seen, including the last sample of the window.
+     * @param timestamp   the timestamp of the last sample of the window, or NaN without a timestamp channel.
+     * @param heartRate   heart rate in beats per minute, or NaN when it could not be calculated.
+     * @param oxygenLevel oxygen level in percent, or NaN when it could not be calculated.
+     */
+    public record Vitals(long sample, double timestamp, double heartRate, double oxygenLevel) {
+    }
+
+    // Window length, in seconds, rounded up to a power of two samples.
+    static final double WINDOW_SECONDS = 8;
+
+    // Hop length, in seconds.
+    static final double HOP_SECONDS = 2;
+
+    private final int samplingRate;
+    private final int irChannel;
+    private final int redChannel;
+    private final int windowSize;
+
+    // The last window of samples, as rings, and unrolled copies for BrainFlow.
+    private final double[] irRing;
+    private final double[] redRing;
+    private final double[] irWindow;
+    private final double[] redWindow;
+    private int ringPos = 0;
+    private boolean warned = false;
+
+    /**
+     * Constructor with an eight second window, rounded up to a power of two samples, updated every two seconds.
+     *
+     * @param samplingRate     in Hz.
+     * @param irChannel        the infrared PPG channel (row) index.
+     * @param redChannel       the red PPG channel (row) index.
+     * @param timestampChannel the timestamp channel (row) index, or -1 for none.
+     */
+    public VitalsTracker(int samplingRate, int irChannel, int redChannel, int timestampChannel) {
+        this(samplingRate, irChannel, redChannel, timestampChannel, windowSamples(samplingRate, WINDOW_SECONDS), hopSamples(samplingRate, HOP_SECONDS));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param samplingRate     in Hz.
+     * @param irChannel        the infrared PPG channel (row) index.
+     * @param redChannel       the red PPG channel (row) index.
+     * @param timestampChannel the timestamp channel (row) index, or -1 for none.
+     * @param windowSize       the window length, in samples, a power of two.
+     * @param hop              the number of samples between updates.
+     */
+    public VitalsTracker(int samplingRate, int irChannel, int redChannel, int timestampChannel, int windowSize, int hop) {
+        super(timestampChannel, windowSize, hop);
+        if (Integer.bitCount(windowSize) != 1) {
+            throw new IllegalArgumentException("Window size must be a power of two, was " + windowSize);
+        }
+        this.samplingRate = samplingRate;
+        this.irChannel = irChannel;
+        this.redChannel = redChannel;
+        this.windowSize = windowSize;
+        this.irRing = new double[windowSize];
+        this.redRing = new double[windowSize];
+        this.irWindow = new double[windowSize];
+        this.redWindow = new double[windowSize];
+    }
+
+    /**
+     * Returns a tracker for the PPG channels of a board.
+     *
+     * @param boardDescr the board descriptor.
+     * @return the tracker, or null when the board has less than two PPG channels.
+     */
+    public static VitalsTracker forBoard(BoardDescr boardDescr) {
+        List<Integer> ppgChannels = boardDescr.ppg_channels;
+        if (ppgChannels == null || ppgChannels.size() < 2) {
+            return null;
+        }
+        return new VitalsTracker(boardDescr.sampling_rate, ppgChannels.get(1), ppgChannels.get(0), boardDescr.timestamp_channel);
+    }
+
+    /**
+     * Adds a segment of a chunk to the rings.
+     *
+     * @param chunk  samples as [channel][sample].
+     * @param from   the first sample index.
+     * @param length the number of samples.
+     */
+    @Override
+    void add(double[][] chunk, int from, int length) {
+        for (int i = from; i < from + length; i++) {
+            irRing[ringPos] = chunk[irChannel][i];
+            redRing[ringPos] = chunk[redChannel][i];
+            ringPos = (ringPos + 1) % windowSize;
+        }
+    }
+
+    /**
+     * Calculates the vitals of the current window.
+     *
+     * @param timestamp the timestamp of the last sample of the window.
+     * @return the vitals.
+     */
+    @Override
+    Vitals update(double timestamp) {
+        // Unroll the rings, oldest sample first, into the reused windows.
+        int tail = windowSize - ringPos;
+        System.arraycopy(irRing, ringPos, irWindow, 0, tail);
+        System.arraycopy(irRing, 0, irWindow, tail, ringPos);
+        System.arraycopy(redRing, ringPos, redWindow, 0, tail);
+        System.arraycopy(redRing, 0, redWindow, tail, ringPos);
+
+        double heartRate = Double.NaN;
+        double oxygenLevel = Double.NaN;
+        try {
+            // Half window FFTs, so the Welch estimate averages overlapping segments.
+            heartRate = DataFilter.get_heart_rate(irWindow, redWindow, samplingRate, windowSize / 2);
+            oxygenLevel = DataFilter.get_oxygen_level(irWindow, redWindow, samplingRate);
+        } catch (BrainFlowError e) {
+            if (!warned) {
+                log.warn("Vitals could not be calculated at sample {}, further failures are not logged.", getSeen(), e);
+                warned = true;
+            }
+        }
+        return new Vitals(getSeen(), timestamp, heartRate, oxygenLevel);
+    }
+}
@@ -0,0 +1,173 @@
+package org.example.bci.visualizer.dsp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Base of the trackers calculating an update over a sliding window of streamed samples, every hop of samples.
+ * <p>
+ * Chunks are split at the hops, so a subclass only adds the samples of each segment to its window, and calculates
+ * an update once the window is full. The updates are kept, and passed on to the listeners.
+ * A tracker is not thread safe, it must be fed from one thread, e.g. as a chunk listener.
+ *
+ * @param <U> the update type.
+ */
+abstract class WindowedTracker<U> implements Consumer<double[][]> {
+
+    private final int timestampChannel;
+    private final int windowSize;
+    private final int hop;
+    private long seen = 0;
+
+    private final List<U> updates = new ArrayList<>();
+    private final List<Consumer<U>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructor.
+     *
+     * @param timestampChannel the timestamp channel (row) index, or -1 for none.
+     * @param windowSize       the window length, in samples.
+     * @param hop              the number of samples between updates.
+     */
+    WindowedTracker(int timestampChannel, int windowSize, int hop) {
+        if (windowSize < 4 || hop < 1) {
+            throw new IllegalArgumentException("Window size must be at least 4 and hop at least 1, was " + windowSize + " and " + hop);
+        }
+        this.timestampChannel = timestampChannel;
+        this.windowSize = windowSize;
+        this.hop = hop;
+    }
+
+    /**
+     * Returns a window length, rounded up to a power of two samples.
+     *
+     * @param samplingRate in Hz.
+     * @param seconds      the window length, in seconds.
+     * @return window length, in samples.
+     */
+    static int windowSamples(int samplingRate, double seconds) {
+        return Integer.highestOneBit((int) Math.ceil(samplingRate * seconds) - 1) << 1;
+    }
+
+    /**
+     * Returns a hop length, of at least one sample.
+     *
+     * @param samplingRate in Hz.
+     * @param seconds      the hop length, in seconds.
+     * @return hop, in samples.
+     */
+    static int hopSamples(int samplingRate, double seconds) {
+        return (int) Math.max(1, Math.round(samplingRate * seconds));
+    }
+
+    /**
+     * Adds the samples of a chunk, publishing an update at every hop, once the window is full.
+     *
+     * @param chunk samples as [channel][sample].
+     */
+    @Override
+    public final void accept(double[][] chunk) {
+        int length = chunk.length == 0 ? 0 : chunk[0].length;
+        int from = 0;
+        while (from < length) {
+            int segment = (int) Math.min(length - from, hop - seen % hop);
+            add(chunk, from, segment);
+            seen += segment;
+            from += segment;
+
+            if (seen % hop == 0 && seen >= windowSize) {
+                double timestamp = timestampChannel >= 0 && timestampChannel < chunk.length ? chunk[timestampChannel][from - 1] : Double.NaN;
+                publish(update(timestamp));
+            }
+        }
+    }
+
+    /**
+     * Adds a segment of a chunk to the window, never crossing a hop.
+     *
+     * @param chunk  samples as [channel][sample].
+     * @param from   the first sample index.
+     * @param length the number of samples.
+     */
+    abstract void add(double[][] chunk, int from, int length);
+
+    /**
+     * Calculates the update of the current window.
+     *
+     * @param timestamp the timestamp of the last sample of the window, or NaN without a timestamp channel.
+     * @return the update.
+     */
+    abstract U update(double timestamp);
+
+    /**
+     * Keeps an update, and passes it on to the listeners.
+     *
+     * @param update the update.
+     */
+    private void publish(U update) {
+        synchronized (updates) {
+            updates.add(update);
+        }
+        for (Consumer<U> listener : listeners) {
+            listener.accept(update);
+        }
+    }
+
+    /**
+     * Adds a listener, receiving every update on the thread feeding the tracker.
+     *
+     * @param listener the update listener.
+     */
+    public void addListener(Consumer<U> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes an update listener.
+     *
+     * @param listener the update listener.
+     */
+    public void removeListener(Consumer<U> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns all updates so far.
+     *
+     * @return a copy of the updates, oldest first.
+     */
+    public List<U> getUpdates() {
+        synchronized (updates) {
+            return List.copyOf(updates);
+        }
+    }
+
+    /**
+     * Returns the number of samples seen.
+     *
+     * @return samples seen.
+     */
+    long getSeen() {
+        return seen;
+    }
+
+    /**
+     * Returns the window length.
+     *
+     * @return window length, in samples.
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Returns the number of samples between updates.
+     *
+     * @return hop, in samples.
+     */
+    public int getHop() {
+        return hop;
+    }
+}
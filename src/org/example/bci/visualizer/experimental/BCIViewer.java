@@ -1,21 +1,32 @@
 package org.example.bci.visualizer.experimental;
 
+import brainflow.BoardDescr;
 import brainflow.BoardIds;
 import brainflow.BoardShim;
 import brainflow.BrainFlowError;
 import brainflow.BrainFlowInputParams;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.example.bci.visualizer.ChannelIndex;
+import org.example.bci.visualizer.Replayer;
+import org.example.bci.visualizer.SampleRingBuffer;
+import org.example.bci.visualizer.capture.CaptureReader;
+import org.example.bci.visualizer.dsp.BandPowerTracker;
+import org.example.bci.visualizer.metrics.BoardMetrics;
+import org.example.bci.visualizer.metrics.Metrics;
 import org.example.bci.visualizer.properties.PropertyLoader;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
 
 /**
  * A simple Java Swing application that connects to a BrainFlow-compatible BCI device,
@@ -24,18 +35,39 @@ import java.util.Map;
 public class BCIViewer extends JFrame implements AutoCloseable {
     private static final Logger logger = LogManager.getLogger(BCIViewer.class);
     private static final int BOARD_ID = BoardIds.SYNTHETIC_BOARD.get_code(); // Change to your board ID
-    private static final int BUFFER_SIZE = 250; // ~1 second at 250Hz
+    private static final int DISPLAY_SECONDS = 60; // Samples kept for display, per channel
+    private static final int STREAM_BUFFER_SIZE = 450000; // Board buffer size, in samples
     private static final int UPDATE_INTERVAL_MS = 100; // Update every 100ms
+    private static final long RATE_INTERVAL_NANOS = 1_000_000_000L; // Report the display rate every second
 
     private BoardShim boardShim;
+    private final CaptureReader replay;
+    private final double replaySpeed;
+    // The replayed time range, in seconds after the first sample, the end zero or less to replay to the end.
+    private double replayFrom = 0;
+    private double replayTo = 0;
+    // Patterns selecting the EEG channels to show, by name, empty to show all.
+    private final List<String> channelPatterns;
+    // The shown channels, as indices into the EEG channels of the board.
+    private int[] shownChannels = new int[0];
     private volatile boolean isStreaming = false;
-    private final double[] eegBuffer = new double[BUFFER_SIZE];
-    private int bufferIndex = 0;
+    // Set while a repaint is queued on the EDT, so the streaming thread queues at most one at a time.
+    private final AtomicBoolean repaintPending = new AtomicBoolean(false);
+    private SampleRingBuffer sampleBuffer;
+    private int[] eegChannels = new int[0];
+    private int samplingRate = 0;
+    private long rateStartNanos;
+    private long rateStartSamples;
+    private BandPowerTracker bandPowerTracker;
+    private BoardMetrics boardMetrics;
+    private int packageChannel;
+    private volatile BandPowerTracker.BandPowers bandPowers;
     private JPanel chartPanel;
     private JButton startButton;
     private JButton stopButton;
     private JLabel statusLabel;
     private JComboBox<String> channelComboBox;
+    private volatile boolean stripChart = false;
     private int selectedChannel = 0;
     private JLabel dataLabel;
 
@@ -48,6 +80,30 @@ public class BCIViewer extends JFrame implements AutoCloseable {
      * Constructor to set up the GUI and BrainFlow session.
      */
     public BCIViewer() {
+        this(null, 1, List.of());
+    }
+
+    /**
+     * Constructor to set up the GUI, replaying a captured session instead of streaming from a board.
+     *
+     * @param replay      the captured session, or null to stream from the board.
+     * @param replaySpeed the replay speed, 1 for real time, zero or less for as fast as possible.
+     */
+    public BCIViewer(CaptureReader replay, double replaySpeed) {
+        this(replay, replaySpeed, List.of());
+    }
+
+    /**
+     * Constructor to set up the GUI, showing only the EEG channels whose names match the patterns, e.g. "(?i)^O.*$".
+     *
+     * @param replay          the captured session, or null to stream from the board.
+     * @param replaySpeed     the replay speed, 1 for real time, zero or less for as fast as possible.
+     * @param channelPatterns the channel name patterns, empty to show all EEG channels.
+     */
+    public BCIViewer(CaptureReader replay, double replaySpeed, List<String> channelPatterns) {
+        this.replay = replay;
+        this.replaySpeed = replaySpeed;
+        this.channelPatterns = List.copyOf(channelPatterns);
         createUI();
     }
 
@@ -72,9 +128,16 @@ public class BCIViewer extends JFrame implements AutoCloseable {
         java.util.List<String> eegComboBoxLabels = new ArrayList<>();
         Map<String, String> eegLabelMap = PropertyLoader.get("data-labels.properties");
         try {
-            java.util.List<String> eegNames = List.of(BoardShim.get_eeg_names(BOARD_ID));// Ensure channels are loaded
+            java.util.List<String> eegNames = replay != null
+                    ? List.of(replay.getHeader().boardDescr().eeg_names.split(","))
+                    : List.of(BoardShim.get_eeg_names(BOARD_ID));// Ensure channels are loaded
 
-            eegComboBoxLabels = eegNames.stream()
+            shownChannels = channelPatterns.isEmpty()
+                    ? IntStream.range(0, eegNames.size()).toArray()
+                    : Arrays.stream(ChannelIndex.of(eegNames).select(channelPatterns)).distinct().toArray();
+
+            eegComboBoxLabels = Arrays.stream(shownChannels)
+                    .mapToObj(eegNames::get)
                     .map(channelId -> eegLabelMap.containsKey(channelId) ? eegLabelMap.get(channelId) + " (" + channelId + ")" : channelId)
                     .toList();
         } catch (BrainFlowError e) {
@@ -86,6 +149,14 @@ public class BCIViewer extends JFrame implements AutoCloseable {
         channelComboBox.setEditable(false);
         channelComboBox.addActionListener(e -> selectedChannel = channelComboBox.getSelectedIndex());
         topPanel.add(channelComboBox, BorderLayout.EAST);
+
+        // Strip chart mode, showing all channels stacked
+        JCheckBox stripChartCheckBox = new JCheckBox("All channels");
+        stripChartCheckBox.addActionListener(e -> {
+            stripChart = stripChartCheckBox.isSelected();
+            chartPanel.repaint();
+        });
+        topPanel.add(stripChartCheckBox, BorderLayout.WEST);
         add(topPanel);
 
         // Chart panel
@@ -150,6 +221,14 @@ public class BCIViewer extends JFrame implements AutoCloseable {
      * Initializes the BrainFlow board session.
      */
     private void initializeBoard() {
+        if (replay != null) {
+            samplingRate = replay.getHeader().samplingRate();
+            sampleBuffer = new SampleRingBuffer(replay.getChannelCount(), getDisplaySamples());
+            eegChannels = getShownChannels(replay.getHeader().boardDescr().eeg_channels.stream().mapToInt(Integer::intValue).toArray());
+            createBandPowerTracker(samplingRate, replay.getHeader().boardDescr().timestamp_channel);
+            statusLabel.setText("Session loaded. Click Start to begin replaying.");
+            return;
+        }
         try {
             // Initialize BrainFlow
             BoardShim.enable_dev_board_logger();
@@ -159,6 +238,16 @@ public class BCIViewer extends JFrame implements AutoCloseable {
 
             boardShim = new BoardShim(BOARD_ID, params);
             boardShim.prepare_session();
+
+            // Written by the streaming thread only, read by the chart panel without locking.
+            samplingRate = BoardShim.get_sampling_rate(BOARD_ID);
+            sampleBuffer = new SampleRingBuffer(BoardShim.get_num_rows(BOARD_ID), getDisplaySamples());
+            eegChannels = getShownChannels(BoardShim.get_eeg_channels(BOARD_ID));
+            createBandPowerTracker(samplingRate, BoardShim.get_timestamp_channel(BOARD_ID));
+            // From the descriptor, as get_package_num_channel fails for boards without a package channel.
+            BoardDescr boardDescr = BoardShim.get_board_descr(BoardDescr.class, BOARD_ID);
+            boardMetrics = Metrics.board(boardDescr.name);
+            packageChannel = boardDescr.package_num_channel;
             statusLabel.setText("Session prepared. Click Start to begin streaming.");
         } catch (BrainFlowError | IOException | ReflectiveOperationException e) {
             statusLabel.setText("Error preparing session: " + e.getMessage());
@@ -166,6 +255,36 @@ public class BCIViewer extends JFrame implements AutoCloseable {
         }
     }
 
+    /**
+     * Returns the shown channels of the board's EEG channels.
+     *
+     * @param boardEegChannels the EEG channel (row) indices of the board.
+     * @return the shown channel (row) indices.
+     */
+    private int[] getShownChannels(int[] boardEegChannels) {
+        return Arrays.stream(shownChannels).map(channel -> boardEegChannels[channel]).toArray();
+    }
+
+    /**
+     * Returns the number of samples kept for display, per channel.
+     *
+     * @return display samples.
+     */
+    private int getDisplaySamples() {
+        return Math.max(1, samplingRate) * DISPLAY_SECONDS;
+    }
+
+    /**
+     * Creates the band power tracker for the EEG channels, keeping its latest update for the chart panel.
+     *
+     * @param samplingRate     the sampling rate in Hz.
+     * @param timestampChannel the timestamp channel (row) index.
+     */
+    private void createBandPowerTracker(int samplingRate, int timestampChannel) {
+        bandPowerTracker = new BandPowerTracker(samplingRate, eegChannels, timestampChannel);
+        bandPowerTracker.addListener(update -> bandPowers = update);
+    }
+
     /**
      * Creates the data display UI.
      *
@@ -204,38 +323,16 @@ public class BCIViewer extends JFrame implements AutoCloseable {
     private void startStreaming() {
         if (!isStreaming) {
             try {
-                boardShim.start_stream(450000, ""); // Default stream options
+                if (replay == null) {
+                    boardShim.start_stream(STREAM_BUFFER_SIZE, ""); // Default stream options
+                }
                 isStreaming = true;
                 startButton.setEnabled(false);
                 stopButton.setEnabled(true);
-                statusLabel.setText("Streaming...");
+                statusLabel.setText(replay == null ? "Streaming..." : "Replaying...");
 
                 // Streaming thread
-                new Thread(() -> {
-                    while (isStreaming) {
-                        try {
-                            if (boardShim.get_board_data_count() > 0) {
-                                double[][] data = boardShim.get_board_data(1); // Get latest packet
-
-                                int eegChannelIndex = BoardShim.get_eeg_channels(BOARD_ID)[selectedChannel];
-                                double eegValue = data[eegChannelIndex][0]; // 0-indexed in array
-
-                                // Update buffer (circular)
-                                synchronized (this) {
-                                    eegBuffer[bufferIndex] = eegValue;
-                                    bufferIndex = (bufferIndex + 1) % BUFFER_SIZE;
-                                }
-
-                                // Queue UI update
-                                SwingUtilities.invokeLater(chartPanel::repaint);
-                            }
-                            Thread.sleep(UPDATE_INTERVAL_MS);
-                        } catch (BrainFlowError | InterruptedException e) {
-                            logger.fatal(e);
-                            stopStreaming();
-                        }
-                    }
-                }).start();
+                new Thread(replay == null ? this::streamBoard : this::streamReplay).start();
             } catch (BrainFlowError e) {
                 statusLabel.setText("Error starting stream: " + e.getMessage());
                 logger.fatal(e);
@@ -243,6 +340,108 @@ public class BCIViewer extends JFrame implements AutoCloseable {
         }
     }
 
+    /**
+     * Streams data from the board, until streaming stops.
+     * Each tick drains all samples the board buffered since the previous tick, so no samples are lost.
+     */
+    private void streamBoard() {
+        startRate();
+        while (isStreaming) {
+            try {
+                int count = boardShim.get_board_data_count();
+                boardMetrics.recordBufferFill(count, STREAM_BUFFER_SIZE);
+                if (count > 0) {
+                    double[][] data = boardShim.get_board_data(); // Get all buffered samples
+                    boardMetrics.recordChunk(data, packageChannel);
+
+                    // Update buffer (circular)
+                    sampleBuffer.write(data);
+                    bandPowerTracker.accept(data);
+
+                    // Queue UI update, unless one is already queued
+                    requestRepaint();
+                }
+                reportRate();
+                Thread.sleep(UPDATE_INTERVAL_MS);
+            } catch (BrainFlowError | InterruptedException e) {
+                logger.fatal(e);
+                stopStreaming();
+            }
+        }
+    }
+
+    /**
+     * Queues a repaint of the chart panel on the EDT, unless one is already queued.
+     * Never blocks, so a slow EDT cannot hold up the streaming thread, and repaints requested meanwhile are coalesced.
+     */
+    private void requestRepaint() {
+        if (repaintPending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                // Cleared before painting, so samples arriving while painting queue the next repaint.
+                repaintPending.set(false);
+                chartPanel.repaint();
+            });
+        }
+    }
+
+    /**
+     * Starts measuring the display rate.
+     */
+    private void startRate() {
+        rateStartNanos = System.nanoTime();
+        rateStartSamples = sampleBuffer.getWritten();
+    }
+
+    /**
+     * Reports the samples per second reaching the display, against the sampling rate, once per rate interval.
+     */
+    private void reportRate() {
+        long elapsed = System.nanoTime() - rateStartNanos;
+        if (elapsed < RATE_INTERVAL_NANOS) {
+            return;
+        }
+        double rate = (sampleBuffer.getWritten() - rateStartSamples) * 1e9 / elapsed;
+        String text = String.format("%s %.0f samples/s displayed, sampling rate %d Hz.", replay == null ? "Streaming..." : "Replaying...", rate, samplingRate);
+        SwingUtilities.invokeLater(() -> {
+            if (isStreaming) {
+                statusLabel.setText(text);
+            }
+        });
+        startRate();
+    }
+
+    /**
+     * Sets the replayed time range of the captured session, located through its time index.
+     *
+     * @param replayFrom seconds after the first sample.
+     * @param replayTo   seconds after the first sample, zero or less to replay to the end.
+     */
+    public void setReplayRange(double replayFrom, double replayTo) {
+        this.replayFrom = replayFrom;
+        this.replayTo = replayTo;
+    }
+
+    /**
+     * Streams data from the captured session, until it ends or streaming stops.
+     */
+    private void streamReplay() {
+        try {
+            startRate();
+            Replayer replayer = replayFrom > 0 || replayTo > 0
+                    ? replay.replayer(replayFrom, replayTo > 0 ? replayTo : Double.POSITIVE_INFINITY)
+                    : replay.replayer();
+            replayer.replay(chunk -> {
+                sampleBuffer.write(chunk);
+                bandPowerTracker.accept(chunk);
+                requestRepaint();
+                reportRate();
+            }, replaySpeed, () -> isStreaming);
+        } catch (IOException | InterruptedException e) {
+            logger.fatal(e);
+        }
+        SwingUtilities.invokeLater(this::stopStreaming);
+    }
+
     /**
      * Stops the data streaming and visualization.
      */
@@ -250,7 +449,9 @@ public class BCIViewer extends JFrame implements AutoCloseable {
         if (isStreaming) {
             isStreaming = false;
             try {
-                boardShim.stop_stream();
+                if (boardShim != null) {
+                    boardShim.stop_stream();
+                }
                 statusLabel.setText("Stream stopped.");
             } catch (BrainFlowError e) {
                 logger.fatal(e);
@@ -281,84 +482,221 @@ public class BCIViewer extends JFrame implements AutoCloseable {
         }
     }
 
+    /**
+     * Returns the sample buffer shown by the chart panel, e.g. to feed it synthetic samples in a benchmark.
+     *
+     * @return the sample buffer, or null before the session is initialized.
+     */
+    SampleRingBuffer getSampleBuffer() {
+        return sampleBuffer;
+    }
+
+    /**
+     * Returns the chart panel.
+     *
+     * @return the chart panel.
+     */
+    JPanel getChartPanel() {
+        return chartPanel;
+    }
+
+    /**
+     * Sets whether all channels are shown stacked, as a strip chart, instead of the selected channel.
+     *
+     * @param stripChart true for the strip chart.
+     */
+    void setStripChart(boolean stripChart) {
+        this.stripChart = stripChart;
+    }
+
     /**
      * Custom JPanel to draw the EEG data.
+     * Frames are rendered into a cached image, only when there are new samples, the channel or mode changed or the panel was resized,
+     * and the visible window is reduced to one min/max pair per pixel column.
+     * In strip chart mode, all channels are rendered in the same pass, each in its own lane.
      */
     class ChartPanel extends JPanel {
 
+        private static final int LANE_LABEL_WIDTH = 120;
+
+        private final ColumnRenderer renderer = new ColumnRenderer();
+        private ColumnRenderer[] laneRenderers = new ColumnRenderer[0];
+        private BufferedImage frame;
+        private long frameWritten = -1;
+        private int frameChannel = -1;
+        private boolean frameStripChart = false;
+
         /**
-         * Paints the EEG data on the panel.
+         * Paints the EEG data on the panel, from the cached frame.
          */
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
 
-            Graphics2D g2d = (Graphics2D) g;
-            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            g2d.setColor(Color.WHITE);
-            g2d.fillRect(0, 0, getWidth(), getHeight());
+            int width = getWidth();
+            int height = getHeight();
+            if (width <= 0 || height <= 0) return;
 
-            int height;
-            int halfHeight;
-            int width;
+            if (frame == null || frame.getWidth() != width || frame.getHeight() != height) {
+                frame = getGraphicsConfiguration() != null
+                        ? getGraphicsConfiguration().createCompatibleImage(width, height)
+                        : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+                frameWritten = -1;
+            }
 
-            // Draw EEG data
-            synchronized (BCIViewer.this) {
-                if (bufferIndex == 0) return; // No data yet
+            long written = sampleBuffer == null ? 0 : sampleBuffer.getWritten();
+            if (written != frameWritten || selectedChannel != frameChannel || stripChart != frameStripChart) {
+                frameWritten = written;
+                frameChannel = selectedChannel;
+                frameStripChart = stripChart;
+                renderFrame();
+            }
+
+            g.drawImage(frame, 0, 0, null);
+        }
 
-                int visiblePoints = Math.min(bufferIndex, BUFFER_SIZE);
-                double[] displayBuffer = new double[visiblePoints];
-                System.arraycopy(eegBuffer, 0, displayBuffer, 0, visiblePoints);
+        /**
+         * Renders the selected channel, or all channels in strip chart mode, into the cached frame, and updates the labels once.
+         */
+        private void renderFrame() {
+            long start = System.nanoTime();
+            Graphics2D g2d = frame.createGraphics();
+            try {
+                // The trace is one vertical stroke per pixel column, which antialiasing would only slow down.
+                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+                g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+                g2d.setColor(Color.WHITE);
+                g2d.fillRect(0, 0, frame.getWidth(), frame.getHeight());
+
+                // Draw EEG data, reading the buffer in place.
+                if (sampleBuffer == null || selectedChannel >= eegChannels.length) return;
+                if (stripChart) {
+                    renderStrips(g2d);
+                } else {
+                    renderChannel(g2d);
+                }
+            } finally {
+                g2d.dispose();
+                Metrics.stage(Metrics.FRAME).record(System.nanoTime() - start);
+            }
+        }
 
-                dataLabel.setText(String.format("Latest EEG Value: %.2f μV", displayBuffer[visiblePoints - 1]));
+        /**
+         * Renders the selected channel.
+         *
+         * @param g2d the graphics of the frame.
+         */
+        private void renderChannel(Graphics2D g2d) {
+            SampleRingBuffer.Window window = sampleBuffer.latest(eegChannels[selectedChannel], sampleBuffer.getCapacity());
+            if (window.length() < 2) return; // No data yet
 
-                height = getHeight() - 40;
-                halfHeight = height / 2;
-                width = getWidth();
+            int width = frame.getWidth();
+            int height = frame.getHeight() - 40;
+            int halfHeight = height / 2;
 
-                // Scale data to fit panel (simple min-max scaling)
-                double min = Arrays.stream(displayBuffer).min().orElse(0);
-                double max = Arrays.stream(displayBuffer).max().orElse(0);
-                double rangeHeightFactor = getRangeHeightFactor(min, max, height);
-                int pointWidth = width / (visiblePoints - 1);
+            renderer.reduce(window, width);
 
-                g2d.setColor(Color.BLACK);
-                g2d.drawLine(0, halfHeight, width, halfHeight); // Zero line
+            // The writer lapped this frame while reducing, so render it again.
+            if (!window.isValid()) {
+                frameWritten = -1;
+                repaint();
+            }
 
-                g2d.setColor(Color.BLUE);
+            // Scale data to fit panel (simple min-max scaling)
+            double min = renderer.getMin();
+            double max = renderer.getMax();
+            float drawHeight = height * 0.8f;
 
-                for (int i = 0; i < visiblePoints - 1; i++) {
-                    double y1 = height - ((displayBuffer[i] - min) / rangeHeightFactor);
-                    double y2 = height - ((displayBuffer[i + 1] - min) / rangeHeightFactor);
-                    double x1 = i * pointWidth;
-                    double x2 = (i + 1) * pointWidth;
-                    g2d.draw(new Line2D.Double(x1, y1, x2, y2));
+            g2d.setColor(Color.BLACK);
+            g2d.drawLine(0, halfHeight, width, halfHeight); // Zero line
 
-                    labelLineX1.setText(String.valueOf((int)x1));
-                    labelLineX2.setText(String.valueOf((int)x2));
-                    labelLineY1.setText(String.valueOf((int)y1));
-                    labelLineY2.setText(String.valueOf((int)y2));
-                }
-            }
+            g2d.setColor(Color.BLUE);
+            g2d.draw(renderer.trace(0, width - 1, height, drawHeight, min, max));
 
             // Labels
             g2d.setColor(Color.GRAY);
             g2d.drawString("EEG Channel " + channelComboBox.getSelectedItem() + " (μV)", 10, 15);
             g2d.drawString("Time →", width - 50, height - 10);
+            drawBandPowers(g2d);
+
+            updateLabels(renderer);
         }
 
         /**
-         * Calculates the factor to scale the EEG range to the panel height.
+         * Renders all channels stacked, each in its own lane, with its own cached scale.
          *
-         * @param min    minimum EEG value
-         * @param max    maximum EEG value
-         * @param height height of the panel
-         * @return scaling factor
+         * @param g2d the graphics of the frame.
          */
-        private double getRangeHeightFactor(double min, double max, int height) {
-            double range = max - min;
-            if (range == 0) range = 1; // Avoid division by zero
-            return range / (height * 0.8);
+        private void renderStrips(Graphics2D g2d) {
+            int channels = eegChannels.length;
+            if (laneRenderers.length != channels) {
+                laneRenderers = new ColumnRenderer[channels];
+                for (int i = 0; i < channels; i++) {
+                    laneRenderers[i] = new ColumnRenderer();
+                }
+            }
+
+            int width = frame.getWidth() - LANE_LABEL_WIDTH;
+            float laneHeight = (float) frame.getHeight() / channels;
+            boolean lapped = false;
+
+            for (int i = 0; i < channels; i++) {
+                SampleRingBuffer.Window window = sampleBuffer.latest(eegChannels[i], sampleBuffer.getCapacity());
+                if (window.length() < 2) return; // No data yet
+
+                ColumnRenderer lane = laneRenderers[i];
+                lane.reduce(window, width);
+                lapped |= !window.isValid();
+                lane.updateScale();
+
+                float top = i * laneHeight;
+                g2d.setColor(Color.LIGHT_GRAY);
+                g2d.drawLine(0, (int) top, frame.getWidth(), (int) top);
+                g2d.setColor(i == selectedChannel ? Color.RED : Color.BLUE);
+                g2d.draw(lane.trace(LANE_LABEL_WIDTH, width - 1, top + laneHeight, laneHeight, lane.getScaleMin(), lane.getScaleMax()));
+                g2d.setColor(Color.GRAY);
+                g2d.drawString(String.valueOf(channelComboBox.getItemAt(i)), 4, (int) (top + laneHeight / 2));
+            }
+
+            // The writer lapped this frame while reducing, so render it again.
+            if (lapped) {
+                frameWritten = -1;
+                repaint();
+            }
+
+            updateLabels(laneRenderers[selectedChannel]);
+        }
+
+        /**
+         * Updates the value and line labels, once per frame, with the last traced segment of the selected channel.
+         *
+         * @param channelRenderer the renderer of the selected channel.
+         */
+        private void updateLabels(ColumnRenderer channelRenderer) {
+            float[] segment = channelRenderer.getLastSegment();
+            dataLabel.setText(String.format("Latest EEG Value: %.2f μV", channelRenderer.getLast()));
+            labelLineX1.setText(String.valueOf((int) segment[0]));
+            labelLineY1.setText(String.valueOf((int) segment[1]));
+            labelLineX2.setText(String.valueOf((int) segment[2]));
+            labelLineY2.setText(String.valueOf((int) segment[3]));
+        }
+
+        /**
+         * Draws the latest band powers of the selected channel.
+         *
+         * @param g2d the graphics to draw with.
+         */
+        private void drawBandPowers(Graphics2D g2d) {
+            BandPowerTracker.BandPowers latest = bandPowers;
+            if (latest == null) return;
+
+            BandPowerTracker.Band[] bands = BandPowerTracker.getBands();
+            double[] powers = latest.powers()[selectedChannel];
+            StringBuilder text = new StringBuilder();
+            for (int b = 0; b < bands.length; b++) {
+                text.append(String.format("%s: %.1f μV²   ", bands[b].getTitle(), powers[b]));
+            }
+            g2d.drawString(text.toString().trim(), 10, 30);
         }
 
         /**
@@ -372,8 +710,32 @@ public class BCIViewer extends JFrame implements AutoCloseable {
 
     /**
      * Main entry point.
+     * Pass --replay with a capture file, and optionally --replay-speed, to replay a captured session,
+     * and --replay-from and --replay-to, in seconds, to only replay a time range of it.
+     * Pass --channels with comma separated channel name patterns to only show the matching EEG channels.
      */
-    public static void main(String[] args) {
-        SwingUtilities.invokeLater(BCIViewer::new);
+    public static void main(String[] args) throws IOException {
+        String replayFile = null;
+        double replaySpeed = 1;
+        double replayFrom = 0;
+        double replayTo = 0;
+        List<String> channelPatterns = List.of();
+        for (int i = 0; i + 1 < args.length; ++i) {
+            switch (args[i]) {
+                case "--replay" -> replayFile = args[i + 1];
+                case "--replay-speed" -> replaySpeed = Double.parseDouble(args[i + 1]);
+                case "--replay-from" -> replayFrom = Double.parseDouble(args[i + 1]);
+                case "--replay-to" -> replayTo = Double.parseDouble(args[i + 1]);
+                case "--channels" -> channelPatterns = List.of(args[i + 1].split(","));
+            }
+        }
+
+        CaptureReader replay = replayFile == null ? null : new CaptureReader(Path.of(replayFile));
+        double speed = replaySpeed;
+        List<String> patterns = channelPatterns;
+        double from = replayFrom;
+        double to = replayTo;
+        Metrics.startSummary(Metrics.SUMMARY_MILLIS);
+        SwingUtilities.invokeLater(() -> new BCIViewer(replay, speed, patterns).setReplayRange(from, to));
     }
 }
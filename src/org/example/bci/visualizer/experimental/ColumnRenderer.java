@@ -0,0 +1,203 @@
+package org.example.bci.visualizer.experimental;
+
+import org.example.bci.visualizer.SampleRingBuffer;
+
+import java.awt.geom.Path2D;
+
+/**
+ * Reduces a window of samples to one min/max pair per pixel column, and traces them as a reusable path.
+ * <p>
+ * Reducing is a single pass over the window, and drawing costs the same whatever the number of samples,
+ * as the path has at most two points per pixel column. The arrays and the path are reused between frames.
+ */
+final class ColumnRenderer {
+
+    // Margin above and below the values, as a part of their range, when the scale is updated.
+    private static final double SCALE_MARGIN = 0.1;
+    // The scale shrinks when the values use less than this part of it.
+    private static final double SCALE_SHRINK = 0.5;
+
+    private double[] columnMin = new double[0];
+    private double[] columnMax = new double[0];
+    private int columns = 0;
+    private double min = 0;
+    private double max = 0;
+    private double last = Double.NaN;
+    private double scaleMin = 0;
+    private double scaleMax = 0;
+    private boolean scaled = false;
+    private final Path2D.Float path = new Path2D.Float();
+    // The last segment of the path, as x1, y1, x2, y2.
+    private final float[] lastSegment = new float[4];
+
+    /**
+     * Reduces a window of samples to one min/max pair per column.
+     *
+     * @param window the samples.
+     * @param width  the number of pixel columns.
+     * @return the number of columns used, fewer than the width when there are fewer samples than columns.
+     */
+    int reduce(SampleRingBuffer.Window window, int width) {
+        int length = window.length();
+        columns = Math.max(0, Math.min(width, length));
+        if (columnMin.length < columns) {
+            columnMin = new double[width];
+            columnMax = new double[width];
+        }
+
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+        int sample = 0;
+        for (int column = 0; column < columns; column++) {
+            int end = (int) ((long) (column + 1) * length / columns);
+            double lo = Double.POSITIVE_INFINITY;
+            double hi = Double.NEGATIVE_INFINITY;
+            for (; sample < end; sample++) {
+                double value = window.get(sample);
+                lo = Math.min(lo, value);
+                hi = Math.max(hi, value);
+            }
+            columnMin[column] = lo;
+            columnMax[column] = hi;
+            min = Math.min(min, lo);
+            max = Math.max(max, hi);
+        }
+        last = length > 0 ? window.get(length - 1) : Double.NaN;
+        return columns;
+    }
+
+    /**
+     * Updates the cached scale, from the last reduction.
+     * The scale grows at once to fit the values, and only shrinks when the values use less than half of it,
+     * so it is kept between frames instead of following every frame's min and max.
+     */
+    void updateScale() {
+        if (!(min <= max)) {
+            return;
+        }
+        double range = max - min;
+        if (!scaled || min < scaleMin || max > scaleMax || range < (scaleMax - scaleMin) * SCALE_SHRINK) {
+            double margin = range == 0 ? 1 : range * SCALE_MARGIN;
+            scaleMin = min - margin;
+            scaleMax = max + margin;
+            scaled = true;
+        }
+    }
+
+    /**
+     * Returns the value at the bottom of the cached scale.
+     *
+     * @return the scale minimum.
+     */
+    double getScaleMin() {
+        return scaleMin;
+    }
+
+    /**
+     * Returns the value at the top of the cached scale.
+     *
+     * @return the scale maximum.
+     */
+    double getScaleMax() {
+        return scaleMax;
+    }
+
+    /**
+     * Traces the reduced columns, scaled to a value range, into the path.
+     *
+     * @param left      the x of the first column.
+     * @param width     the width to spread the columns over.
+     * @param bottom    the y of the lowest value.
+     * @param height    the height of the value range.
+     * @param rangeMin  the value drawn at the bottom.
+     * @param rangeMax  the value drawn at the top.
+     * @return the path, valid until the next trace.
+     */
+    Path2D.Float trace(float left, float width, float bottom, float height, double rangeMin, double rangeMax) {
+        path.reset();
+        if (columns == 0) {
+            return path;
+        }
+        double range = rangeMax - rangeMin;
+        double scale = height / (range == 0 ? 1 : range);
+        float step = columns > 1 ? width / (columns - 1) : 0;
+
+        for (int column = 0; column < columns; column++) {
+            float x = left + column * step;
+            float yLow = (float) (bottom - (columnMin[column] - rangeMin) * scale);
+            float yHigh = (float) (bottom - (columnMax[column] - rangeMin) * scale);
+            if (column == 0) {
+                path.moveTo(x, yLow);
+                setLastSegment(x, yLow, x, yLow);
+            } else {
+                path.lineTo(x, yLow);
+                setLastSegment(lastSegment[2], lastSegment[3], x, yLow);
+            }
+            if (yHigh != yLow) {
+                path.lineTo(x, yHigh);
+                setLastSegment(x, yLow, x, yHigh);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Sets the last segment of the path.
+     *
+     * @param x1 the start x.
+     * @param y1 the start y.
+     * @param x2 the end x.
+     * @param y2 the end y.
+     */
+    private void setLastSegment(float x1, float y1, float x2, float y2) {
+        lastSegment[0] = x1;
+        lastSegment[1] = y1;
+        lastSegment[2] = x2;
+        lastSegment[3] = y2;
+    }
+
+    /**
+     * Returns the last segment of the last trace.
+     *
+     * @return the segment as x1, y1, x2, y2, valid until the next trace.
+     */
+    float[] getLastSegment() {
+        return lastSegment;
+    }
+
+    /**
+     * Returns the number of columns of the last reduction.
+     *
+     * @return column count.
+     */
+    int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the lowest value of the last reduction.
+     *
+     * @return the minimum.
+     */
+    double getMin() {
+        return min;
+    }
+
+    /**
+     * Returns the highest value of the last reduction.
+     *
+     * @return the maximum.
+     */
+    double getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the latest sample of the last reduction.
+     *
+     * @return the latest value, or NaN for an empty window.
+     */
+    double getLast() {
+        return last;
+    }
+}
@@ -0,0 +1,211 @@
+package org.example.bci.visualizer.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The acquisition metrics of a board: drained samples and rate, board buffer fill level, and dropped packets.
+ * <p>
+ * A board is drained by one thread, which records the metrics; any thread, e.g. a JMX client, may read them.
+ * Dropped packets are detected from gaps in the package number channel. Boards count their packages in different
+ * steps and ranges, e.g. the Cyton Daisy counts in steps of 2, so the step and wrap are learned per board from the
+ * package numbers: the step as the greatest common divisor of the increments, and the wrap as the largest number
+ * seen plus the step. Nothing is counted for a board without a package channel, or whose package row holds
+ * no package numbers, i.e. negative or fractional values.
+ */
+public final class BoardMetrics implements BoardMetricsMBean {
+
+    private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+
+    private final String name;
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong drains = new AtomicLong();
+    private final AtomicLong droppedPackets = new AtomicLong();
+
+    private volatile int bufferFill;
+    private volatile int bufferSize;
+    private volatile int maxBufferFill;
+    private volatile double samplesPerSecond;
+
+    private long windowStart;
+    private long windowSamples;
+    private double lastPackage = Double.NaN;
+    // Learned from the package numbers, zero while unknown.
+    private int packageStep = 0;
+    private int maxPackage = -1;
+    private boolean packageNumbers = true;
+
+    /**
+     * Constructor.
+     *
+     * @param name the board name.
+     */
+    BoardMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records the board buffer fill level, before a drain.
+     *
+     * @param count      the number of samples in the board buffer, from get_board_data_count.
+     * @param bufferSize the size of the board buffer, in samples.
+     */
+    public void recordBufferFill(int count, int bufferSize) {
+        this.bufferFill = count;
+        this.bufferSize = bufferSize;
+        if (count > maxBufferFill) {
+            maxBufferFill = count;
+        }
+    }
+
+    /**
+     * Records a drained chunk: counts its samples, updates the rate and checks its package numbers for gaps.
+     *
+     * @param chunk          the drained samples, one row per channel.
+     * @param packageChannel the package number channel (row), or a negative value if the board has none.
+     */
+    public void recordChunk(double[][] chunk, int packageChannel) {
+        int count = chunk.length == 0 ? 0 : chunk[0].length;
+        drains.incrementAndGet();
+        long total = samples.addAndGet(count);
+
+        long now = System.nanoTime();
+        if (windowStart == 0) {
+            windowStart = now;
+            windowSamples = total - count;
+        } else if (now - windowStart >= RATE_WINDOW_NANOS) {
+            samplesPerSecond = (total - windowSamples) * 1e9 / (now - windowStart);
+            windowStart = now;
+            windowSamples = total;
+        }
+
+        if (packageNumbers && packageChannel >= 0 && packageChannel < chunk.length) {
+            countGaps(chunk[packageChannel]);
+        }
+    }
+
+    /**
+     * Counts the packets missing between consecutive package numbers, in steps of the learned package step.
+     * Repeated numbers, e.g. of boards sending several samples per packet, and NaN padding are not gaps.
+     *
+     * @param packages the package numbers of a chunk.
+     */
+    private void countGaps(double[] packages) {
+        long dropped = 0;
+        double last = lastPackage;
+        for (double current : packages) {
+            if (Double.isNaN(current)) {
+                continue;
+            }
+            if (current < 0 || current != Math.rint(current)) {
+                // Not a package counter, so no gaps can be told.
+                packageNumbers = false;
+                return;
+            }
+            if (!Double.isNaN(last) && current != last) {
+                int number = (int) current;
+                int previous = (int) last;
+                if (number > previous) {
+                    packageStep = gcd(packageStep, number - previous);
+                    dropped += (number - previous) / packageStep - 1;
+                } else {
+                    // Wrapped, after the largest number seen.
+                    int step = Math.max(1, packageStep);
+                    int wrap = Math.max(maxPackage, previous) + step;
+                    dropped += Math.max(0, (wrap - previous + number) / step - 1);
+                }
+            }
+            maxPackage = Math.max(maxPackage, (int) current);
+            last = current;
+        }
+        lastPackage = last;
+        if (dropped > 0) {
+            droppedPackets.addAndGet(dropped);
+        }
+    }
+
+    /**
+     * Returns the greatest common divisor of two numbers.
+     *
+     * @param a a non-negative number, zero for none.
+     * @param b a positive number.
+     * @return the greatest common divisor.
+     */
+    private static int gcd(int a, int b) {
+        while (a != 0) {
+            int remainder = b % a;
+            b = a;
+            a = remainder;
+        }
+        return b;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getSamples() {
+        return samples.get();
+    }
+
+    @Override
+    public long getDrains() {
+        return drains.get();
+    }
+
+    @Override
+    public double getSamplesPerSecond() {
+        return samplesPerSecond;
+    }
+
+    @Override
+    public int getBufferFill() {
+        return bufferFill;
+    }
+
+    @Override
+    public double getBufferFillPercent() {
+        return percent(bufferFill);
+    }
+
+    @Override
+    public double getMaxBufferFillPercent() {
+        return percent(maxBufferFill);
+    }
+
+    /**
+     * Returns a number of samples in percent of the buffer size.
+     *
+     * @param count the number of samples.
+     * @return percent of the buffer size, or zero if the size is unknown.
+     */
+    private double percent(int count) {
+        int size = bufferSize;
+        return size <= 0 ? 0 : 100.0 * count / size;
+    }
+
+    @Override
+    public long getDroppedPackets() {
+        return droppedPackets.get();
+    }
+
+    @Override
+    public void reset() {
+        samples.set(0);
+        drains.set(0);
+        droppedPackets.set(0);
+        maxBufferFill = 0;
+        samplesPerSecond = 0;
+    }
+
+    /**
+     * Returns a one line summary of the metrics.
+     *
+     * @return the summary.
+     */
+    @Override
+    public String toString() {
+        return "%s: %d samples, %.1f samples/s, buffer %.1f%% (max %.1f%%), %d dropped packets".formatted(name, getSamples(), getSamplesPerSecond(), getBufferFillPercent(), getMaxBufferFillPercent(), getDroppedPackets());
+    }
+}
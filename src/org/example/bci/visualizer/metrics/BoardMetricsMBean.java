@@ -0,0 +1,68 @@
+package org.example.bci.visualizer.metrics;
+
+/**
+ * The JMX view of the acquisition metrics of a board.
+ */
+public interface BoardMetricsMBean {
+
+    /**
+     * Returns the board name.
+     *
+     * @return board name.
+     */
+    String getName();
+
+    /**
+     * Returns the number of samples drained from the board.
+     *
+     * @return samples drained.
+     */
+    long getSamples();
+
+    /**
+     * Returns the number of drains of the board buffer.
+     *
+     * @return drains.
+     */
+    long getDrains();
+
+    /**
+     * Returns the drain rate, over the last second of draining.
+     *
+     * @return samples per second.
+     */
+    double getSamplesPerSecond();
+
+    /**
+     * Returns the number of samples in the board buffer, at the last drain.
+     *
+     * @return buffer fill, in samples.
+     */
+    int getBufferFill();
+
+    /**
+     * Returns the board buffer fill level, at the last drain.
+     *
+     * @return buffer fill, in percent of the buffer size.
+     */
+    double getBufferFillPercent();
+
+    /**
+     * Returns the highest board buffer fill level seen.
+     *
+     * @return max buffer fill, in percent of the buffer size.
+     */
+    double getMaxBufferFillPercent();
+
+    /**
+     * Returns the number of packets the board dropped, from the gaps in the package numbers.
+     *
+     * @return dropped packets.
+     */
+    long getDroppedPackets();
+
+    /**
+     * Resets the metrics.
+     */
+    void reset();
+}
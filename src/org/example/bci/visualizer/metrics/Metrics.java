@@ -0,0 +1,127 @@
+package org.example.bci.visualizer.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The registry of the hot path metrics: the acquisition metrics of each board, and the timings of each stage.
+ * <p>
+ * Every metric is registered as an MBean in the platform MBean server, under the {@link #DOMAIN} domain, so it can
+ * be watched live with e.g. JConsole or VisualVM, and can be logged periodically as a log4j summary.
+ */
+public final class Metrics {
+    private static final Logger log = LogManager.getLogger(Metrics.class);
+
+    public static final String DOMAIN = "org.example.bci.visualizer";
+    public static final String ACQUIRE = "acquire";
+    public static final String FILTER = "filter";
+    public static final String EXPORT = "export";
+    public static final String FRAME = "frame";
+    public static final long SUMMARY_MILLIS = 10000;
+
+    private static final Map<String, BoardMetrics> BOARDS = new ConcurrentSkipListMap<>();
+    private static final Map<String, StageTimer> STAGES = new ConcurrentSkipListMap<>();
+    private static ScheduledExecutorService summaryExecutor;
+
+    /**
+     * Constructor, not used.
+     */
+    private Metrics() {
+    }
+
+    /**
+     * Returns the metrics of a board, registering them on first use.
+     *
+     * @param name the board name, e.g. the board descriptor name.
+     * @return the shared board metrics.
+     */
+    public static BoardMetrics board(String name) {
+        return BOARDS.computeIfAbsent(name, key -> register(new BoardMetrics(key), "Board", key));
+    }
+
+    /**
+     * Returns the timer of a stage, registering it on first use.
+     *
+     * @param name the stage name, e.g. {@link #EXPORT}.
+     * @return the shared stage timer.
+     */
+    public static StageTimer stage(String name) {
+        return STAGES.computeIfAbsent(name, key -> register(new StageTimer(key), "Stage", key));
+    }
+
+    /**
+     * Registers an MBean in the platform MBean server. A failing registration is logged, the metric still works.
+     *
+     * @param mbean the MBean.
+     * @param type  the MBean type.
+     * @param name  the metric name.
+     * @param <T>   the MBean class.
+     * @return the MBean.
+     */
+    private static <T> T register(T mbean, String type, String name) {
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, objectName);
+        } catch (JMException e) {
+            log.warn("Could not register the {} metrics of {}: {}", type, name, e.getMessage());
+        }
+        return mbean;
+    }
+
+    /**
+     * Returns a summary of all metrics, one line per board and stage.
+     *
+     * @return the summary.
+     */
+    public static String summary() {
+        StringBuilder summary = new StringBuilder("Metrics");
+        BOARDS.values().forEach(board -> summary.append(System.lineSeparator()).append("  board ").append(board));
+        STAGES.values().forEach(stage -> summary.append(System.lineSeparator()).append("  stage ").append(stage));
+        return summary.toString();
+    }
+
+    /**
+     * Logs the summary of all metrics, if there are any.
+     */
+    public static void logSummary() {
+        if (!BOARDS.isEmpty() || !STAGES.isEmpty()) {
+            log.info(summary());
+        }
+    }
+
+    /**
+     * Starts logging the summary periodically, on a daemon thread. Does nothing if already started.
+     *
+     * @param intervalMillis the interval between summaries, in millis, zero or less to not log summaries.
+     */
+    public static synchronized void startSummary(long intervalMillis) {
+        if (intervalMillis <= 0 || summaryExecutor != null) {
+            return;
+        }
+        summaryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-summary");
+            thread.setDaemon(true);
+            return thread;
+        });
+        summaryExecutor.scheduleAtFixedRate(Metrics::logSummary, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops logging the summary periodically.
+     */
+    public static synchronized void stopSummary() {
+        if (summaryExecutor != null) {
+            summaryExecutor.shutdownNow();
+            summaryExecutor = null;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.bci.visualizer.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Times the runs of a processing stage, e.g. acquiring, filtering or exporting, from any number of threads.
+ *
+ * <pre>{@code
+ * long start = System.nanoTime();
+ * ...
+ * Metrics.stage(Metrics.EXPORT).record(System.nanoTime() - start);
+ * }</pre>
+ */
+public final class StageTimer implements StageTimerMBean {
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param name the stage name.
+     */
+    StageTimer(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records a run of the stage.
+     *
+     * @param nanos the time of the run, in nanos.
+     */
+    public void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public double getTotalMillis() {
+        return totalNanos.sum() / 1e6;
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long runs = count.sum();
+        return runs == 0 ? 0 : totalNanos.sum() / 1e6 / runs;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    @Override
+    public void reset() {
+        count.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    /**
+     * Returns a one line summary of the timings.
+     *
+     * @return the summary.
+     */
+    @Override
+    public String toString() {
+        return "%s: %d runs, mean %.2f ms, max %.2f ms, total %.1f ms".formatted(name, getCount(), getMeanMillis(), getMaxMillis(), getTotalMillis());
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.bci.visualizer.metrics;
+
+/**
+ * The JMX view of the timings of a processing stage.
+ */
+public interface StageTimerMBean {
+
+    /**
+     * Returns the stage name.
+     *
+     * @return stage name.
+     */
+    String getName();
+
+    /**
+     * Returns the number of timed runs of the stage.
+     *
+     * @return run count.
+     */
+    long getCount();
+
+    /**
+     * Returns the total time of all runs.
+     *
+     * @return total time, in millis.
+     */
+    double getTotalMillis();
+
+    /**
+     * Returns the mean time of a run.
+     *
+     * @return mean time, in millis, or zero without runs.
+     */
+    double getMeanMillis();
+
+    /**
+     * Returns the longest time of a run.
+     *
+     * @return max time, in millis.
+     */
+    double getMaxMillis();
+
+    /**
+     * Resets the timings.
+     */
+    void reset();
+}
@@ -0,0 +1,120 @@
+package org.example.bci.visualizer.dsp;
+
+import brainflow.BrainFlowError;
+import brainflow.DataFilter;
+import brainflow.FilterTypes;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the streaming filters, fed in random chunks, against the BrainFlow batch filters on the whole signal.
+ * Needs the BrainFlow native libraries.
+ */
+class StreamingFilterTest {
+
+    private static final int SAMPLING_RATE = 250;
+    private static final int SAMPLES = SAMPLING_RATE * 10;
+    private static final int ORDER = 4;
+    private static final double RIPPLE = 0.5;
+    // The signal amplitude is about 100, so this is a relative error of 1e-8.
+    private static final double TOLERANCE = 1e-6;
+
+    /**
+     * Compares the low pass filters.
+     *
+     * @param filterType the filter type.
+     * @throws BrainFlowError from the BrainFlow API.
+     */
+    @ParameterizedTest
+    @EnumSource(value = FilterTypes.class, names = {"BUTTERWORTH", "CHEBYSHEV_TYPE_1"})
+    void lowPassMatchesBrainFlow(FilterTypes filterType) throws BrainFlowError {
+        double[] expected = signal();
+        DataFilter.perform_lowpass(expected, SAMPLING_RATE, 30, ORDER, filterType, RIPPLE);
+        assertMatches(expected, BiquadCascade.lowPass(SAMPLING_RATE, 30, ORDER, filterType, RIPPLE));
+    }
+
+    /**
+     * Compares the high pass filters.
+     *
+     * @param filterType the filter type.
+     * @throws BrainFlowError from the BrainFlow API.
+     */
+    @ParameterizedTest
+    @EnumSource(value = FilterTypes.class, names = {"BUTTERWORTH", "CHEBYSHEV_TYPE_1"})
+    void highPassMatchesBrainFlow(FilterTypes filterType) throws BrainFlowError {
+        double[] expected = signal();
+        DataFilter.perform_highpass(expected, SAMPLING_RATE, 1, ORDER, filterType, RIPPLE);
+        assertMatches(expected, BiquadCascade.highPass(SAMPLING_RATE, 1, ORDER, filterType, RIPPLE));
+    }
+
+    /**
+     * Compares the band pass filters.
+     *
+     * @param filterType the filter type.
+     * @throws BrainFlowError from the BrainFlow API.
+     */
+    @ParameterizedTest
+    @EnumSource(value = FilterTypes.class, names = {"BUTTERWORTH", "CHEBYSHEV_TYPE_1"})
+    void bandPassMatchesBrainFlow(FilterTypes filterType) throws BrainFlowError {
+        double[] expected = signal();
+        DataFilter.perform_bandpass(expected, SAMPLING_RATE, 8, 13, ORDER, filterType, RIPPLE);
+        assertMatches(expected, BiquadCascade.bandPass(SAMPLING_RATE, 8, 13, ORDER, filterType, RIPPLE));
+    }
+
+    /**
+     * Compares the band stop filters.
+     *
+     * @param filterType the filter type.
+     * @throws BrainFlowError from the BrainFlow API.
+     */
+    @ParameterizedTest
+    @EnumSource(value = FilterTypes.class, names = {"BUTTERWORTH", "CHEBYSHEV_TYPE_1"})
+    void bandStopMatchesBrainFlow(FilterTypes filterType) throws BrainFlowError {
+        double[] expected = signal();
+        DataFilter.perform_bandstop(expected, SAMPLING_RATE, 48, 52, ORDER, filterType, RIPPLE);
+        assertMatches(expected, BiquadCascade.bandStop(SAMPLING_RATE, 48, 52, ORDER, filterType, RIPPLE));
+    }
+
+    /**
+     * Returns a test signal: an offset, alpha and line noise sines, and white noise, from a fixed seed.
+     *
+     * @return the samples.
+     */
+    private static double[] signal() {
+        Random random = new Random(42);
+        double[] signal = new double[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            double t = (double) i / SAMPLING_RATE;
+            signal[i] = 50 + 20 * Math.sin(2 * Math.PI * 10 * t) + 10 * Math.sin(2 * Math.PI * 50 * t) + random.nextGaussian() * 5;
+        }
+        return signal;
+    }
+
+    /**
+     * Filters the test signal in random chunks, from a zero state, and compares it with the expected samples.
+     *
+     * @param expected the BrainFlow output.
+     * @param cascade  the filter.
+     */
+    private static void assertMatches(double[] expected, BiquadCascade cascade) {
+        double[] actual = signal();
+        StreamingFilter filter = new StreamingFilter(cascade, new int[]{0});
+        Random random = new Random(7);
+        int from = 0;
+        while (from < actual.length) {
+            int length = Math.min(actual.length - from, 1 + random.nextInt(100));
+            filter.process(0, actual, from, length);
+            from += length;
+        }
+
+        double maxError = 0;
+        for (int i = 0; i < expected.length; i++) {
+            maxError = Math.max(maxError, Math.abs(expected[i] - actual[i]));
+        }
+        assertTrue(maxError < TOLERANCE, "Max error " + maxError);
+    }
+}